@@ -0,0 +1,286 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Minimal micro-benchmark harness (warm-up, timed iterations, forked JVMs).
+ *
+ * <p>
+ * The harness follows the usual JMH structure without needing an external dependency:
+ * </p>
+ * <ul>
+ *   <li>Each measurement runs in a fresh JVM ({@link #runForked}), so the singleton engine,
+ *       JIT profile and heap of one configuration never affect another.</li>
+ *   <li>Warm-up iterations run the code until it is compiled; only the following measured
+ *       iterations are reported.</li>
+ *   <li>In {@link Mode#AVERAGE_TIME} every thread calls the benchmark in a loop for a fixed
+ *       time and the score is the average time per call. In {@link Mode#SINGLE_SHOT} every
+ *       thread calls it once per iteration, for operations that change state so much that they
+ *       cannot be repeated in a loop.</li>
+ *   <li>Results go to a per-thread {@link Blackhole} so they are not optimized away.</li>
+ * </ul>
+ */
+public final class BenchmarkHarness {
+
+    /** Prefix of the line a forked JVM prints to report its result. */
+    static final String RESULT_PREFIX = "RESULT\t";
+
+    /**
+     * How an iteration is measured.
+     */
+    public enum Mode {
+        /** Call repeatedly for a fixed time; score is the average time per call. */
+        AVERAGE_TIME,
+        /** Call once per thread per iteration; score is the average time of those calls. */
+        SINGLE_SHOT
+    }
+
+    /**
+     * Code under measurement.
+     */
+    @FunctionalInterface
+    public interface Invocation {
+
+        /**
+         * Runs one call of the measured operation.
+         *
+         * @param thread index of the calling benchmark thread (0-based)
+         * @param bh     blackhole of the calling thread
+         * @throws Exception if the operation fails (the measurement is aborted)
+         */
+        void run(int thread, Blackhole bh) throws Exception;
+    }
+
+    /**
+     * Result of a measurement.
+     */
+    public static final class Result {
+        private final double scoreNanos;
+        private final double errorNanos;
+
+        private Result(double scoreNanos, double errorNanos) {
+            this.scoreNanos = scoreNanos;
+            this.errorNanos = errorNanos;
+        }
+
+        /**
+         * Returns the mean time per call over the measured iterations.
+         *
+         * @return nanoseconds per call
+         */
+        public double getScoreNanos() {
+            return scoreNanos;
+        }
+
+        /**
+         * Returns the standard deviation of the per-iteration scores.
+         *
+         * @return nanoseconds
+         */
+        public double getErrorNanos() {
+            return errorNanos;
+        }
+    }
+
+    private BenchmarkHarness() {}
+
+    /**
+     * Measures an operation in the current JVM.
+     *
+     * @param op                code under measurement
+     * @param mode              measurement mode
+     * @param threads           number of threads calling {@code op} concurrently (must be positive)
+     * @param warmupIterations  iterations run before measuring (must not be negative)
+     * @param iterations        measured iterations (must be positive)
+     * @param iterationMillis   duration of each {@link Mode#AVERAGE_TIME} iteration
+     * @return mean time per call and its deviation
+     * @throws IllegalArgumentException if a count is out of range
+     * @throws Exception                if {@code op} throws
+     */
+    public static Result measure(Invocation op, Mode mode, int threads, int warmupIterations,
+                                 int iterations, long iterationMillis) throws Exception {
+        if (threads <= 0 || warmupIterations < 0 || iterations <= 0) {
+            throw new IllegalArgumentException("threads and iterations must be > 0, warm-up >= 0");
+        }
+
+        Blackhole[] blackholes = new Blackhole[threads];
+        for (int i = 0; i < threads; i++) {
+            blackholes[i] = new Blackhole();
+        }
+
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(op, mode, blackholes, iterationMillis);
+        }
+
+        double[] scores = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            scores[i] = runIteration(op, mode, blackholes, iterationMillis);
+        }
+
+        for (Blackhole bh : blackholes) {
+            bh.result();
+        }
+
+        double mean = 0.0;
+        for (double s : scores) mean += s;
+        mean /= scores.length;
+
+        double variance = 0.0;
+        for (double s : scores) variance += (s - mean) * (s - mean);
+        double deviation = (scores.length > 1) ? Math.sqrt(variance / (scores.length - 1)) : 0.0;
+
+        return new Result(mean, deviation);
+    }
+
+    /**
+     * Runs one iteration on all threads.
+     *
+     * @param op              code under measurement
+     * @param mode            measurement mode
+     * @param blackholes      one blackhole per thread
+     * @param iterationMillis duration of an {@link Mode#AVERAGE_TIME} iteration
+     * @return average nanoseconds per call in this iteration
+     * @throws Exception if {@code op} throws on any thread
+     */
+    private static double runIteration(Invocation op, Mode mode, Blackhole[] blackholes,
+                                       long iterationMillis) throws Exception {
+        int threads = blackholes.length;
+        long[] calls = new long[threads];
+        long[] nanos = new long[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        StopFlag stop = new StopFlag();
+
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread worker = new Thread(() -> {
+                Blackhole bh = blackholes[index];
+                try {
+                    start.await();
+                    long n = 0;
+                    long t0 = System.nanoTime();
+                    if (mode == Mode.SINGLE_SHOT) {
+                        op.run(index, bh);
+                        n = 1;
+                    } else {
+                        while (!stop.stopped) {
+                            op.run(index, bh);
+                            n++;
+                        }
+                    }
+                    nanos[index] = System.nanoTime() - t0;
+                    calls[index] = n;
+                } catch (Exception ex) {
+                    failure.compareAndSet(null, ex);
+                }
+            }, "bench-worker-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+
+        start.countDown();
+        if (mode == Mode.AVERAGE_TIME) {
+            Thread.sleep(iterationMillis);
+            stop.stopped = true;
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        long totalCalls = 0;
+        long totalNanos = 0;
+        for (int t = 0; t < threads; t++) {
+            totalCalls += calls[t];
+            totalNanos += nanos[t];
+        }
+        return (totalCalls == 0) ? 0.0 : (double) totalNanos / totalCalls;
+    }
+
+    /**
+     * Runs a benchmark class in a new JVM with the current class path and returns the
+     * result line it prints (the line starting with {@link #RESULT_PREFIX}, prefix removed).
+     * Any other output of the child is forwarded to standard error.
+     *
+     * @param mainClass class whose {@code main} runs the measurement
+     * @param args      arguments for the child
+     * @return result fields printed by the child, or {@code null} if it printed none
+     * @throws IOException          if the child cannot be started or read
+     * @throws InterruptedException if interrupted while waiting for the child
+     */
+    static String runForked(Class<?> mainClass, List<String> args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass.getName());
+        command.addAll(args);
+
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        String result = null;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    result = line.substring(RESULT_PREFIX.length());
+                } else {
+                    System.err.println(line);
+                }
+            }
+        }
+
+        int exit = process.waitFor();
+        if (exit != 0) {
+            System.err.println("Forked benchmark exited with status " + exit + ": " + String.join(" ", args));
+        }
+        return result;
+    }
+
+    /**
+     * Formats a result as a line for {@link #runForked}.
+     *
+     * @param result measured result
+     * @return result line including {@link #RESULT_PREFIX}
+     */
+    static String formatResult(Result result) {
+        return String.format(Locale.ROOT, "%s%.3f\t%.3f", RESULT_PREFIX, result.scoreNanos, result.errorNanos);
+    }
+
+    /**
+     * Parses the fields produced by {@link #formatResult}.
+     *
+     * @param fields result line without prefix
+     * @return parsed result
+     * @throws NumberFormatException if the fields are malformed
+     */
+    static Result parseResult(String fields) {
+        String[] parts = fields.split("\t");
+        return new Result(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]));
+    }
+
+    /**
+     * Shared stop signal of an {@link Mode#AVERAGE_TIME} iteration.
+     */
+    private static final class StopFlag {
+        private volatile boolean stopped;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.bench;
+
+/**
+ * Sink for benchmark results.
+ *
+ * <p>
+ * Benchmarks pass the values they compute to {@link #consume} so the JIT compiler cannot
+ * remove the measured code as dead. Each value is folded into a field that is published
+ * through a volatile write only when {@link #result()} is read, so consuming costs a few
+ * arithmetic instructions and never shares a cache line between threads (use one
+ * instance per thread).
+ * </p>
+ */
+public final class Blackhole {
+
+    /** Running combination of consumed values. */
+    private long sink;
+
+    /** Published value, read once after measuring. */
+    private volatile long published;
+
+    /**
+     * Consumes an object.
+     *
+     * @param value value to consume (may be {@code null})
+     */
+    public void consume(Object value) {
+        sink = sink * 31 + System.identityHashCode(value);
+    }
+
+    /**
+     * Consumes a {@code long}.
+     *
+     * @param value value to consume
+     */
+    public void consume(long value) {
+        sink = sink * 31 + value;
+    }
+
+    /**
+     * Consumes a {@code double}.
+     *
+     * @param value value to consume
+     */
+    public void consume(double value) {
+        sink = sink * 31 + Double.doubleToRawLongBits(value);
+    }
+
+    /**
+     * Consumes a {@code boolean}.
+     *
+     * @param value value to consume
+     */
+    public void consume(boolean value) {
+        sink = sink * 31 + (value ? 1 : 0);
+    }
+
+    /**
+     * Publishes and returns the combination of all consumed values.
+     *
+     * @return combined value
+     */
+    public long result() {
+        published = sink;
+        return published;
+    }
+}
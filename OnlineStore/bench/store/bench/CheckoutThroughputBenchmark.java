@@ -0,0 +1,170 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.bench;
+
+import store.core.Customer;
+import store.engine.StoreEngine;
+import store.gui.controller.StoreController;
+import store.products.Category;
+import store.products.Product;
+import store.products.ProductFactory;
+import store.shipping.ShippingProvider;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless throughput benchmark for {@link StoreController#checkout()}.
+ *
+ * <p>
+ * Runs 1 to 64 concurrent customers, each repeatedly adding its own product to the cart
+ * and checking out, and reports completed checkouts per second for two paths:
+ * </p>
+ * <ul>
+ *   <li><b>global</b>: every checkout is wrapped in {@code synchronized (engine)},
+ *       reproducing the previous engine-wide critical section.</li>
+ *   <li><b>striped</b>: the current checkout, which only locks the stock stripes of the
+ *       products in the cart.</li>
+ * </ul>
+ * <p>
+ * Order history and order IDs are written to temporary files and shipping is replaced by an in-memory
+ * provider, so the run does not touch the real store data.
+ * </p>
+ *
+ * <p>Usage: {@code java store.bench.CheckoutThroughputBenchmark [secondsPerRun]}</p>
+ */
+public final class CheckoutThroughputBenchmark {
+
+    /** Concurrency levels measured for each path. */
+    private static final int[] CUSTOMER_COUNTS = { 1, 2, 4, 8, 16, 32, 64 };
+
+    /** Shipping provider that completes orders without calling the external API. */
+    private static final ShippingProvider NO_OP_SHIPPING = order -> {
+        order.pay();
+        order.ship();
+    };
+
+    private CheckoutThroughputBenchmark() {}
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optional duration of each measured run, in seconds (default 3)
+     * @throws Exception if the temporary history file cannot be created or a run is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        File history = File.createTempFile("bench-orders", ".csv");
+        File orderIds = File.createTempFile("bench-orders", ".hwm");
+        history.deleteOnExit();
+        orderIds.deleteOnExit();
+        System.setProperty("store.ordersFile", history.getPath());
+        System.setProperty("store.orderIdFile", orderIds.getPath());
+
+        long runMillis = (args.length > 0 ? Long.parseLong(args[0]) : 3L) * 1000L;
+        StoreEngine engine = StoreEngine.getInstance();
+
+        // Warm-up so that both paths are measured with compiled code.
+        run(engine, "warmup", 8, false, 1000L);
+
+        System.out.printf("%-10s %12s %12s %8s%n", "customers", "global/s", "striped/s", "speedup");
+        for (int customers : CUSTOMER_COUNTS) {
+            double global = run(engine, "global", customers, true, runMillis);
+            double striped = run(engine, "striped", customers, false, runMillis);
+            System.out.printf("%-10d %12.0f %12.0f %7.2fx%n",
+                    customers, global, striped, striped / global);
+        }
+    }
+
+    /**
+     * Executes a single measured run.
+     *
+     * @param engine     shared store engine
+     * @param label      prefix used to keep product names unique per run
+     * @param customers  number of concurrent customers
+     * @param globalLock whether each checkout is wrapped in the engine monitor
+     * @param runMillis  measured duration in milliseconds
+     * @return completed checkouts per second
+     * @throws InterruptedException if interrupted while waiting for workers
+     */
+    private static double run(StoreEngine engine, String label, int customers,
+                              boolean globalLock, long runMillis) throws InterruptedException {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < customers; i++) {
+            products.add(ProductFactory.createProductWithDefaults(new ProductFactory.BasicFields(
+                    label + "-" + customers + "-" + i, 10.0, Integer.MAX_VALUE / 2,
+                    "benchmark product", Category.ELECTRONICS, null, null)));
+        }
+        engine.addProducts(products);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder completed = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int i = 0; i < customers; i++) {
+            Product product = products.get(i);
+            StoreController controller = new StoreController(
+                    engine, new Customer(label + "-customer-" + i, ""), null, NO_OP_SHIPPING);
+
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                while (running.get()) {
+                    controller.addToCart(product, 1);
+                    boolean ok;
+                    if (globalLock) {
+                        synchronized (engine) {
+                            ok = controller.checkout();
+                        }
+                    } else {
+                        ok = controller.checkout();
+                    }
+                    if (ok) {
+                        completed.increment();
+                    }
+                }
+            }, "bench-" + label + "-" + i);
+            workers.add(t);
+            t.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(runMillis);
+        running.set(false);
+        for (Thread t : workers) {
+            t.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        for (Product p : products) {
+            engine.removeProduct(p);
+        }
+        truncateHistory();
+
+        return completed.sum() / seconds;
+    }
+
+    /**
+     * Empties the temporary history file between runs so file growth does not skew results.
+     */
+    private static void truncateHistory() {
+        try {
+            new FileOutputStream(System.getProperty("store.ordersFile")).close();
+        } catch (IOException ex) {
+            System.err.println("Could not truncate benchmark history: " + ex.getMessage());
+        }
+    }
+}
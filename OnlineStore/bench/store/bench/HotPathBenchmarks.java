@@ -0,0 +1,440 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.bench;
+
+import store.cart.Cart;
+import store.cart.CartItem;
+import store.core.Customer;
+import store.core.Money;
+import store.engine.StoreEngine;
+import store.gui.controller.StoreController;
+import store.io.OrderHistoryIO;
+import store.io.ProductCatalogIO;
+import store.order.Order;
+import store.products.Category;
+import store.products.Product;
+import store.products.ProductFactory;
+import store.reports.InventoryReport;
+import store.reports.ReportWriter;
+import store.reports.SalesReport;
+import store.shipping.ShippingProvider;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Baseline benchmarks for the store's hot paths, parameterized by catalog and order-history size.
+ *
+ * <p>
+ * Every benchmark is run once per relevant size in its own JVM (see {@link BenchmarkHarness})
+ * and the results are printed as a table of microseconds per call:
+ * </p>
+ * <ul>
+ *   <li><b>cart.calculateTotal</b>: total of a cart holding one line per catalog product.</li>
+ *   <li><b>customer.addToCart</b>: adding to such a cart (including the stock check).</li>
+ *   <li><b>engine.addProducts</b>: adding a catalog-sized batch of new products (single shot,
+ *       since the catalog grows with every call).</li>
+ *   <li><b>catalogIO.load</b>: {@link ProductCatalogIO#loadProductsFromFile} on a catalog file.</li>
+ *   <li><b>historyIO.loadOrders</b>: {@link OrderHistoryIO#loadOrders} on a history file.</li>
+ *   <li><b>report.inventory</b> / <b>report.sales</b>: report generation with a discarding writer.</li>
+ *   <li><b>controller.checkout</b>: add-to-cart plus checkout from several threads at once
+ *       (contention on the products' stock grows as the catalog shrinks).</li>
+ * </ul>
+ * <p>
+ * Order history and order IDs are written to temporary files and shipping is replaced by an
+ * in-memory provider, so runs do not touch the real store data.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code java store.bench.HotPathBenchmarks [key=value ...]}, with keys
+ * {@code benchmarks} (name regex, default all), {@code catalog} (sizes, {@code 100,1000,10000}),
+ * {@code orders} (sizes, {@code 1000,10000,100000}), {@code threads} (checkout threads, 8),
+ * {@code warmup} (iterations, 3), {@code iterations} (5) and {@code time} (seconds per iteration, 1).
+ * </p>
+ */
+public final class HotPathBenchmarks {
+
+    /** Argument that makes {@link #main} measure a single configuration (used by forked JVMs). */
+    private static final String FORK_ARG = "--fork";
+
+    /** Shipping provider that completes orders without calling the external API. */
+    private static final ShippingProvider NO_OP_SHIPPING = order -> {
+        order.pay();
+        order.ship();
+    };
+
+    /** Initial stock of every benchmark product. */
+    private static final int STOCK = Integer.MAX_VALUE / 2;
+
+    /** Number of lines per generated history order. */
+    private static final int ITEMS_PER_ORDER = 3;
+
+    /**
+     * Benchmarked operations.
+     */
+    enum Definition {
+        CART_TOTAL("cart.calculateTotal", true, false, BenchmarkHarness.Mode.AVERAGE_TIME) {
+            @Override
+            BenchmarkHarness.Invocation setup(Fixture f) {
+                Cart cart = new Cart();
+                for (Product p : f.products) {
+                    cart.addItem(p, 1);
+                }
+                return (thread, bh) -> bh.consume(cart.calculateTotalCents());
+            }
+        },
+        CUSTOMER_ADD_TO_CART("customer.addToCart", true, false, BenchmarkHarness.Mode.AVERAGE_TIME) {
+            @Override
+            BenchmarkHarness.Invocation setup(Fixture f) {
+                Customer customer = new Customer("bench-customer", "");
+                for (Product p : f.products) {
+                    customer.addToCart(p, 1);
+                }
+                int[] next = new int[1];
+                return (thread, bh) -> {
+                    Product p = f.products.get(next[0]);
+                    next[0] = (next[0] + 1) % f.products.size();
+                    bh.consume(customer.addToCart(p, 1));
+                };
+            }
+        },
+        ENGINE_ADD_PRODUCTS("engine.addProducts", true, false, BenchmarkHarness.Mode.SINGLE_SHOT) {
+            @Override
+            BenchmarkHarness.Invocation setup(Fixture f) {
+                List<List<Product>> batches = new ArrayList<>();
+                for (int b = 0; b < f.warmupIterations + f.iterations; b++) {
+                    batches.add(createProducts("bench-batch-" + b + "-", f.catalogSize));
+                }
+                AtomicInteger next = new AtomicInteger();
+                return (thread, bh) -> {
+                    f.engine.addProducts(batches.get(next.getAndIncrement()));
+                    bh.consume(f.engine.getCatalogVersion());
+                };
+            }
+        },
+        CATALOG_LOAD("catalogIO.load", true, false, BenchmarkHarness.Mode.AVERAGE_TIME) {
+            @Override
+            BenchmarkHarness.Invocation setup(Fixture f) throws IOException {
+                File file = f.tempFile("bench-catalog", ".csv");
+                ProductCatalogIO.saveProductsToFile(file, f.products);
+                return (thread, bh) -> bh.consume(ProductCatalogIO.loadProductsFromFile(file).size());
+            }
+        },
+        HISTORY_LOAD("historyIO.loadOrders", false, true, BenchmarkHarness.Mode.AVERAGE_TIME) {
+            @Override
+            BenchmarkHarness.Invocation setup(Fixture f) throws IOException {
+                f.writeHistory();
+                return (thread, bh) -> bh.consume(OrderHistoryIO.loadOrders(f.engine).size());
+            }
+        },
+        INVENTORY_REPORT("report.inventory", true, false, BenchmarkHarness.Mode.AVERAGE_TIME) {
+            @Override
+            BenchmarkHarness.Invocation setup(Fixture f) {
+                return (thread, bh) -> new InventoryReport(discardingWriter(bh)).generate(f.engine);
+            }
+        },
+        SALES_REPORT("report.sales", false, true, BenchmarkHarness.Mode.AVERAGE_TIME) {
+            @Override
+            BenchmarkHarness.Invocation setup(Fixture f) throws IOException {
+                f.engine.addLoadedOrders(f.writeHistory());
+                return (thread, bh) -> new SalesReport(discardingWriter(bh)).generate(f.engine);
+            }
+        },
+        CHECKOUT("controller.checkout", true, false, BenchmarkHarness.Mode.AVERAGE_TIME) {
+            @Override
+            int threads(Fixture f) {
+                return f.threads;
+            }
+
+            @Override
+            BenchmarkHarness.Invocation setup(Fixture f) {
+                StoreController[] sessions = new StoreController[f.threads];
+                for (int t = 0; t < sessions.length; t++) {
+                    sessions[t] = new StoreController(
+                            f.engine, new Customer("bench-customer-" + t, ""), null, NO_OP_SHIPPING);
+                }
+                return (thread, bh) -> {
+                    List<Product> products = f.products;
+                    StoreController session = sessions[thread];
+                    session.addToCart(products.get(ThreadLocalRandom.current().nextInt(products.size())), 1);
+                    bh.consume(session.checkout());
+                };
+            }
+        };
+
+        private final String label;
+        private final boolean usesCatalogSize;
+        private final boolean usesOrderCount;
+        private final BenchmarkHarness.Mode mode;
+
+        Definition(String label, boolean usesCatalogSize, boolean usesOrderCount, BenchmarkHarness.Mode mode) {
+            this.label = label;
+            this.usesCatalogSize = usesCatalogSize;
+            this.usesOrderCount = usesOrderCount;
+            this.mode = mode;
+        }
+
+        /**
+         * Prepares the benchmark state and returns the measured operation.
+         *
+         * @param f fixture with the engine and catalog already loaded
+         * @return measured operation
+         * @throws IOException if a data file cannot be prepared
+         */
+        abstract BenchmarkHarness.Invocation setup(Fixture f) throws IOException;
+
+        /**
+         * Returns the number of threads calling the operation concurrently.
+         *
+         * @param f fixture
+         * @return thread count
+         */
+        int threads(Fixture f) {
+            return 1;
+        }
+    }
+
+    private HotPathBenchmarks() {}
+
+    /**
+     * Runs the selected benchmarks, each configuration in its own JVM.
+     *
+     * @param args {@code key=value} parameters (see class description)
+     * @throws Exception if a forked JVM cannot be started or a measurement fails
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && FORK_ARG.equals(args[0])) {
+            runFork(args);
+            return;
+        }
+
+        Pattern filter = Pattern.compile(".*");
+        int[] catalogSizes = { 100, 1000, 10_000 };
+        int[] orderCounts = { 1000, 10_000, 100_000 };
+        int threads = 8;
+        int warmup = 3;
+        int iterations = 5;
+        long iterationMillis = 1000L;
+
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            String value = kv[1].trim();
+            switch (kv[0].trim().toLowerCase(Locale.ROOT)) {
+                case "benchmarks": filter = Pattern.compile(value); break;
+                case "catalog": catalogSizes = parseSizes(value); break;
+                case "orders": orderCounts = parseSizes(value); break;
+                case "threads": threads = Integer.parseInt(value); break;
+                case "warmup": warmup = Integer.parseInt(value); break;
+                case "iterations": iterations = Integer.parseInt(value); break;
+                case "time": iterationMillis = Math.round(Double.parseDouble(value) * 1000); break;
+                default: throw new IllegalArgumentException("Unknown parameter: " + kv[0]);
+            }
+        }
+
+        System.out.printf("%-22s %-6s %8s %8s %7s %14s %12s%n",
+                "benchmark", "mode", "catalog", "orders", "threads", "us/op", "error");
+
+        for (Definition d : Definition.values()) {
+            if (!filter.matcher(d.label).find()) continue;
+
+            int[] catalogs = d.usesCatalogSize ? catalogSizes : new int[] { catalogSizes[0] };
+            int[] histories = d.usesOrderCount ? orderCounts : new int[] { 0 };
+            for (int catalog : catalogs) {
+                for (int orders : histories) {
+                    String fields = BenchmarkHarness.runForked(HotPathBenchmarks.class, Arrays.asList(
+                            FORK_ARG, d.name(), String.valueOf(catalog), String.valueOf(orders),
+                            String.valueOf(threads), String.valueOf(warmup), String.valueOf(iterations),
+                            String.valueOf(iterationMillis)));
+
+                    int shownThreads = (d == Definition.CHECKOUT) ? threads : 1;
+                    String mode = (d.mode == BenchmarkHarness.Mode.SINGLE_SHOT) ? "ss" : "avgt";
+                    if (fields == null) {
+                        System.out.printf("%-22s %-6s %8d %8d %7d %14s%n",
+                                d.label, mode, catalog, orders, shownThreads, "FAILED");
+                        continue;
+                    }
+
+                    BenchmarkHarness.Result r = BenchmarkHarness.parseResult(fields);
+                    System.out.printf(Locale.ROOT, "%-22s %-6s %8d %8d %7d %14.3f %12.3f%n",
+                            d.label, mode, catalog, orders, shownThreads,
+                            r.getScoreNanos() / 1000.0, r.getErrorNanos() / 1000.0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Measures one configuration inside a forked JVM and prints its result line.
+     *
+     * @param args {@code --fork name catalog orders threads warmup iterations iterationMillis}
+     * @throws Exception if setup or measurement fails
+     */
+    private static void runFork(String[] args) throws Exception {
+        Definition d = Definition.valueOf(args[1]);
+        Fixture f = new Fixture(Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                Integer.parseInt(args[4]), Integer.parseInt(args[5]), Integer.parseInt(args[6]));
+        long iterationMillis = Long.parseLong(args[7]);
+
+        BenchmarkHarness.Invocation op = d.setup(f);
+        BenchmarkHarness.Result result = BenchmarkHarness.measure(
+                op, d.mode, d.threads(f), f.warmupIterations, f.iterations, iterationMillis);
+        System.out.println(BenchmarkHarness.formatResult(result));
+        System.exit(0);
+    }
+
+    /**
+     * Parses a comma-separated list of positive sizes.
+     *
+     * @param value list such as {@code 100,1000}
+     * @return sizes
+     * @throws IllegalArgumentException if a size is not positive
+     */
+    private static int[] parseSizes(String value) {
+        String[] parts = value.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i].trim());
+            if (sizes[i] <= 0) {
+                throw new IllegalArgumentException("Sizes must be > 0: " + value);
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Creates benchmark products with unique names.
+     *
+     * @param prefix name prefix
+     * @param count  number of products
+     * @return new products (not yet added to the engine)
+     */
+    private static List<Product> createProducts(String prefix, int count) {
+        Category[] categories = Category.values();
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(ProductFactory.createProductWithDefaults(new ProductFactory.BasicFields(
+                    prefix + i, 1.0 + (i % 100), STOCK, "benchmark product",
+                    categories[i % categories.length], null, null)));
+        }
+        return products;
+    }
+
+    /**
+     * Returns a report writer that only hands the rows to a blackhole.
+     *
+     * @param bh blackhole of the calling thread
+     * @return discarding writer
+     */
+    private static ReportWriter discardingWriter(Blackhole bh) {
+        return (title, headers, rows) -> {
+            int count = 0;
+            for (String[] row : rows) {
+                count++;
+            }
+            bh.consume(count);
+        };
+    }
+
+    /**
+     * State shared by the benchmarks of one forked JVM.
+     */
+    static final class Fixture {
+        private final int catalogSize;
+        private final int orderCount;
+        private final int threads;
+        private final int warmupIterations;
+        private final int iterations;
+        private final StoreEngine engine;
+        private final List<Product> products;
+
+        /**
+         * Points the store's data files at temporary files and loads the catalog.
+         *
+         * @param catalogSize      number of catalog products
+         * @param orderCount       number of history orders
+         * @param threads          checkout threads
+         * @param warmupIterations warm-up iterations
+         * @param iterations       measured iterations
+         * @throws IOException if a temporary file cannot be created
+         */
+        Fixture(int catalogSize, int orderCount, int threads, int warmupIterations, int iterations)
+                throws IOException {
+            this.catalogSize = catalogSize;
+            this.orderCount = orderCount;
+            this.threads = threads;
+            this.warmupIterations = warmupIterations;
+            this.iterations = iterations;
+
+            System.setProperty("store.ordersFile", tempFile("bench-orders", ".csv").getPath());
+            System.setProperty("store.orderIdFile", tempFile("bench-orders", ".hwm").getPath());
+
+            this.engine = StoreEngine.getInstance();
+            this.products = createProducts("bench-product-", catalogSize);
+            engine.addProducts(products);
+        }
+
+        /**
+         * Creates a temporary file that is deleted when the JVM exits.
+         *
+         * @param prefix file name prefix
+         * @param suffix file name suffix
+         * @return new empty file
+         * @throws IOException if the file cannot be created
+         */
+        File tempFile(String prefix, String suffix) throws IOException {
+            File file = File.createTempFile(prefix, suffix);
+            file.deleteOnExit();
+            return file;
+        }
+
+        /**
+         * Writes {@link #orderCount} orders over the catalog products to the history file,
+         * in the format written by {@link OrderHistoryIO#appendOrder}.
+         *
+         * @return the written orders
+         * @throws IOException if the history file cannot be written
+         */
+        List<Order> writeHistory() throws IOException {
+            List<Order> orders = new ArrayList<>(orderCount);
+            LocalDateTime createdAt = LocalDateTime.now();
+            File file = new File(System.getProperty("store.ordersFile"));
+
+            try (BufferedWriter out = Files.newBufferedWriter(file.toPath())) {
+                for (int i = 0; i < orderCount; i++) {
+                    List<CartItem> items = new ArrayList<>(ITEMS_PER_ORDER);
+                    StringBuilder summary = new StringBuilder();
+                    long total = 0L;
+                    for (int k = 0; k < ITEMS_PER_ORDER; k++) {
+                        Product p = products.get((i * ITEMS_PER_ORDER + k) % products.size());
+                        items.add(new CartItem(p, 1 + k));
+                        summary.append(p.getName()).append(" x").append(1 + k).append(';');
+                        total += Money.times(p.getPriceCents(), 1 + k);
+                    }
+
+                    Order order = new Order("bench-customer-" + (i % 100), i + 1, items, total, createdAt);
+                    orders.add(order);
+                    out.write(order.getCustomerUsername() + "," + order.getOrderID() + ","
+                            + Money.format(total) + "," + createdAt + "," + summary);
+                    out.newLine();
+                }
+            }
+            return orders;
+        }
+    }
+}
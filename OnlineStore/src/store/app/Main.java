@@ -9,6 +9,7 @@ import store.engine.StoreEngine;
 import store.gui.view.LauncherWindow;
 import store.io.OrderHistoryIO;
 import store.io.ProductCatalogIO;
+import store.io.StoreSnapshot;
 import store.products.Product;
 
 import javax.swing.SwingUtilities;
@@ -22,12 +23,32 @@ import java.util.List;
  * Initializes the shared {@link StoreEngine}, loads a default product catalog
  * (if available), loads order history, and launches the {@link LauncherWindow}.
  * </p>
+ * <p>
+ * If a {@link StoreSnapshot} exists, the state is restored from it instead, and only the
+ * orders written after the snapshot are read from the history. Snapshots are then written
+ * periodically and on exit.
+ * </p>
  */
 public class Main {
 
     /** Default catalog CSV file name. */
     private static final String DEFAULT_CATALOG_FILE = "products_catalog.csv";
 
+    /**
+     * Whether the order history is loaded into memory at startup ({@code store.ordersPreload},
+     * default {@code true}). With {@code false}, history views and reports read it from disk
+     * on demand, so it may be larger than the heap.
+     */
+    private static final boolean PRELOAD_ORDERS =
+            Boolean.parseBoolean(System.getProperty("store.ordersPreload", "true"));
+
+    /**
+     * Interval between store snapshots ({@code store.snapshotMillis}, default
+     * {@link StoreSnapshot#DEFAULT_INTERVAL_MILLIS}); {@code 0} disables snapshots.
+     */
+    private static final long SNAPSHOT_MILLIS =
+            Long.getLong("store.snapshotMillis", StoreSnapshot.DEFAULT_INTERVAL_MILLIS);
+
     /**
      * Starts the application.
      *
@@ -37,8 +58,13 @@ public class Main {
         SwingUtilities.invokeLater(() -> {
             StoreEngine engine = StoreEngine.getInstance();
 
-            loadDefaultCatalog(engine);
-            loadOrderHistory(engine);
+            if (SNAPSHOT_MILLIS <= 0 || !StoreSnapshot.restore(engine, PRELOAD_ORDERS)) {
+                loadDefaultCatalog(engine);
+                loadOrderHistory(engine);
+            }
+            if (SNAPSHOT_MILLIS > 0) {
+                StoreSnapshot.startPeriodicSnapshots(engine, PRELOAD_ORDERS, SNAPSHOT_MILLIS);
+            }
 
             LauncherWindow launcher = new LauncherWindow(engine);
             launcher.setVisible(true);
@@ -58,9 +84,7 @@ public class Main {
 
         try {
             List<Product> loaded = ProductCatalogIO.loadProductsFromFile(file);
-            for (Product p : loaded) {
-                engine.addProduct(p);
-            }
+            engine.addProducts(loaded);
         } catch (IOException ex) {
             ex.printStackTrace();
         }
@@ -68,10 +92,15 @@ public class Main {
 
     /**
      * Loads existing orders from the history file into the engine.
+     * Without preloading, the history is only scanned for used order IDs.
      *
      * @param engine shared store engine
      */
     private static void loadOrderHistory(StoreEngine engine) {
+        if (!PRELOAD_ORDERS) {
+            OrderHistoryIO.forEachOrder(null, o -> engine.observeOrderId(o.getOrderID()));
+            return;
+        }
         engine.addLoadedOrders(OrderHistoryIO.loadOrders(engine));
     }
 }
@@ -5,29 +5,81 @@
  */
 package store.cart;
 
+import store.core.Money;
+import store.engine.StockHold;
 import store.products.Product;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Represents a shopping cart that holds a collection of {@link CartItem} objects.
  * <p>
  * The cart supports adding and removing products, clearing all items, and
- * calculating the total price. The internal list is encapsulated; callers receive
- * a copy via {@link #getItems()}.
+ * calculating the total price. Items are kept in a map keyed by product (one item per
+ * product, in the order they were first added), and the cart maintains its subtotal and
+ * unit count as items change. Adding, removing, quantity lookups and totals are therefore
+ * O(1) regardless of the number of lines. Callers receive a copy via {@link #getItems()},
+ * or a read-only live view via {@link #getItemsView()}.
+ * </p>
+ * <p>
+ * The running subtotal uses each product's price at the time its line last changed.
+ * </p>
+ * <p>
+ * The cart also keeps the {@link StockHold}s that reserve stock for its lines, so every
+ * session working on the same cart sees the same holds under the same lock. The cart only
+ * stores them; placing, converting and releasing holds is done through the engine.
+ * </p>
+ * <p>
+ * The cart itself is not thread-safe. Code that accesses a cart from several threads
+ * (e.g., the store controller) guards it with {@link #getLock()}. This is an explicit lock
+ * rather than the cart's monitor, so a virtual thread that blocks while holding it is not
+ * pinned to its carrier thread.
  * </p>
  */
 public class Cart {
 
-    /** Internal list of cart items (one per product). */
-    private final List<CartItem> items;
+    /** Cart items keyed by product (one per product, in insertion order). */
+    private final Map<Product, CartItem> items;
+
+    /** Read-only view of {@link #items} values, created once. */
+    private final Collection<CartItem> itemsView;
+
+    /** Sum of the line totals of all items, in cents. */
+    private long subtotalCents;
+
+    /** Sum of the quantities of all items. */
+    private int unitCount;
+
+    /** Stock holds reserving stock for the cart lines. */
+    private final List<StockHold> holds;
+
+    /** Lock guarding compound operations on this cart. */
+    private final ReentrantLock lock;
 
     /**
      * Constructs an empty cart.
      */
     public Cart() {
-        this.items = new ArrayList<>();
+        this.items = new LinkedHashMap<>();
+        this.itemsView = Collections.unmodifiableCollection(items.values());
+        this.holds = new ArrayList<>();
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * Returns the lock that guards compound operations on this cart.
+     *
+     * @return the cart's lock
+     */
+    public Lock getLock() {
+        return lock;
     }
 
     /**
@@ -46,14 +98,17 @@ public class Cart {
             return false;
         }
 
-        for (CartItem item : items) {
-            if (product.equals(item.getProduct())) {
-                item.setQuantity(item.getQuantity() + quantity);
-                return true;
-            }
+        CartItem item = items.get(product);
+        if (item == null) {
+            item = new CartItem(product, quantity);
+            items.put(product, item);
+        } else {
+            subtotalCents -= item.getPricedTotalCents();
+            item.setQuantity(item.getQuantity() + quantity);
         }
 
-        items.add(new CartItem(product, quantity));
+        subtotalCents += item.reprice();
+        unitCount += quantity;
         return true;
     }
 
@@ -66,7 +121,53 @@ public class Cart {
      * @return copy of current cart items
      */
     public List<CartItem> getItems() {
-        return new ArrayList<>(items);
+        return new ArrayList<>(items.values());
+    }
+
+    /**
+     * Returns a read-only live view of the cart items (no copy is made).
+     * <p>
+     * The view reflects later changes to the cart, so it must only be iterated while
+     * holding {@link #getLock()} (or by the cart's only thread).
+     * </p>
+     *
+     * @return unmodifiable view of the cart items
+     */
+    public Collection<CartItem> getItemsView() {
+        return itemsView;
+    }
+
+    /**
+     * Returns the quantity of a product in the cart.
+     *
+     * @param product product to look up
+     * @return quantity in the cart, or 0 if absent or {@code product} is {@code null}
+     */
+    public int getQuantity(Product product) {
+        if (product == null) {
+            return 0;
+        }
+
+        CartItem item = items.get(product);
+        return (item == null) ? 0 : item.getQuantity();
+    }
+
+    /**
+     * Returns the total number of units in the cart (sum of all quantities).
+     *
+     * @return unit count
+     */
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    /**
+     * Returns the number of distinct products in the cart.
+     *
+     * @return line count
+     */
+    public int getLineCount() {
+        return items.size();
     }
 
     /**
@@ -80,34 +181,96 @@ public class Cart {
             return false;
         }
 
-        for (int i = 0; i < items.size(); i++) {
-            if (product.equals(items.get(i).getProduct())) {
-                items.remove(i);
-                return true;
-            }
+        CartItem removed = items.remove(product);
+        if (removed == null) {
+            return false;
         }
 
-        return false;
+        subtotalCents -= removed.getPricedTotalCents();
+        unitCount -= removed.getQuantity();
+        return true;
     }
 
     /**
-     * Calculates the total price of all items in the cart.
+     * Returns the total price of all items in the cart.
+     * <p>
+     * The total is maintained exactly (in cents) as items change, so this method does not
+     * iterate the cart.
+     * </p>
+     *
+     * @return total cost of the cart, in cents
+     */
+    public long calculateTotalCents() {
+        return subtotalCents;
+    }
+
+    /**
+     * Returns the total price of all items in the cart in currency units (for display).
      *
      * @return total cost of the cart
      */
     public double calculateTotal() {
-        double total = 0.0;
-        for (CartItem item : items) {
-            total += item.getTotalPrice();
+        return Money.toDouble(subtotalCents);
+    }
+
+    /**
+     * Records a stock hold placed for a line of this cart.
+     *
+     * @param hold the hold (ignored if {@code null})
+     */
+    public void addHold(StockHold hold) {
+        if (hold != null) {
+            holds.add(hold);
         }
-        return total;
+    }
+
+    /**
+     * Returns the recorded holds of a product.
+     *
+     * @param product product to look up
+     * @return copy of the product's holds (empty if none)
+     */
+    public List<StockHold> getHolds(Product product) {
+        List<StockHold> result = new ArrayList<>();
+        for (StockHold h : holds) {
+            if (h.getProduct().equals(product)) {
+                result.add(h);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets the recorded holds of a product and returns them.
+     *
+     * @param product product whose holds are removed
+     * @return the removed holds (empty if none)
+     */
+    public List<StockHold> removeHolds(Product product) {
+        List<StockHold> removed = getHolds(product);
+        holds.removeAll(removed);
+        return removed;
+    }
+
+    /**
+     * Forgets all recorded holds and returns them.
+     *
+     * @return the removed holds (empty if none)
+     */
+    public List<StockHold> removeAllHolds() {
+        List<StockHold> removed = new ArrayList<>(holds);
+        holds.clear();
+        return removed;
     }
 
     /**
      * Removes all items from the cart.
+     * The recorded holds are kept; the caller ends them through the engine.
      */
     public void clear() {
         items.clear();
+        subtotalCents = 0L;
+        unitCount = 0;
     }
 
     /**
@@ -134,7 +297,7 @@ public class Cart {
         }
 
         sb.append("Items:\n");
-        for (CartItem item : items) {
+        for (CartItem item : items.values()) {
             sb.append(item).append("\n\n");
         }
 
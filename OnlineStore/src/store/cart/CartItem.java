@@ -5,6 +5,7 @@
  */
 package store.cart;
 
+import store.core.Money;
 import store.products.Product;
 
 /**
@@ -22,6 +23,12 @@ public class CartItem {
     /** Quantity of the product (always positive). */
     private int quantity;
 
+    /** Unit price in cents fixed at checkout, or 0 to follow the product's current price. */
+    private final long unitPriceCents;
+
+    /** Line total in cents last counted in the owning cart's running subtotal (see {@link #reprice()}). */
+    private long pricedTotalCents;
+
     /**
      * Constructs a new cart item.
      *
@@ -30,15 +37,42 @@ public class CartItem {
      * @throws IllegalArgumentException if input is invalid
      */
     public CartItem(Product product, int quantity) {
+        this(product, quantity, 0);
+    }
+
+    /**
+     * Constructs an order line whose unit price is fixed (e.g., the price paid at checkout),
+     * so later price changes of the product do not affect it.
+     *
+     * @param product        product to add (must not be null)
+     * @param quantity       quantity of the product (must be > 0)
+     * @param unitPriceCents unit price in cents, or 0 to follow the product's current price
+     * @throws IllegalArgumentException if input is invalid
+     */
+    public CartItem(Product product, int quantity, long unitPriceCents) {
         if (product == null) {
             throw new IllegalArgumentException("product cannot be null");
         }
         if (quantity <= 0) {
             throw new IllegalArgumentException("quantity must be > 0");
         }
+        if (unitPriceCents < 0) {
+            throw new IllegalArgumentException("unit price cannot be negative");
+        }
 
         this.product = product;
         this.quantity = quantity;
+        this.unitPriceCents = unitPriceCents;
+    }
+
+    /**
+     * Returns a copy of this item with the unit price fixed at the product's current price.
+     * Used when a cart is turned into an order.
+     *
+     * @return order line priced as of now
+     */
+    public CartItem withCurrentPrice() {
+        return new CartItem(product, quantity, product.getPriceCents());
     }
 
     /**
@@ -61,11 +95,15 @@ public class CartItem {
 
     /**
      * Updates the quantity of this cart item.
+     * <p>
+     * Package-private: quantities are changed only by the owning {@link Cart}, which keeps
+     * its running totals in step.
+     * </p>
      *
      * @param quantity new quantity (must be > 0)
      * @return true if updated; false otherwise
      */
-    public boolean setQuantity(int quantity) {
+    boolean setQuantity(int quantity) {
         if (quantity <= 0) {
             return false;
         }
@@ -73,13 +111,51 @@ public class CartItem {
         return true;
     }
 
+    /**
+     * Returns the unit price of this item: the fixed price if one was recorded,
+     * otherwise the product's current price.
+     *
+     * @return unit price in cents
+     */
+    public long getUnitPriceCents() {
+        return (unitPriceCents > 0) ? unitPriceCents : product.getPriceCents();
+    }
+
     /**
      * Calculates the total price of this cart item.
      *
+     * @return unit price multiplied by quantity, in cents
+     */
+    public long getTotalPriceCents() {
+        return Money.times(getUnitPriceCents(), quantity);
+    }
+
+    /**
+     * Calculates the total price of this cart item in currency units (for display).
+     *
      * @return product price multiplied by quantity
      */
     public double getTotalPrice() {
-        return product.getPrice() * quantity;
+        return Money.toDouble(getTotalPriceCents());
+    }
+
+    /**
+     * Recomputes the line total that the owning cart counts in its subtotal.
+     *
+     * @return the new line total in cents
+     */
+    long reprice() {
+        pricedTotalCents = getTotalPriceCents();
+        return pricedTotalCents;
+    }
+
+    /**
+     * Returns the line total last counted by the owning cart.
+     *
+     * @return line total in cents as of the last {@link #reprice()}
+     */
+    long getPricedTotalCents() {
+        return pricedTotalCents;
     }
 
     /**
@@ -105,4 +181,14 @@ public class CartItem {
         CartItem other = (CartItem) o;
         return product.equals(other.product);
     }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)} (based on the product).
+     *
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        return product.hashCode();
+    }
 }
@@ -91,16 +91,8 @@ public class Customer extends User {
             return false;
         }
 
-        // Sum how many units of this product already exist in the cart
-        int alreadyInCart = 0;
-        for (CartItem item : cart.getItems()) {
-            if (item == null) continue;
-
-            Product p = item.getProduct();
-            if (p != null && p.equals(product)) {
-                alreadyInCart += item.getQuantity();
-            }
-        }
+        // Units of this product already in the cart (O(1) lookup)
+        int alreadyInCart = cart.getQuantity(product);
 
         // Block if the new total would exceed stock
         if (alreadyInCart + quantity > stock) {
@@ -0,0 +1,204 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.core;
+
+/**
+ * Fixed-point money arithmetic on primitive {@code long} cents.
+ *
+ * <p>
+ * All prices and totals in the store are held as a whole number of cents, so sums are
+ * exact and never allocate. {@code double} amounts appear only at the edges (user input
+ * and on-screen formatting); they are converted with {@link #toCents(double)} and
+ * {@link #toDouble(long)}.
+ * </p>
+ * <p>
+ * {@link #format(long)} and {@link #appendTo(StringBuilder, long)} write amounts as
+ * {@code 12.34} (always a dot, always two decimals, independent of the default locale)
+ * without going through {@code String.format}, and {@link #parse(String)} reads that
+ * format back without a detour through {@code double}.
+ * </p>
+ */
+public final class Money {
+
+    /** Number of cents in one currency unit. */
+    public static final long CENTS_PER_UNIT = 100L;
+
+    /** Largest amount (in currency units) whose cents fit in a {@code long}. */
+    private static final double MAX_AMOUNT = Long.MAX_VALUE / (double) CENTS_PER_UNIT;
+
+    /** Number of basis points in 100 percent. */
+    private static final long BASIS_POINTS = 10_000L;
+
+    private Money() {}
+
+    /**
+     * Converts a decimal amount to cents, rounding to the nearest cent.
+     *
+     * @param amount amount in currency units (e.g., {@code 12.34})
+     * @return amount in cents
+     * @throws IllegalArgumentException if {@code amount} is not finite or too large for cents in a {@code long}
+     */
+    public static long toCents(double amount) {
+        if (!(Math.abs(amount) < MAX_AMOUNT)) {
+            throw new IllegalArgumentException("amount must be finite and below " + MAX_AMOUNT);
+        }
+        return Math.round(amount * CENTS_PER_UNIT);
+    }
+
+    /**
+     * Converts cents to a decimal amount (for display or external APIs only).
+     *
+     * @param cents amount in cents
+     * @return amount in currency units
+     */
+    public static double toDouble(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    /**
+     * Multiplies a unit price by a quantity.
+     *
+     * @param unitCents unit price in cents
+     * @param quantity  quantity
+     * @return total in cents
+     * @throws ArithmeticException if the result overflows a {@code long}
+     */
+    public static long times(long unitCents, int quantity) {
+        return Math.multiplyExact(unitCents, (long) quantity);
+    }
+
+    /**
+     * Reduces an amount by a percentage, rounding half up to the nearest cent.
+     * <p>
+     * The percentage is applied with a precision of 0.01% (one basis point).
+     * </p>
+     *
+     * @param cents   amount in cents (negative amounts are treated as 0)
+     * @param percent percentage to take off, between 0 and 100
+     * @return reduced amount in cents
+     * @throws IllegalArgumentException if {@code percent} is outside [0, 100]
+     */
+    public static long percentOff(long cents, double percent) {
+        if (!(percent >= 0.0 && percent <= 100.0)) {
+            throw new IllegalArgumentException("percent must be between 0 and 100");
+        }
+        if (cents <= 0) {
+            return 0L;
+        }
+
+        long keptBasisPoints = BASIS_POINTS - Math.round(percent * 100.0);
+        return (Math.multiplyExact(cents, keptBasisPoints) + BASIS_POINTS / 2) / BASIS_POINTS;
+    }
+
+    /**
+     * Formats an amount as {@code [-]units.cc}.
+     *
+     * @param cents amount in cents
+     * @return formatted amount (e.g., {@code "12.34"})
+     */
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(24), cents).toString();
+    }
+
+    /**
+     * Appends an amount as {@code [-]units.cc} to a builder.
+     *
+     * @param sb    destination
+     * @param cents amount in cents
+     * @return {@code sb}
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        long units = cents / CENTS_PER_UNIT;
+        long fraction = cents % CENTS_PER_UNIT;
+        if (cents < 0) {
+            sb.append('-');
+            units = -units;
+            fraction = -fraction;
+        }
+
+        sb.append(units).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    /**
+     * Parses an amount such as {@code 12}, {@code 12.3}, {@code 12.34} or {@code -0.5}.
+     * <p>
+     * Extra fraction digits are rounded half up. Other notations accepted by
+     * {@link Double#parseDouble(String)} (e.g., exponents) are converted through
+     * {@link #toCents(double)}.
+     * </p>
+     *
+     * @param text amount text (leading and trailing whitespace is ignored)
+     * @return amount in cents
+     * @throws NumberFormatException if {@code text} is {@code null} or not a number
+     */
+    public static long parse(String text) {
+        if (text == null) {
+            throw new NumberFormatException("null");
+        }
+
+        String s = text.trim();
+        int len = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < len && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        long units = 0;
+        int unitDigits = 0;
+        while (i < len && isDigit(s.charAt(i)) && unitDigits < 16) {
+            units = units * 10 + (s.charAt(i) - '0');
+            unitDigits++;
+            i++;
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        if (i < len && s.charAt(i) == '.') {
+            i++;
+            while (i < len && isDigit(s.charAt(i))) {
+                if (fractionDigits < 2) {
+                    fraction = fraction * 10 + (s.charAt(i) - '0');
+                } else if (fractionDigits == 2) {
+                    roundUp = s.charAt(i) >= '5';
+                }
+                fractionDigits++;
+                i++;
+            }
+        }
+
+        if (i != len || (unitDigits == 0 && fractionDigits == 0)) {
+            // Exponents, very long numbers, etc.
+            double amount = Double.parseDouble(s);
+            if (!(Math.abs(amount) < MAX_AMOUNT)) {
+                throw new NumberFormatException("Amount out of range: " + text);
+            }
+            return toCents(amount);
+        }
+
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+        long cents = units * CENTS_PER_UNIT + fraction + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Checks whether a character is an ASCII digit.
+     *
+     * @param c character
+     * @return true for {@code '0'} to {@code '9'}
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
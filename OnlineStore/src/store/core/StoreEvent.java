@@ -0,0 +1,226 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.core;
+
+import store.discount.DiscountStrategy;
+import store.order.Order;
+import store.products.Product;
+
+/**
+ * Describes a single change of the store model.
+ *
+ * <p>
+ * Events are published by the {@link StoreSubject} and delivered to
+ * {@link StoreEventListener}s that subscribed to their {@link Type}. Unlike
+ * {@link SystemUpdatable#update()}, an event says what changed, so views can apply
+ * the change incrementally instead of rebuilding everything.
+ * </p>
+ */
+public abstract class StoreEvent {
+
+    /**
+     * Kinds of model changes.
+     */
+    public enum Type {
+        PRODUCT_ADDED, PRODUCT_REMOVED, STOCK_CHANGED, ORDER_CREATED, DISCOUNT_CHANGED
+    }
+
+    /** Kind of this event. */
+    private final Type type;
+
+    /**
+     * Constructs an event of the given type.
+     *
+     * @param type event type
+     */
+    protected StoreEvent(Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the kind of this event.
+     *
+     * @return event type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * A product was added to the catalog.
+     */
+    public static final class ProductAdded extends StoreEvent {
+
+        /** The added product. */
+        private final Product product;
+
+        /**
+         * Creates the event.
+         *
+         * @param product the added product
+         */
+        public ProductAdded(Product product) {
+            super(Type.PRODUCT_ADDED);
+            this.product = product;
+        }
+
+        /**
+         * Returns the added product.
+         *
+         * @return the added product
+         */
+        public Product getProduct() {
+            return product;
+        }
+    }
+
+    /**
+     * A product was removed from the catalog.
+     */
+    public static final class ProductRemoved extends StoreEvent {
+
+        /** The removed product. */
+        private final Product product;
+
+        /**
+         * Creates the event.
+         *
+         * @param product the removed product
+         */
+        public ProductRemoved(Product product) {
+            super(Type.PRODUCT_REMOVED);
+            this.product = product;
+        }
+
+        /**
+         * Returns the removed product.
+         *
+         * @return the removed product
+         */
+        public Product getProduct() {
+            return product;
+        }
+    }
+
+    /**
+     * The stock of a product changed.
+     * <p>
+     * Stock is updated lock-free; the values are exactly those of the publisher's own
+     * compare-and-set. Events of concurrent changes may be published out of order, so the
+     * product itself always holds the latest value. When several changes of a product are
+     * delivered together, they are merged into one event from the first old value to the
+     * product's stock at delivery time.
+     * </p>
+     */
+    public static final class StockChanged extends StoreEvent {
+
+        /** The product whose stock changed. */
+        private final Product product;
+
+        /** Stock before the change. */
+        private final int oldStock;
+
+        /** Stock after the change. */
+        private final int newStock;
+
+        /**
+         * Creates the event.
+         *
+         * @param product  the product whose stock changed
+         * @param oldStock stock before the change
+         * @param newStock stock after the change
+         */
+        public StockChanged(Product product, int oldStock, int newStock) {
+            super(Type.STOCK_CHANGED);
+            this.product = product;
+            this.oldStock = oldStock;
+            this.newStock = newStock;
+        }
+
+        /**
+         * Returns the product whose stock changed.
+         *
+         * @return the product whose stock changed
+         */
+        public Product getProduct() {
+            return product;
+        }
+
+        /**
+         * Returns the stock before the change.
+         *
+         * @return stock before the change
+         */
+        public int getOldStock() {
+            return oldStock;
+        }
+
+        /**
+         * Returns the stock after the change.
+         *
+         * @return stock after the change
+         */
+        public int getNewStock() {
+            return newStock;
+        }
+    }
+
+    /**
+     * A new order was created.
+     */
+    public static final class OrderCreated extends StoreEvent {
+
+        /** The created order. */
+        private final Order order;
+
+        /**
+         * Creates the event.
+         *
+         * @param order the created order
+         */
+        public OrderCreated(Order order) {
+            super(Type.ORDER_CREATED);
+            this.order = order;
+        }
+
+        /**
+         * Returns the created order.
+         *
+         * @return the created order
+         */
+        public Order getOrder() {
+            return order;
+        }
+    }
+
+    /**
+     * The store-wide discount strategy changed.
+     */
+    public static final class DiscountChanged extends StoreEvent {
+
+        /** The new discount strategy. */
+        private final DiscountStrategy strategy;
+
+        /**
+         * Creates the event.
+         *
+         * @param strategy the new discount strategy
+         */
+        public DiscountChanged(DiscountStrategy strategy) {
+            super(Type.DISCOUNT_CHANGED);
+            this.strategy = strategy;
+        }
+
+        /**
+         * Returns the new discount strategy.
+         *
+         * @return the new discount strategy
+         */
+        public DiscountStrategy getStrategy() {
+            return strategy;
+        }
+    }
+}
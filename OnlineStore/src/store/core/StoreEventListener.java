@@ -0,0 +1,22 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.core;
+
+import java.util.List;
+
+/**
+ * A component that receives typed {@link StoreEvent}s for the event types it subscribed to.
+ */
+public interface StoreEventListener {
+
+    /**
+     * Receives the events published since the previous delivery, in publication order.
+     * Consecutive stock changes of the same product may be merged into a single event.
+     *
+     * @param events non-empty list of events matching this listener's subscription
+     */
+    void onEvents(List<StoreEvent> events);
+}
@@ -5,12 +5,16 @@
  */
 package store.core;
 
+import java.util.Set;
+
 /**
  * Subject role of the Observer pattern.
  * <p>
  * The store engine acts as a {@code StoreSubject}. UI components (windows/panels)
  * can register as observers and will be notified whenever the store model changes
  * (catalog updates, inventory changes, new orders, etc.).
+ * Components that need to know <i>what</i> changed can instead subscribe to typed
+ * {@link StoreEvent}s as {@link StoreEventListener}s.
  * </p>
  */
 public interface StoreSubject {
@@ -29,8 +33,26 @@ public interface StoreSubject {
      */
     void removeObserver(SystemUpdatable observer);
 
+    /**
+     * Subscribes a listener to typed change events.
+     * Subscribing an already subscribed listener replaces its event types.
+     *
+     * @param listener listener to subscribe (ignored if {@code null})
+     * @param types    event types the listener is interested in (ignored if {@code null} or empty)
+     */
+    void subscribe(StoreEventListener listener, Set<StoreEvent.Type> types);
+
+    /**
+     * Cancels a listener's subscription.
+     *
+     * @param listener listener to unsubscribe (ignored if {@code null})
+     */
+    void unsubscribe(StoreEventListener listener);
+
     /**
      * Notifies all currently registered observers that the model has changed.
+     * Implementations may deliver the notification asynchronously and merge
+     * several requests into a single notification.
      */
     void notifyObservers();
 }
@@ -18,10 +18,10 @@ public interface DiscountStrategy {
     /**
      * Applies the discount to the given subtotal.
      *
-     * @param subtotal the cart subtotal before discount (must be non-negative)
-     * @return the total amount after applying the discount
+     * @param subtotalCents the cart subtotal before discount, in cents (must be non-negative)
+     * @return the total amount after applying the discount, in cents
      */
-    double apply(double subtotal);
+    long apply(long subtotalCents);
 
     /**
      * Returns a display name describing this discount strategy.
@@ -30,13 +30,13 @@ public final class NoDiscount implements DiscountStrategy {
     /**
      * Returns the subtotal without applying any discount.
      *
-     * @param subtotal the cart subtotal before discount
-     * @return the original subtotal, or {@code 0.0} if the subtotal is negative
+     * @param subtotalCents the cart subtotal before discount, in cents
+     * @return the original subtotal, or {@code 0} if the subtotal is negative
      */
     @Override
-    public double apply(double subtotal) {
-        if (subtotal < 0) return 0.0;
-        return subtotal;
+    public long apply(long subtotalCents) {
+        if (subtotalCents < 0) return 0L;
+        return subtotalCents;
     }
 
     /**
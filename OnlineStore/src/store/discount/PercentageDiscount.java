@@ -5,6 +5,8 @@
  */
 package store.discount;
 
+import store.core.Money;
+
 /**
  * A discount strategy that applies a fixed percentage reduction
  * to a cart subtotal.
@@ -39,17 +41,14 @@ public final class PercentageDiscount implements DiscountStrategy {
     }
 
     /**
-     * Applies the percentage discount to the given subtotal.
+     * Applies the percentage discount to the given subtotal, rounding half up to the cent.
      *
-     * @param subtotal the cart subtotal before discount
-     * @return the subtotal after applying the percentage discount
+     * @param subtotalCents the cart subtotal before discount, in cents
+     * @return the subtotal after applying the percentage discount, in cents
      */
     @Override
-    public double apply(double subtotal) {
-        if (subtotal <= 0) return 0.0;
-        double factor = 1.0 - (percent / 100.0);
-        double total = subtotal * factor;
-        return Math.max(0.0, total);
+    public long apply(long subtotalCents) {
+        return Money.percentOff(subtotalCents, percent);
     }
 
     /**
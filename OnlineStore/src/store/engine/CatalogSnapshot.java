@@ -0,0 +1,109 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.engine;
+
+import store.products.Category;
+import store.products.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned view of the catalog's membership.
+ *
+ * <p>
+ * A snapshot is built by the engine whenever products are added to or removed from the
+ * catalog, and published through a volatile reference. Readers obtain the current snapshot
+ * without locking and without copying; the lists it exposes are unmodifiable and never
+ * change after construction.
+ * </p>
+ * <p>
+ * The snapshot fixes <em>which</em> products are in the catalog. The products themselves are
+ * shared with the engine, so their stock always reflects the latest value. Stock changes do
+ * not create a new snapshot or change its version.
+ * </p>
+ */
+public final class CatalogSnapshot {
+
+    /** Snapshot of an empty catalog (version 0). */
+    static final CatalogSnapshot EMPTY = new CatalogSnapshot(0L, Collections.emptyList());
+
+    /** Catalog version; incremented for every published snapshot. */
+    private final long version;
+
+    /** All products, in catalog order (unmodifiable). */
+    private final List<Product> products;
+
+    /** Products per category, in catalog order (unmodifiable lists). */
+    private final Map<Category, List<Product>> productsByCategory;
+
+    /**
+     * Builds a snapshot of the given products.
+     *
+     * @param version  catalog version of this snapshot
+     * @param products products in catalog order (copied)
+     */
+    CatalogSnapshot(long version, Collection<Product> products) {
+        this.version = version;
+        this.products = Collections.unmodifiableList(new ArrayList<>(products));
+
+        Map<Category, List<Product>> perCategory = new EnumMap<>(Category.class);
+        for (Category c : Category.values()) {
+            perCategory.put(c, new ArrayList<>());
+        }
+        for (Product p : this.products) {
+            perCategory.get(p.getCategory()).add(p);
+        }
+        for (Map.Entry<Category, List<Product>> e : perCategory.entrySet()) {
+            e.setValue(Collections.unmodifiableList(e.getValue()));
+        }
+        this.productsByCategory = perCategory;
+    }
+
+    /**
+     * Returns the catalog version of this snapshot.
+     *
+     * @return catalog version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns all products of the snapshot, in catalog order.
+     *
+     * @return unmodifiable list of products
+     */
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    /**
+     * Returns the products of the given category, in catalog order.
+     *
+     * @param category category to filter by
+     * @return unmodifiable list of matching products (empty if {@code category} is {@code null})
+     */
+    public List<Product> getProductsByCategory(Category category) {
+        if (category == null) {
+            return Collections.emptyList();
+        }
+        return productsByCategory.get(category);
+    }
+
+    /**
+     * Returns the number of products in the snapshot.
+     *
+     * @return product count
+     */
+    public int size() {
+        return products.size();
+    }
+}
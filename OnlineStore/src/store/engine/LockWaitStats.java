@@ -0,0 +1,85 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often and how long threads waited to acquire a group of locks.
+ *
+ * <p>
+ * Only contended acquisitions are measured. An uncontended lock is taken with a
+ * non-blocking {@code tryLock} first, so it costs no clock reads. Counters are
+ * {@link LongAdder}s, so recording never becomes a point of contention itself.
+ * </p>
+ */
+public final class LockWaitStats {
+
+    /** Name of the lock group (for reports). */
+    private final String name;
+
+    /** Number of acquisitions that had to wait. */
+    private final LongAdder contended;
+
+    /** Total time spent waiting, in nanoseconds. */
+    private final LongAdder waitNanos;
+
+    /**
+     * Creates empty statistics.
+     *
+     * @param name name of the lock group
+     */
+    LockWaitStats(String name) {
+        this.name = name;
+        this.contended = new LongAdder();
+        this.waitNanos = new LongAdder();
+    }
+
+    /**
+     * Records one contended acquisition.
+     *
+     * @param nanos time spent waiting
+     */
+    void recordWait(long nanos) {
+        contended.increment();
+        waitNanos.add(nanos);
+    }
+
+    /**
+     * Returns the name of the lock group.
+     *
+     * @return lock group name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of acquisitions that had to wait.
+     *
+     * @return contended acquisition count
+     */
+    public long getContendedAcquisitions() {
+        return contended.sum();
+    }
+
+    /**
+     * Returns the total time threads spent waiting for these locks.
+     *
+     * @return total wait time in nanoseconds
+     */
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    /**
+     * Clears the counters (e.g., after a warm-up phase).
+     */
+    public void reset() {
+        contended.reset();
+        waitNanos.reset();
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.engine;
+
+import store.core.StoreEvent;
+import store.core.StoreEventListener;
+import store.core.SystemUpdatable;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers observer notifications and typed change events on a dedicated background thread.
+ *
+ * <p>
+ * Mutating calls only enqueue an event (or raise a "dirty" flag) and return immediately.
+ * The dispatcher thread waits one tick after the first request so that a burst of changes
+ * (a bulk catalog import, a run of stock changes, ...) is coalesced, then:
+ * </p>
+ * <ul>
+ *   <li>calls {@link SystemUpdatable#update()} once per observer, and</li>
+ *   <li>passes each {@link StoreEventListener} the tick's events of the types it subscribed to,
+ *       with the stock changes of the same product merged into one event.</li>
+ * </ul>
+ * <p>
+ * Requests raised while a tick is being delivered trigger another round.
+ * </p>
+ */
+final class ObserverDispatcher {
+
+    /** Observers to notify (shared with the engine; safe to iterate concurrently). */
+    private final List<SystemUpdatable> observers;
+
+    /** Typed event subscriptions. */
+    private final CopyOnWriteArrayList<Subscription> subscriptions;
+
+    /** Events published since the last tick. */
+    private final ConcurrentLinkedQueue<StoreEvent> queue;
+
+    /** Coalescing window, in milliseconds. */
+    private final long tickMillis;
+
+    /** Set when a notification has been requested but not yet delivered. */
+    private final AtomicBoolean pending;
+
+    /** The dispatcher thread. */
+    private final Thread thread;
+
+    /**
+     * Creates and starts a dispatcher.
+     *
+     * @param observers  observers to notify (must support concurrent iteration)
+     * @param tickMillis coalescing window in milliseconds (must not be negative)
+     * @param threadName name of the dispatcher thread
+     */
+    ObserverDispatcher(List<SystemUpdatable> observers, long tickMillis, String threadName) {
+        if (tickMillis < 0) {
+            throw new IllegalArgumentException("tickMillis must be >= 0");
+        }
+
+        this.observers = observers;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.tickMillis = tickMillis;
+        this.pending = new AtomicBoolean(false);
+
+        this.thread = new Thread(this::runLoop, threadName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Subscribes a listener, replacing any previous subscription of the same listener.
+     *
+     * @param listener listener to subscribe
+     * @param types    event types to deliver (must not be empty)
+     */
+    void subscribe(StoreEventListener listener, Set<StoreEvent.Type> types) {
+        unsubscribe(listener);
+        subscriptions.add(new Subscription(listener, EnumSet.copyOf(types)));
+    }
+
+    /**
+     * Removes a listener's subscription, if any.
+     *
+     * @param listener listener to unsubscribe
+     */
+    void unsubscribe(StoreEventListener listener) {
+        subscriptions.removeIf(s -> s.listener == listener);
+    }
+
+    /**
+     * Enqueues a typed event for the next tick. Never blocks.
+     *
+     * @param event event to publish
+     */
+    void publish(StoreEvent event) {
+        queue.add(event);
+        requestDispatch();
+    }
+
+    /**
+     * Requests that all observers be notified on the next tick.
+     * Never blocks; repeated requests before the tick are merged into one notification.
+     */
+    void requestDispatch() {
+        if (pending.compareAndSet(false, true)) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Dispatcher thread body: waits for a request, lingers one tick, then delivers.
+     */
+    private void runLoop() {
+        while (true) {
+            while (!pending.get()) {
+                LockSupport.park(this);
+            }
+
+            if (tickMillis > 0) {
+                try {
+                    Thread.sleep(tickMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            pending.set(false);
+            List<StoreEvent> batch = drainCoalesced();
+
+            for (SystemUpdatable o : observers) {
+                if (o == null) continue;
+                try {
+                    o.update();
+                } catch (RuntimeException ex) {
+                    System.err.println("Observer update failed: " + ex.getMessage());
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                deliver(batch);
+            }
+        }
+    }
+
+    /**
+     * Drains the queued events, merging stock changes of the same product into one event
+     * at the first event's position. A merged event goes from the first event's old stock
+     * to the product's stock at drain time (concurrent publishers may enqueue their changes
+     * out of order, so the last queued event does not necessarily hold the latest stock).
+     *
+     * @return the tick's events in publication order
+     */
+    private List<StoreEvent> drainCoalesced() {
+        List<StoreEvent> batch = new ArrayList<>();
+        Map<Object, Integer> stockEventIndex = new IdentityHashMap<>();
+        Set<Integer> merged = new HashSet<>();
+
+        StoreEvent e;
+        while ((e = queue.poll()) != null) {
+            if (e instanceof StoreEvent.StockChanged) {
+                StoreEvent.StockChanged sc = (StoreEvent.StockChanged) e;
+                Integer index = stockEventIndex.get(sc.getProduct());
+                if (index != null) {
+                    merged.add(index);
+                    continue;
+                }
+                stockEventIndex.put(sc.getProduct(), batch.size());
+            } else if (e.getType() == StoreEvent.Type.PRODUCT_REMOVED
+                    || e.getType() == StoreEvent.Type.PRODUCT_ADDED) {
+                // Do not merge stock changes across a catalog change of the same product.
+                stockEventIndex.clear();
+            }
+            batch.add(e);
+        }
+
+        for (int index : merged) {
+            StoreEvent.StockChanged first = (StoreEvent.StockChanged) batch.get(index);
+            batch.set(index, new StoreEvent.StockChanged(
+                    first.getProduct(), first.getOldStock(), first.getProduct().getStock()));
+        }
+        return batch;
+    }
+
+    /**
+     * Delivers a tick's events to every subscription, filtered by event type.
+     *
+     * @param batch the tick's events
+     */
+    private void deliver(List<StoreEvent> batch) {
+        for (Subscription s : subscriptions) {
+            List<StoreEvent> matching = new ArrayList<>();
+            for (StoreEvent e : batch) {
+                if (s.types.contains(e.getType())) {
+                    matching.add(e);
+                }
+            }
+            if (matching.isEmpty()) continue;
+
+            try {
+                s.listener.onEvents(matching);
+            } catch (RuntimeException ex) {
+                System.err.println("Event listener failed: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A listener together with the event types it subscribed to.
+     */
+    private static final class Subscription {
+        private final StoreEventListener listener;
+        private final Set<StoreEvent.Type> types;
+
+        private Subscription(StoreEventListener listener, Set<StoreEvent.Type> types) {
+            this.listener = listener;
+            this.types = types;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Generates unique, monotonically increasing order IDs.
+ *
+ * <p>
+ * IDs are handed out lock-free from an atomic counter. The generator reserves IDs in
+ * blocks: before the first ID of a new block is issued, the block's upper bound
+ * (the high-water mark) is passed to a persister. After a restart the generator
+ * continues above the last persisted high-water mark, so it never reuses an ID and
+ * does not need to scan the order history to find the largest one. IDs left unused in
+ * the last block before a restart are skipped.
+ * </p>
+ */
+public final class OrderIdGenerator {
+
+    /** The last ID handed out. */
+    private final AtomicLong lastIssued;
+
+    /** Highest ID covered by the persisted high-water mark. */
+    private volatile long reservedUpTo;
+
+    /** Number of IDs reserved per persisted block. */
+    private final int blockSize;
+
+    /** Receives each new high-water mark before IDs from its block are issued. */
+    private final LongConsumer persister;
+
+    /**
+     * Serializes block reservations (taken once per block, never on the fast path).
+     * An explicit lock, so a virtual thread persisting the high-water mark is not pinned.
+     */
+    private final ReentrantLock reserveLock = new ReentrantLock();
+
+    /**
+     * Creates a generator continuing after the given high-water mark.
+     *
+     * @param highWaterMark last persisted high-water mark (0 if none)
+     * @param blockSize     number of IDs reserved per block (must be positive)
+     * @param persister     called with each new high-water mark (must not be {@code null})
+     * @throws IllegalArgumentException if {@code highWaterMark} is negative, {@code blockSize}
+     *                                  is not positive or {@code persister} is {@code null}
+     */
+    public OrderIdGenerator(long highWaterMark, int blockSize, LongConsumer persister) {
+        if (highWaterMark < 0) {
+            throw new IllegalArgumentException("highWaterMark must be >= 0");
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be > 0");
+        }
+        if (persister == null) {
+            throw new IllegalArgumentException("persister cannot be null");
+        }
+
+        this.lastIssued = new AtomicLong(highWaterMark);
+        this.reservedUpTo = highWaterMark;
+        this.blockSize = blockSize;
+        this.persister = persister;
+    }
+
+    /**
+     * Returns the next order ID.
+     *
+     * @return a new unique order ID (always &gt; 0)
+     */
+    public long nextId() {
+        long id = lastIssued.incrementAndGet();
+        if (id > reservedUpTo) {
+            reserveThrough(id);
+        }
+        return id;
+    }
+
+    /**
+     * Records an ID that is already in use (e.g., loaded from history), so that
+     * subsequently generated IDs are greater than it.
+     *
+     * @param usedId an existing order ID
+     */
+    public void observe(long usedId) {
+        lastIssued.accumulateAndGet(usedId, Math::max);
+    }
+
+    /**
+     * Returns the last ID handed out (or observed).
+     *
+     * @return last issued ID (0 if none)
+     */
+    public long getLastIssued() {
+        return lastIssued.get();
+    }
+
+    /**
+     * Persists a new high-water mark covering the given ID.
+     *
+     * @param id an ID that is about to be issued
+     */
+    private void reserveThrough(long id) {
+        reserveLock.lock();
+        try {
+            if (id <= reservedUpTo) {
+                return;
+            }
+            long newMark = Math.max(id, lastIssued.get()) + blockSize - 1;
+            persister.accept(newMark);
+            reservedUpTo = newMark;
+        } finally {
+            reserveLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.engine;
+
+import store.products.Product;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A timed reservation of stock for a cart line.
+ *
+ * <p>
+ * A hold is created by {@link StoreEngine#placeHold(Product, int)}, which takes the quantity
+ * from the product's stock immediately. The hold then ends exactly once, in one of three ways:
+ * </p>
+ * <ul>
+ *   <li><b>converted</b> at checkout: the stock stays taken and becomes part of the order;</li>
+ *   <li><b>released</b> when the item leaves the cart: the stock is returned;</li>
+ *   <li><b>expired</b> when its time-to-live passes: the stock is returned automatically.</li>
+ * </ul>
+ * <p>
+ * The transition out of {@link State#ACTIVE} is a compare-and-set, so a hold that expires
+ * while its cart is being checked out is either converted or returned, never both.
+ * A converted hold can be reinstated if its checkout fails (see
+ * {@link StoreEngine#reinstateHold(StockHold)}); it then stays active until its original deadline.
+ * </p>
+ */
+public final class StockHold {
+
+    /**
+     * Lifecycle states of a hold.
+     */
+    public enum State {
+        ACTIVE, CONVERTED, RELEASED, EXPIRED
+    }
+
+    /** Product whose stock is held. */
+    private final Product product;
+
+    /** Held quantity. */
+    private final int quantity;
+
+    /** Current state. */
+    private final AtomicReference<State> state;
+
+    /** Expiry timer (set right after the hold is scheduled). */
+    private volatile TimingWheel.Timeout expiry;
+
+    /** {@link System#nanoTime()} at which the hold expires. */
+    private volatile long deadlineNanos;
+
+    /**
+     * Creates an active hold. Stock must already have been taken by the caller.
+     *
+     * @param product  product whose stock is held
+     * @param quantity held quantity
+     */
+    StockHold(Product product, int quantity) {
+        this.product = product;
+        this.quantity = quantity;
+        this.state = new AtomicReference<>(State.ACTIVE);
+    }
+
+    /**
+     * Returns the product whose stock is held.
+     *
+     * @return held product
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * Returns the held quantity.
+     *
+     * @return held quantity
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Returns the current state of the hold.
+     *
+     * @return hold state
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Indicates whether the hold still reserves stock.
+     *
+     * @return true if the hold is active
+     */
+    public boolean isActive() {
+        return state.get() == State.ACTIVE;
+    }
+
+    /**
+     * Attaches the expiry timer.
+     *
+     * @param expiry        timer that expires this hold
+     * @param deadlineNanos {@link System#nanoTime()} at which the timer fires
+     */
+    void setExpiry(TimingWheel.Timeout expiry, long deadlineNanos) {
+        this.expiry = expiry;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Returns the time at which the hold expires.
+     *
+     * @return deadline as a {@link System#nanoTime()} value
+     */
+    long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * Makes a converted hold active again.
+     *
+     * @return true if the hold was converted and is now active; false otherwise
+     */
+    boolean reactivate() {
+        return state.compareAndSet(State.CONVERTED, State.ACTIVE);
+    }
+
+    /**
+     * Ends an active hold.
+     *
+     * @param end the final state (not {@link State#ACTIVE})
+     * @return true if this call ended the hold; false if it had already ended
+     */
+    boolean end(State end) {
+        if (!state.compareAndSet(State.ACTIVE, end)) {
+            return false;
+        }
+
+        TimingWheel.Timeout t = expiry;
+        if (t != null && end != State.EXPIRED) {
+            t.cancel();
+        }
+        return true;
+    }
+}
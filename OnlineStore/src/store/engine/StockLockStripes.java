@@ -0,0 +1,139 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.engine;
+
+import store.products.Product;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks that make multi-line stock commits all-or-nothing, striped by product identity.
+ *
+ * <p>
+ * Single stock changes are lock-free compare-and-set operations on the product. Only
+ * {@link StoreEngine#commitStock(java.util.List)} takes stripes: it holds the stripes of all
+ * products of a checkout, so no other commit can take the stock of one line while this commit
+ * is between its lines. Stripes are acquired in ascending stripe order, which makes lock
+ * acquisition deterministic and therefore deadlock-free. Commits whose carts map to disjoint
+ * stripes proceed in parallel.
+ * </p>
+ */
+public final class StockLockStripes {
+
+    /** The lock stripes (length is a power of two). */
+    private final ReentrantLock[] stripes;
+
+    /** Mask used to map a hash onto a stripe index. */
+    private final int mask;
+
+    /** Wait statistics of contended stripe acquisitions. */
+    private final LockWaitStats waits;
+
+    /**
+     * Creates a new stripe set.
+     *
+     * @param stripeCount requested number of stripes (rounded up to a power of two)
+     * @throws IllegalArgumentException if {@code stripeCount} is not positive
+     */
+    public StockLockStripes(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("stripeCount must be > 0");
+        }
+
+        int size = Integer.highestOneBit(stripeCount);
+        if (size < stripeCount) {
+            size <<= 1;
+        }
+
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.waits = new LockWaitStats("stock stripes");
+    }
+
+    /**
+     * Returns the wait statistics of contended stripe acquisitions.
+     *
+     * @return lock wait statistics
+     */
+    public LockWaitStats getWaitStats() {
+        return waits;
+    }
+
+    /**
+     * Returns the stripe index guarding the given product.
+     *
+     * @param product product (must not be {@code null})
+     * @return stripe index
+     */
+    int stripeOf(Product product) {
+        int h = System.identityHashCode(product);
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h & mask;
+    }
+
+    /**
+     * Acquires the stripes of all given products in ascending stripe order.
+     * Each distinct stripe is locked exactly once.
+     *
+     * @param products products whose stock is about to change ({@code null} entries are ignored)
+     * @return the acquired stripe indices, to be passed to {@link #unlockAll(int[])}
+     */
+    public int[] lockAll(Collection<Product> products) {
+        int[] indices = new int[products.size()];
+        int n = 0;
+        for (Product p : products) {
+            if (p == null) continue;
+            indices[n++] = stripeOf(p);
+        }
+
+        Arrays.sort(indices, 0, n);
+
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || indices[distinct - 1] != indices[i]) {
+                indices[distinct++] = indices[i];
+            }
+        }
+
+        int[] acquired = Arrays.copyOf(indices, distinct);
+        for (int index : acquired) {
+            acquire(stripes[index]);
+        }
+        return acquired;
+    }
+
+    /**
+     * Acquires a stripe, recording the wait time if it is contended.
+     *
+     * @param stripe stripe to lock
+     */
+    private void acquire(ReentrantLock stripe) {
+        if (stripe.tryLock()) {
+            return;
+        }
+        long start = System.nanoTime();
+        stripe.lock();
+        waits.recordWait(System.nanoTime() - start);
+    }
+
+    /**
+     * Releases stripes acquired by {@link #lockAll(Collection)}, in reverse order.
+     *
+     * @param indices acquired stripe indices
+     */
+    public void unlockAll(int[] indices) {
+        for (int i = indices.length - 1; i >= 0; i--) {
+            stripes[indices[i]].unlock();
+        }
+    }
+}
@@ -6,17 +6,38 @@
 package store.engine;
 
 import store.cart.Cart;
+import store.cart.CartItem;
 import store.core.Customer;
+import store.core.StoreEvent;
+import store.core.StoreEventListener;
 import store.core.StoreSubject;
 import store.core.SystemUpdatable;
 import store.discount.DiscountStrategy;
 import store.discount.NoDiscount;
+import store.io.OrderIdStore;
 import store.order.Order;
+import store.products.Category;
 import store.products.Product;
+import store.products.ProductFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Central engine of the store system.
@@ -25,8 +46,23 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * </p>
  * <ul>
  *   <li>Holds shared application state (catalog, customers, orders).</li>
+ *   <li>Publishes the catalog as an immutable, versioned {@link CatalogSnapshot}, rebuilt only
+ *       when products are added or removed, so readers never lock or copy it.</li>
  *   <li>Acts as a thread-safe {@link store.core.StoreSubject} (Observer pattern):
- *       notifies registered UI observers when the model changes.</li>
+ *       notifies registered UI observers when the model changes, asynchronously
+ *       and coalesced per tick, and publishes typed {@link StoreEvent}s to subscribed
+ *       {@link StoreEventListener}s.</li>
+ *   <li>Guards its mutable indexes (catalog name index, orders, discount strategy) with a
+ *       {@link StampedLock}: writers take the write lock, order reads share the read lock, and
+ *       the discount strategy is read optimistically, so price and discount reads do not block
+ *       each other and only retry if a writer intervened. Callers never need to lock the engine.</li>
+ *   <li>Commits multi-product stock changes under striped locks ({@link StockLockStripes})
+ *       so that checkouts over disjoint products do not serialize on a single monitor;
+ *       single stock changes are lock-free compare-and-set operations on the product.</li>
+ *   <li>Reserves stock for cart lines with timed {@link StockHold}s; expirations are tracked
+ *       in a hashed {@link TimingWheel}, so each expiry costs O(1).</li>
+ *   <li>Provides a checkpoint barrier ({@link #checkpoint(Supplier)}) so that persistent
+ *       snapshots see the in-memory orders and the order history file in agreement.</li>
  *   <li>Implemented as a Singleton (Double-Checked Locking) to provide a single
  *       shared instance across the application.</li>
  * </ul>
@@ -39,33 +75,120 @@ public class StoreEngine implements StoreSubject {
     /** Singleton instance. */
     private static volatile StoreEngine instance;
 
-    /** All products in the store. */
-    private final List<Product> products;
+    /**
+     * All products in the store, keyed by normalized (lower-case) name.
+     * Insertion order is preserved so the catalog is listed in the order products were added.
+     */
+    private final Map<String, Product> products;
+
+    /**
+     * Catalog products indexed by product ID ({@code null} for unused slots).
+     * Product IDs are small and dense, so resolving an ID is a single array access.
+     * Grown and updated together with {@link #products} under the write lock.
+     */
+    private Product[] productsById;
+
+    /** Current catalog snapshot; replaced (never modified) when catalog membership changes. */
+    private volatile CatalogSnapshot catalog;
+
+    /** Incremented after every stock change applied through the engine. */
+    private final AtomicLong stockVersion;
+
+    /** Last computed list of available products, reused while catalog and stock are unchanged. */
+    private volatile AvailableProducts availableCache;
 
     /** All orders created/loaded in the system. */
     private final List<Order> allOrders;
 
-    /** Registered customers (optional, used for simple username-based separation). */
-    private final List<Customer> customers;
+    /** Secondary index: orders per customer, keyed by normalized username, in creation order. */
+    private final Map<String, List<Order>> ordersByCustomer;
+
+    /** Secondary index: orders by order ID. */
+    private final Map<Long, Order> ordersById;
+
+    /**
+     * Registered customers keyed by normalized username
+     * (optional, used for simple username-based separation).
+     */
+    private final ConcurrentHashMap<String, Customer> customers;
+
+    /** Number of lock stripes guarding product stock. */
+    private static final int STOCK_LOCK_STRIPES = 64;
+
+    /** Striped locks held while product stock is modified. */
+    private final StockLockStripes stockLocks;
+
+    /** Default time-to-live of a stock hold, in milliseconds. */
+    public static final long DEFAULT_HOLD_TTL_MILLIS = 15 * 60 * 1000L;
+
+    /** Tick length of the hold expiry wheel, in milliseconds. */
+    private static final long HOLD_TICK_MILLIS = 100L;
+
+    /** Number of buckets of the hold expiry wheel. */
+    private static final int HOLD_WHEEL_BUCKETS = 512;
+
+    /** Expires stock holds. */
+    private final TimingWheel holdTimer;
+
+    /** Holds that have been placed and not yet released, converted or expired. */
+    private final Set<StockHold> activeHolds;
 
     /** Observers interested in model changes (Observer pattern). */
     private final CopyOnWriteArrayList<SystemUpdatable> observers;
 
-    /** Order ID generator (monotonically increases). */
-    private static int nextOrderId = 0;
+    /** Coalescing window for observer notifications, in milliseconds. */
+    private static final long OBSERVER_TICK_MILLIS = 50L;
+
+    /** Delivers observer notifications asynchronously on its own thread. */
+    private final ObserverDispatcher dispatcher;
+
+    /** Number of order IDs reserved per persisted high-water mark block. */
+    private static final int ORDER_ID_BLOCK_SIZE = 1000;
 
-    /** Current store-wide discount strategy (Strategy pattern). */
-    private volatile DiscountStrategy discountStrategy;
+    /** Order ID generator (lock-free, monotonically increasing). */
+    private final OrderIdGenerator orderIds;
+
+    /** Current store-wide discount strategy (Strategy pattern); guarded by {@link #stateLock}. */
+    private DiscountStrategy discountStrategy;
+
+    /**
+     * Read/write lock guarding the catalog name index, the order indexes and the discount strategy.
+     * It is never held while calling out of the engine or while acquiring another engine lock.
+     */
+    private final StampedLock stateLock;
+
+    /** Wait statistics of contended {@link #stateLock} acquisitions. */
+    private final LockWaitStats stateLockWaits;
+
+    /**
+     * Checkpoint barrier: order creation holds the read lock from its write-ahead step until
+     * the order is indexed, and {@link #checkpoint(Supplier)} holds the write lock.
+     */
+    private final ReentrantReadWriteLock checkpointLock;
 
     /**
      * Private constructor (Singleton).
      */
     private StoreEngine() {
-        this.products = new ArrayList<>();
+        this.products = new LinkedHashMap<>();
+        this.productsById = new Product[64];
+        this.catalog = CatalogSnapshot.EMPTY;
+        this.stockVersion = new AtomicLong();
         this.allOrders = new ArrayList<>();
-        this.customers = new ArrayList<>();
+        this.ordersByCustomer = new HashMap<>();
+        this.ordersById = new HashMap<>();
+        this.customers = new ConcurrentHashMap<>();
         this.observers = new CopyOnWriteArrayList<>();
+        this.dispatcher = new ObserverDispatcher(observers, OBSERVER_TICK_MILLIS, "store-observer-dispatcher");
+        this.stockLocks = new StockLockStripes(STOCK_LOCK_STRIPES);
+        this.holdTimer = new TimingWheel(HOLD_TICK_MILLIS, HOLD_WHEEL_BUCKETS, "store-hold-timer");
+        this.activeHolds = ConcurrentHashMap.newKeySet();
+        this.orderIds = new OrderIdGenerator(
+                OrderIdStore.loadHighWaterMark(), ORDER_ID_BLOCK_SIZE, OrderIdStore::saveHighWaterMark);
         this.discountStrategy = NoDiscount.INSTANCE;
+        this.stateLock = new StampedLock();
+        this.stateLockWaits = new LockWaitStats("engine state");
+        this.checkpointLock = new ReentrantReadWriteLock();
     }
 
     /**
@@ -91,11 +214,26 @@ public class StoreEngine implements StoreSubject {
 
     /**
      * Returns the currently active discount strategy.
+     * <p>
+     * Uses an optimistic read; the read lock is taken only if a writer changed the
+     * strategy concurrently.
+     * </p>
      *
      * @return the current {@link DiscountStrategy}, or {@code null} if none is set
      */
     public DiscountStrategy getDiscountStrategy() {
-        return discountStrategy;
+        long stamp = stateLock.tryOptimisticRead();
+        DiscountStrategy s = discountStrategy;
+        if (stateLock.validate(stamp)) {
+            return s;
+        }
+
+        stamp = readLockState();
+        try {
+            return discountStrategy;
+        } finally {
+            stateLock.unlockRead(stamp);
+        }
     }
 
     /**
@@ -108,8 +246,13 @@ public class StoreEngine implements StoreSubject {
         if (strategy == null) {
             throw new IllegalArgumentException("strategy cannot be null");
         }
-        this.discountStrategy = strategy;
-        notifyObservers();
+        long stamp = writeLockState();
+        try {
+            this.discountStrategy = strategy;
+        } finally {
+            stateLock.unlockWrite(stamp);
+        }
+        dispatcher.publish(new StoreEvent.DiscountChanged(strategy));
     }
 
     /**
@@ -120,15 +263,45 @@ public class StoreEngine implements StoreSubject {
      * </p>
      *
      * @param cart the shopping cart to calculate the total for
-     * @return the total amount after applying the discount
+     * @return the total amount after applying the discount, in cents
      */
-    public double calculateTotalAfterDiscount(Cart cart) {
-        if (cart == null) return 0.0;
-        double subtotal = cart.calculateTotal();
-        DiscountStrategy s = discountStrategy;
+    public long calculateTotalAfterDiscountCents(Cart cart) {
+        if (cart == null) return 0L;
+        long subtotal = cart.calculateTotalCents();
+        DiscountStrategy s = getDiscountStrategy();
         return (s == null) ? subtotal : s.apply(subtotal);
     }
 
+    /**
+     * Calculates the total of order lines after applying the active discount strategy.
+     * Each line is priced at its own unit price (see {@link CartItem#getUnitPriceCents()}),
+     * so the total of an order matches the prices stored in its lines.
+     *
+     * @param lines order lines (must not be {@code null})
+     * @return the total amount after applying the discount, in cents
+     */
+    private long calculateTotalAfterDiscountCents(List<CartItem> lines) {
+        long subtotal = 0L;
+        for (CartItem line : lines) {
+            subtotal += line.getTotalPriceCents();
+        }
+        DiscountStrategy s = getDiscountStrategy();
+        return (s == null) ? subtotal : s.apply(subtotal);
+    }
+
+    /**
+     * Calculates a product's unit price after applying the active discount strategy.
+     *
+     * @param product the product to price
+     * @return the discounted price in cents, or {@code 0} if {@code product} is {@code null}
+     */
+    public long getPriceAfterDiscountCents(Product product) {
+        if (product == null) return 0L;
+        long base = product.getPriceCents();
+        DiscountStrategy s = getDiscountStrategy();
+        return (s == null) ? base : s.apply(base);
+    }
+
     // ---------------------------------------------------------------------
     // Product management
     // ---------------------------------------------------------------------
@@ -147,12 +320,19 @@ public class StoreEngine implements StoreSubject {
             return;
         }
 
-        addProductInternal(product);
-        notifyObservers();
+        long stamp = writeLockState();
+        try {
+            if (addProductInternal(product)) {
+                publishCatalog();
+            }
+        } finally {
+            stateLock.unlockWrite(stamp);
+        }
     }
 
     /**
-     * Adds multiple products to the catalog and notifies observers once.
+     * Adds multiple products to the catalog; observers are notified once for the whole batch
+     * and a single new catalog snapshot is published.
      *
      * @param newProducts products to add (ignored if {@code null} or empty)
      */
@@ -161,36 +341,106 @@ public class StoreEngine implements StoreSubject {
             return;
         }
 
-        for (Product p : newProducts) {
-            if (p == null) continue;
-            addProductInternal(p);
+        // Each product is resolved through the name index, so a bulk import runs in linear time.
+        long stamp = writeLockState();
+        try {
+            boolean added = false;
+            for (Product p : newProducts) {
+                if (p == null) continue;
+                added |= addProductInternal(p);
+            }
+            if (added) {
+                publishCatalog();
+            }
+        } finally {
+            stateLock.unlockWrite(stamp);
         }
+    }
 
-        notifyObservers();
+    /**
+     * Returns the current catalog snapshot. Never blocks and never copies.
+     *
+     * @return current immutable catalog snapshot
+     */
+    public CatalogSnapshot getCatalogSnapshot() {
+        return catalog;
+    }
+
+    /**
+     * Returns the current catalog version. The version changes whenever products are
+     * added to or removed from the catalog (not on stock changes).
+     *
+     * @return current catalog version
+     */
+    public long getCatalogVersion() {
+        return catalog.getVersion();
+    }
+
+    /**
+     * Indicates whether catalog membership changed since the given version was observed.
+     *
+     * @param version a version previously returned by {@link #getCatalogVersion()}
+     * @return true if the catalog has a different version now; false otherwise
+     */
+    public boolean hasCatalogChangedSince(long version) {
+        return catalog.getVersion() != version;
+    }
+
+    /**
+     * Returns a counter that changes after every stock change applied through the engine.
+     *
+     * @return current stock version
+     */
+    public long getStockVersion() {
+        return stockVersion.get();
     }
 
     /**
      * Returns products that are currently in stock.
+     * <p>
+     * The list is computed from the current snapshot and reused until the catalog or the
+     * stock of any product changes (through this engine).
+     * </p>
      *
-     * @return list of products with stock &gt; 0
+     * @return unmodifiable list of products with stock &gt; 0
      */
     public List<Product> getAvailableProducts() {
+        CatalogSnapshot snapshot = catalog;
+        long stock = stockVersion.get();
+
+        AvailableProducts cached = availableCache;
+        if (cached != null && cached.snapshot == snapshot && cached.stockVersion == stock) {
+            return cached.products;
+        }
+
         List<Product> available = new ArrayList<>();
-        for (Product p : products) {
-            if (p != null && p.getStock() > 0) {
+        for (Product p : snapshot.getProducts()) {
+            if (p.getStock() > 0) {
                 available.add(p);
             }
         }
-        return available;
+        List<Product> result = Collections.unmodifiableList(available);
+        availableCache = new AvailableProducts(snapshot, stock, result);
+        return result;
     }
 
     /**
-     * Returns a defensive copy of all products in the catalog (including out-of-stock products).
+     * Returns all products in the catalog (including out-of-stock products).
      *
-     * @return copy of products list
+     * @return unmodifiable list of products from the current snapshot
      */
     public List<Product> getAllProducts() {
-        return new ArrayList<>(products);
+        return catalog.getProducts();
+    }
+
+    /**
+     * Returns all products of the given category, in catalog order.
+     *
+     * @param category category to filter by
+     * @return unmodifiable list of matching products (empty if {@code category} is {@code null})
+     */
+    public List<Product> getProductsByCategory(Category category) {
+        return catalog.getProductsByCategory(category);
     }
 
     /**
@@ -204,11 +454,27 @@ public class StoreEngine implements StoreSubject {
             return false;
         }
 
-        boolean removed = products.remove(product);
-        if (removed) {
-            notifyObservers();
+        String key = nameKey(product.getName());
+        Product existing;
+        long stamp = writeLockState();
+        try {
+            existing = products.get(key);
+            if (existing == null || !existing.equals(product)) {
+                return false;
+            }
+
+            products.remove(key);
+            int id = existing.getId();
+            if (id > 0 && id < productsById.length && productsById[id] == existing) {
+                productsById[id] = null;
+            }
+            publishCatalog();
+        } finally {
+            stateLock.unlockWrite(stamp);
         }
-        return removed;
+
+        dispatcher.publish(new StoreEvent.ProductRemoved(existing));
+        return true;
     }
 
     /**
@@ -223,8 +489,11 @@ public class StoreEngine implements StoreSubject {
             return false;
         }
 
-        product.increaseStock(amount);
-        notifyObservers();
+        int previous = product.getAndIncreaseStock(amount);
+        if (previous < 0) {
+            return false;
+        }
+        publishStockChange(product, previous, amount);
         return true;
     }
 
@@ -240,11 +509,282 @@ public class StoreEngine implements StoreSubject {
             return false;
         }
 
-        boolean ok = product.decreaseStock(amount);
-        if (ok) {
-            notifyObservers();
+        int previous = product.getAndReserve(amount);
+        if (previous < 0) {
+            return false;
+        }
+        publishStockChange(product, previous, -amount);
+        return true;
+    }
+
+    /**
+     * Atomically decreases stock for every line of a cart (all-or-nothing).
+     * <p>
+     * Individual stock changes are lock-free ({@link Product#tryReserve(int)}); the stock
+     * stripes of all involved products are additionally acquired in a deterministic order so
+     * that overlapping multi-line commits do not interleave, while commits over disjoint
+     * products proceed in parallel. If any line cannot be fulfilled, every decrement already
+     * applied is rolled back.
+     * A {@link StoreEvent.StockChanged} event is published for every line on success.
+     * </p>
+     *
+     * @param items cart lines to commit
+     * @return true if stock was decreased for all lines; false otherwise (no stock changed)
+     */
+    public boolean commitStock(List<CartItem> items) {
+        if (items == null || items.isEmpty()) {
+            return false;
+        }
+
+        List<Product> involved = new ArrayList<>(items.size());
+        for (CartItem item : items) {
+            if (item == null || item.getProduct() == null || item.getQuantity() <= 0) {
+                return false;
+            }
+            involved.add(item.getProduct());
+        }
+
+        int[] previous = new int[items.size()];
+        int[] held = stockLocks.lockAll(involved);
+        try {
+            for (CartItem item : items) {
+                if (item.getProduct().getStock() < item.getQuantity()) {
+                    return false;
+                }
+            }
+
+            for (int i = 0; i < items.size(); i++) {
+                CartItem item = items.get(i);
+                previous[i] = item.getProduct().getAndReserve(item.getQuantity());
+                if (previous[i] < 0) {
+                    for (int j = 0; j < i; j++) {
+                        items.get(j).getProduct().increaseStock(items.get(j).getQuantity());
+                    }
+                    stockVersion.incrementAndGet();
+                    return false;
+                }
+            }
+        } finally {
+            stockLocks.unlockAll(held);
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            publishStockChange(items.get(i).getProduct(), previous[i], -items.get(i).getQuantity());
+        }
+        return true;
+    }
+
+    /**
+     * Returns stock previously taken by {@link #commitStock(List)}.
+     * Used when a checkout fails after its stock was committed.
+     *
+     * @param items cart lines whose quantities should be returned to stock
+     */
+    public void restoreStock(List<CartItem> items) {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+
+        for (CartItem item : items) {
+            if (item == null || item.getProduct() == null) continue;
+            int previous = item.getProduct().getAndIncreaseStock(item.getQuantity());
+            if (previous >= 0) {
+                publishStockChange(item.getProduct(), previous, item.getQuantity());
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Stock holds (timed reservations)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Reserves stock for a cart line with the default time-to-live.
+     *
+     * @param product  product to reserve
+     * @param quantity quantity to reserve (must be positive)
+     * @return the active hold, or {@code null} if input is invalid or stock is insufficient
+     * @see #placeHold(Product, int, long)
+     */
+    public StockHold placeHold(Product product, int quantity) {
+        return placeHold(product, quantity, DEFAULT_HOLD_TTL_MILLIS);
+    }
+
+    /**
+     * Reserves stock for a cart line.
+     * <p>
+     * The quantity is taken from the product's stock immediately. Unless the hold is
+     * converted ({@link #convertHold(StockHold)}) or released ({@link #releaseHold(StockHold)})
+     * first, it expires after {@code ttlMillis} and the stock is returned automatically.
+     * </p>
+     *
+     * @param product   product to reserve
+     * @param quantity  quantity to reserve (must be positive)
+     * @param ttlMillis time-to-live in milliseconds (must be positive)
+     * @return the active hold, or {@code null} if input is invalid or stock is insufficient
+     * @throws IllegalArgumentException if {@code ttlMillis} is not positive
+     */
+    public StockHold placeHold(Product product, int quantity, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be > 0");
+        }
+        if (product == null || quantity <= 0) {
+            return null;
+        }
+
+        StockHold hold;
+        int previous;
+        checkpointLock.readLock().lock();
+        try {
+            previous = product.getAndReserve(quantity);
+            if (previous < 0) {
+                return null;
+            }
+
+            hold = new StockHold(product, quantity);
+            activeHolds.add(hold);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        hold.setExpiry(holdTimer.schedule(() -> expireHold(hold), ttlMillis),
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+        publishStockChange(product, previous, -quantity);
+        return hold;
+    }
+
+    /**
+     * Releases an active hold and returns its stock.
+     *
+     * @param hold hold to release
+     * @return true if the hold was active and its stock was returned; false otherwise
+     */
+    public boolean releaseHold(StockHold hold) {
+        if (hold == null) {
+            return false;
+        }
+        return endHold(hold, StockHold.State.RELEASED);
+    }
+
+    /**
+     * Converts an active hold into committed stock (used at checkout).
+     * The held quantity stays taken from stock; nothing is re-validated.
+     *
+     * @param hold hold to convert
+     * @return true if the hold was active and is now converted; false if it had already ended
+     */
+    public boolean convertHold(StockHold hold) {
+        return hold != null && endHold(hold, StockHold.State.CONVERTED);
+    }
+
+    /**
+     * Makes a converted hold active again, for a checkout that fails after converting its holds.
+     * The held quantity stays taken from stock, so the cart keeps its reservation instead of
+     * competing for that stock again. The hold expires at its original deadline (at once if
+     * that has passed).
+     *
+     * @param hold converted hold
+     * @return true if the hold was converted and is active again; false otherwise
+     */
+    public boolean reinstateHold(StockHold hold) {
+        if (hold == null) {
+            return false;
+        }
+
+        checkpointLock.readLock().lock();
+        try {
+            if (!hold.reactivate()) {
+                return false;
+            }
+            activeHolds.add(hold);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        long deadline = hold.getDeadlineNanos();
+        long remaining = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        hold.setExpiry(holdTimer.schedule(() -> expireHold(hold), remaining), deadline);
+        return true;
+    }
+
+    /**
+     * Returns the quantities currently reserved by active holds, per product.
+     * Held quantities are already taken from the products' stock; adding them back gives
+     * the stock that is not sold yet. Inside {@link #checkpoint(Supplier)} the result is exact;
+     * otherwise it is a moment's view while holds keep changing.
+     *
+     * @return held quantity per product (products without active holds are absent)
+     */
+    public Map<Product, Integer> getHeldQuantities() {
+        Map<Product, Integer> held = new HashMap<>();
+        for (StockHold hold : activeHolds) {
+            if (hold.isActive()) {
+                held.merge(hold.getProduct(), hold.getQuantity(), Integer::sum);
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Returns the stock on hand of every catalog product: the available stock plus the units
+     * held by open carts. Held units have not been sold, so this is the stock to persist or
+     * report. Read inside {@link #checkpoint(Supplier)}, so a hold that ends concurrently is
+     * counted exactly once.
+     *
+     * @return stock on hand per product, in catalog order
+     */
+    public Map<Product, Integer> getStockOnHand() {
+        return checkpoint(() -> {
+            Map<Product, Integer> held = getHeldQuantities();
+            Map<Product, Integer> onHand = new LinkedHashMap<>();
+            for (Product p : getAllProducts()) {
+                onHand.put(p, p.getStock() + held.getOrDefault(p, 0));
+            }
+            return onHand;
+        });
+    }
+
+    /**
+     * Expires a hold whose time-to-live has passed (runs on the hold timer thread).
+     *
+     * @param hold hold to expire
+     */
+    private void expireHold(StockHold hold) {
+        endHold(hold, StockHold.State.EXPIRED);
+    }
+
+    /**
+     * Ends an active hold and, unless it is converted, returns its stock. Runs inside the
+     * checkpoint barrier, so a checkpoint sees each held quantity either as held or as stock.
+     *
+     * @param hold  hold to end
+     * @param state final state
+     * @return true if the hold was active and has now ended; false if it had already ended
+     */
+    private boolean endHold(StockHold hold, StockHold.State state) {
+        checkpointLock.readLock().lock();
+        try {
+            if (!hold.end(state)) {
+                return false;
+            }
+            activeHolds.remove(hold);
+            if (state != StockHold.State.CONVERTED) {
+                returnHeldStock(hold);
+            }
+            return true;
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the stock of an ended hold to its product.
+     *
+     * @param hold released or expired hold
+     */
+    private void returnHeldStock(StockHold hold) {
+        int previous = hold.getProduct().getAndIncreaseStock(hold.getQuantity());
+        if (previous >= 0) {
+            publishStockChange(hold.getProduct(), previous, hold.getQuantity());
         }
-        return ok;
     }
 
     // ---------------------------------------------------------------------
@@ -253,6 +793,11 @@ public class StoreEngine implements StoreSubject {
 
     /**
      * Registers a customer (by username uniqueness).
+     * <p>
+     * Usernames are compared after trimming and ignoring case, the same way
+     * {@link #findCustomerByUsername(String)} looks them up. Safe to call without
+     * holding the engine monitor.
+     * </p>
      *
      * @param customer customer to register
      * @return true if registered; false if null or username already exists
@@ -262,47 +807,32 @@ public class StoreEngine implements StoreSubject {
             return false;
         }
 
-        for (Customer existing : customers) {
-            if (existing != null && existing.getUsername() != null
-                    && existing.getUsername().equals(customer.getUsername())) {
-                return false;
-            }
+        String key = usernameKey(customer.getUsername());
+        if (key == null) {
+            return false;
         }
-
-        customers.add(customer);
-        return true;
+        return customers.putIfAbsent(key, customer) == null;
     }
 
     /**
      * Finds a registered customer by username (case-insensitive).
+     * Safe to call without holding the engine monitor.
      *
      * @param username customer's username
      * @return matching customer or null if not found/invalid input
      */
     public Customer findCustomerByUsername(String username) {
-        if (username == null) {
-            return null;
-        }
-        String u = username.trim();
-        if (u.isEmpty()) {
-            return null;
-        }
-
-        for (Customer c : customers) {
-            if (c != null && c.getUsername() != null && c.getUsername().equalsIgnoreCase(u)) {
-                return c;
-            }
-        }
-        return null;
+        String key = usernameKey(username);
+        return (key == null) ? null : customers.get(key);
     }
 
     /**
-     * Returns a defensive copy of all registered customers.
+     * Returns a copy of all registered customers, in no particular order.
      *
      * @return copy of customers list
      */
     public List<Customer> getCustomers() {
-        return new ArrayList<>(customers);
+        return new ArrayList<>(customers.values());
     }
 
     // ---------------------------------------------------------------------
@@ -315,7 +845,92 @@ public class StoreEngine implements StoreSubject {
      * @return copy of orders list
      */
     public List<Order> getAllOrders() {
-        return new ArrayList<>(allOrders);
+        long stamp = readLockState();
+        try {
+            return new ArrayList<>(allOrders);
+        } finally {
+            stateLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the in-memory order with the given ID.
+     *
+     * @param orderId order ID
+     * @return the order, or {@code null} if it was not created or loaded in this session
+     */
+    public Order findOrder(long orderId) {
+        long stamp = readLockState();
+        try {
+            return ordersById.get(orderId);
+        } finally {
+            stateLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns all orders placed by the given customer (case-insensitive username match),
+     * in creation order. The cost depends only on the customer's own order count.
+     *
+     * @param username customer's username
+     * @return copy of the customer's orders (empty if none or invalid input)
+     */
+    public List<Order> getOrdersByCustomer(String username) {
+        return getOrdersByCustomer(username, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns one page of the orders placed by the given customer, in creation order.
+     *
+     * @param username customer's username
+     * @param offset   index of the first order to return (must be &gt;= 0)
+     * @param limit    maximum number of orders to return (must be &gt;= 0)
+     * @return copy of the requested page (empty if out of range or invalid input)
+     * @throws IllegalArgumentException if {@code offset} or {@code limit} is negative
+     */
+    public List<Order> getOrdersByCustomer(String username, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must be >= 0");
+        }
+
+        String key = usernameKey(username);
+        if (key == null) {
+            return new ArrayList<>();
+        }
+
+        long stamp = readLockState();
+        try {
+            List<Order> own = ordersByCustomer.get(key);
+            if (own == null || offset >= own.size() || limit == 0) {
+                return new ArrayList<>();
+            }
+
+            int end = (int) Math.min((long) offset + limit, own.size());
+            return new ArrayList<>(own.subList(offset, end));
+        } finally {
+            stateLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the number of orders placed by the given customer.
+     *
+     * @param username customer's username
+     * @return order count (0 if none or invalid input)
+     */
+    public int countOrdersByCustomer(String username) {
+        String key = usernameKey(username);
+        if (key == null) {
+            return 0;
+        }
+
+        long stamp = readLockState();
+        try {
+            List<Order> own = ordersByCustomer.get(key);
+            return (own == null) ? 0 : own.size();
+        } finally {
+            stateLock.unlockRead(stamp);
+        }
     }
 
     /**
@@ -328,34 +943,108 @@ public class StoreEngine implements StoreSubject {
      * @return created order, or null if customer/cart invalid or empty
      */
     public Order createOrderFromCustomer(Customer customer) {
+        return createOrderFromCustomer(customer, null);
+    }
+
+    /**
+     * Creates an order from the given customer's cart, running a write-ahead step first.
+     * <p>
+     * {@code writeAhead} (e.g., appending the order to the history journal) receives the new
+     * order before it is recorded in the engine, the cart is cleared or listeners are notified.
+     * If it throws, none of that happens and the exception propagates to the caller, so an
+     * order that could not be persisted is never reported as placed.
+     * </p>
+     * <p>
+     * The cart is read and cleared under its lock ({@link Cart#getLock()}). A checkout that
+     * commits stock for the cart's lines first must hold that lock from reading the lines
+     * until this method returns, so no item can enter the order without its stock.
+     * </p>
+     *
+     * @param customer   customer who performs checkout
+     * @param writeAhead step to run before the order is recorded (may be {@code null})
+     * @return created order, or null if customer/cart invalid or empty
+     */
+    public Order createOrderFromCustomer(Customer customer, Consumer<Order> writeAhead) {
         if (customer == null) {
             return null;
         }
 
         Cart cart = customer.getCart();
-        if (cart == null || cart.isEmpty()) {
+        if (cart == null) {
+            return null;
+        }
+
+        Lock cartLock = cart.getLock();
+        cartLock.lock();
+        try {
+            return createOrderLocked(customer, cart, writeAhead);
+        } finally {
+            cartLock.unlock();
+        }
+    }
+
+    /**
+     * Creates, persists and records an order for a cart whose lock the caller holds.
+     *
+     * @param customer   customer who performs checkout
+     * @param cart       the customer's cart
+     * @param writeAhead step to run before the order is recorded (may be {@code null})
+     * @return created order, or null if the cart is empty
+     */
+    private Order createOrderLocked(Customer customer, Cart cart, Consumer<Order> writeAhead) {
+        if (cart.isEmpty()) {
             return null;
         }
 
-        nextOrderId++;
+        long orderId = orderIds.nextId();
 
-        double finalTotal = calculateTotalAfterDiscount(cart);
+        List<CartItem> lines = checkoutLines(cart);
+        long finalTotal = calculateTotalAfterDiscountCents(lines);
 
         Order newOrder = new Order(
                 customer.getUsername(),
-                nextOrderId,
-                cart.getItems(),
+                orderId,
+                lines,
                 finalTotal
         );
 
-        allOrders.add(newOrder);
+        checkpointLock.readLock().lock();
+        try {
+            if (writeAhead != null) {
+                writeAhead.accept(newOrder);
+            }
+
+            long stamp = writeLockState();
+            try {
+                indexOrder(newOrder);
+            } finally {
+                stateLock.unlockWrite(stamp);
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
         cart.clear();
 
-        notifyObservers();
+        dispatcher.publish(new StoreEvent.OrderCreated(newOrder));
 
         return newOrder;
     }
 
+    /**
+     * Copies the cart lines with each unit price fixed at the current product price,
+     * so the order keeps the prices paid even if a product is repriced later.
+     *
+     * @param cart cart whose lock the caller holds
+     * @return order lines priced at checkout
+     */
+    private static List<CartItem> checkoutLines(Cart cart) {
+        List<CartItem> lines = new ArrayList<>(cart.getItemsView().size());
+        for (CartItem item : cart.getItemsView()) {
+            lines.add(item.withCurrentPrice());
+        }
+        return lines;
+    }
+
     /**
      * Creates an order from a cart without customer identity.
      * Prefer {@link #createOrderFromCustomer(Customer)} when possible.
@@ -366,30 +1055,65 @@ public class StoreEngine implements StoreSubject {
      */
     @Deprecated
     public Order createOrderFromCart(Cart cart) {
-        if (cart == null || cart.isEmpty()) {
+        if (cart == null) {
+            return null;
+        }
+
+        Lock cartLock = cart.getLock();
+        cartLock.lock();
+        try {
+            return createAnonymousOrderLocked(cart);
+        } finally {
+            cartLock.unlock();
+        }
+    }
+
+    /**
+     * Creates and records an order without customer identity for a cart whose lock the caller holds.
+     *
+     * @param cart shopping cart
+     * @return created order, or null if the cart is empty
+     */
+    private Order createAnonymousOrderLocked(Cart cart) {
+        if (cart.isEmpty()) {
             return null;
         }
 
-        nextOrderId++;
+        long orderId = orderIds.nextId();
 
-        double finalTotal = calculateTotalAfterDiscount(cart);
+        List<CartItem> lines = checkoutLines(cart);
+        long finalTotal = calculateTotalAfterDiscountCents(lines);
 
         Order newOrder = new Order(
-                nextOrderId,
-                cart.getItems(),
+                orderId,
+                lines,
                 finalTotal
         );
 
-        allOrders.add(newOrder);
+        long stamp = writeLockState();
+        try {
+            indexOrder(newOrder);
+        } finally {
+            stateLock.unlockWrite(stamp);
+        }
         cart.clear();
 
-        notifyObservers();
+        dispatcher.publish(new StoreEvent.OrderCreated(newOrder));
 
         return newOrder;
     }
 
     /**
-     * Adds orders loaded from persistent storage into the engine and updates the next order ID.
+     * Adds orders loaded from persistent storage into the engine.
+     * <p>
+     * Loaded history does not publish {@link StoreEvent.OrderCreated} events (one per historical
+     * order would flood listeners); observers receive a single plain notification instead.
+     * </p>
+     * <p>
+     * Order IDs continue above the persisted high-water mark (see {@link OrderIdGenerator}),
+     * so no separate pass over the history is needed to find the largest ID; each loaded ID is
+     * still observed so that a missing or stale high-water mark file cannot cause reuse.
+     * </p>
      *
      * @param orders loaded orders
      */
@@ -398,19 +1122,80 @@ public class StoreEngine implements StoreSubject {
             return;
         }
 
-        for (Order o : orders) {
-            if (o == null) continue;
+        long stamp = writeLockState();
+        try {
+            for (Order o : orders) {
+                if (o == null) continue;
 
-            allOrders.add(o);
+                indexOrder(o);
 
-            if (o.getOrderID() > nextOrderId) {
-                nextOrderId = o.getOrderID();
+                // O(1) safety net for histories written before the high-water mark was persisted.
+                orderIds.observe(o.getOrderID());
             }
+        } finally {
+            stateLock.unlockWrite(stamp);
         }
 
         notifyObservers();
     }
 
+    /**
+     * Returns the highest order ID issued or observed so far.
+     *
+     * @return last order ID (0 if none)
+     */
+    public long getLastOrderId() {
+        return orderIds.getLastIssued();
+    }
+
+    /**
+     * Returns the lock that keeps a checkpoint from running while an order is being placed.
+     * <p>
+     * Checkout holds it (shared with other checkouts) from taking the order's stock until the
+     * order has been created or the stock returned, so that a checkpoint never sees stock
+     * taken for an order that is not yet in the history.
+     * </p>
+     *
+     * @return the shared side of the checkpoint barrier (reentrant)
+     */
+    public Lock getOrderCreationLock() {
+        return checkpointLock.readLock();
+    }
+
+    /**
+     * Runs a capture step while no order is between its write-ahead step and being indexed.
+     * <p>
+     * Every order written ahead (e.g., to the history file) before the capture starts is
+     * already visible through {@link #getAllOrders()}, and no order is written during the
+     * capture, so the capture sees the in-memory orders and the persisted history in the same
+     * state. Stock holds do not change during the capture either, and checkouts that hold
+     * {@link #getOrderCreationLock()} have either not taken their stock yet or are complete.
+     * Checkouts wait while the capture runs, so it should only copy state.
+     * </p>
+     *
+     * @param capture step that copies the state to persist
+     * @param <T>     captured state type
+     * @return the captured state
+     */
+    public <T> T checkpoint(Supplier<T> capture) {
+        checkpointLock.writeLock().lock();
+        try {
+            return capture.get();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records an order ID found in the history without loading the order, so that new
+     * orders never reuse it (used when the history is read from disk on demand).
+     *
+     * @param orderId order ID found in the history
+     */
+    public void observeOrderId(long orderId) {
+        orderIds.observe(orderId);
+    }
+
     // ---------------------------------------------------------------------
     // Observer pattern (StoreSubject)
     // ---------------------------------------------------------------------
@@ -442,7 +1227,40 @@ public class StoreEngine implements StoreSubject {
     }
 
     /**
-     * Notifies all observers.
+     * Subscribes a listener to typed change events, delivered by the same dispatcher
+     * thread (and with the same per-tick coalescing) as observer notifications.
+     *
+     * @param listener listener to subscribe (ignored if {@code null})
+     * @param types    event types of interest (ignored if {@code null} or empty)
+     */
+    @Override
+    public void subscribe(StoreEventListener listener, Set<StoreEvent.Type> types) {
+        if (listener == null || types == null || types.isEmpty()) {
+            return;
+        }
+        dispatcher.subscribe(listener, types);
+    }
+
+    /**
+     * Cancels a listener's subscription.
+     *
+     * @param listener listener to unsubscribe (ignored if {@code null})
+     */
+    @Override
+    public void unsubscribe(StoreEventListener listener) {
+        if (listener == null) {
+            return;
+        }
+        dispatcher.unsubscribe(listener);
+    }
+
+    /**
+     * Schedules a notification of all observers and returns immediately.
+     * <p>
+     * Notifications are delivered by a dedicated dispatcher thread that coalesces
+     * bursts of changes into one {@link SystemUpdatable#update()} call per observer
+     * per tick, so mutating calls never wait for observer code.
+     * </p>
      * <p>
      * The engine is UI-agnostic and does not assume Swing threading.
      * Each observer is responsible for marshaling updates to the appropriate
@@ -451,20 +1269,67 @@ public class StoreEngine implements StoreSubject {
      */
     @Override
     public void notifyObservers() {
-        for (SystemUpdatable o : observers) {
-            if (o == null) continue;
-            try {
-                o.update();
-            } catch (RuntimeException ex) {
-                System.err.println("Observer update failed: " + ex.getMessage());
-            }
-        }
+        dispatcher.requestDispatch();
+    }
+
+    // ---------------------------------------------------------------------
+    // Lock statistics
+    // ---------------------------------------------------------------------
+
+    /**
+     * Returns the wait statistics of the engine's state lock (catalog index, orders, discount).
+     *
+     * @return lock wait statistics
+     */
+    public LockWaitStats getStateLockWaits() {
+        return stateLockWaits;
+    }
+
+    /**
+     * Returns the wait statistics of the stock lock stripes.
+     *
+     * @return lock wait statistics
+     */
+    public LockWaitStats getStockLockWaits() {
+        return stockLocks.getWaitStats();
     }
 
     // ---------------------------------------------------------------------
     // Helpers
     // ---------------------------------------------------------------------
 
+    /**
+     * Acquires the state lock for writing, recording the wait time if it is contended.
+     *
+     * @return write stamp
+     */
+    private long writeLockState() {
+        long stamp = stateLock.tryWriteLock();
+        if (stamp != 0L) {
+            return stamp;
+        }
+        long start = System.nanoTime();
+        stamp = stateLock.writeLock();
+        stateLockWaits.recordWait(System.nanoTime() - start);
+        return stamp;
+    }
+
+    /**
+     * Acquires the state lock for reading, recording the wait time if it is contended.
+     *
+     * @return read stamp
+     */
+    private long readLockState() {
+        long stamp = stateLock.tryReadLock();
+        if (stamp != 0L) {
+            return stamp;
+        }
+        long start = System.nanoTime();
+        stamp = stateLock.readLock();
+        stateLockWaits.recordWait(System.nanoTime() - start);
+        return stamp;
+    }
+
     /**
      * Searches for a product with the given name in the product collection.
      *
@@ -482,28 +1347,115 @@ public class StoreEngine implements StoreSubject {
             return null;
         }
 
-        for (Product p : products) {
-            if (p != null && p.getName() != null && p.getName().equalsIgnoreCase(name)) {
-                return p;
-            }
+        String key = nameKey(name);
+        long stamp = readLockState();
+        try {
+            return products.get(key);
+        } finally {
+            stateLock.unlockRead(stamp);
         }
-        return null;
     }
 
     /**
-     * Adds a product without notifying observers.
-     * Used to batch catalog changes and notify once.
+     * Adds a product (or merges its stock into an existing one) and publishes the matching event.
+     * Events of a batch are delivered together on the next dispatcher tick. The caller holds the
+     * write lock and publishes a new catalog snapshot if a product was added.
+     *
+     * A new product whose ID is already used by another catalog product is given a new ID.
+     *
+     * @return true if the product was added as a new catalog entry; false if merged
      */
-    private void addProductInternal(Product product) {
-        Product existing = findProductByName(product.getName());
+    private boolean addProductInternal(Product product) {
+        String key = nameKey(product.getName());
+        Product existing = products.get(key);
         if (existing != null) {
             int amountToAdd = product.getStock();
-            if (amountToAdd > 0) {
-                existing.increaseStock(amountToAdd);
+            int previous = (amountToAdd > 0) ? existing.getAndIncreaseStock(amountToAdd) : -1;
+            if (previous >= 0) {
+                publishStockChange(existing, previous, amountToAdd);
             }
-        } else {
-            products.add(product);
+            return false;
+        }
+
+        int id = product.getId();
+        if (id > 0) {
+            if (id < productsById.length && productsById[id] != null) {
+                Product holder = productsById[id];
+                id = ProductFactory.assignNewId(product);
+                System.err.println("Product id " + holder.getId() + " is already used by \"" + holder.getName()
+                        + "\"; \"" + product.getName() + "\" was added as product " + id);
+            }
+            if (id >= productsById.length) {
+                productsById = Arrays.copyOf(productsById, Math.max(id + 1, productsById.length * 2));
+            }
+            productsById[id] = product;
+        }
+
+        products.put(key, product);
+        dispatcher.publish(new StoreEvent.ProductAdded(product));
+        return true;
+    }
+
+    /**
+     * Builds and publishes a new catalog snapshot from the name index.
+     * Called by catalog writers (holding the write lock) after products were added or removed.
+     */
+    private void publishCatalog() {
+        catalog = new CatalogSnapshot(catalog.getVersion() + 1, products.values());
+    }
+
+    /**
+     * Publishes a {@link StoreEvent.StockChanged} event for a change that has just been applied.
+     * The values come from the change's own compare-and-set, never from a later read of the
+     * stock, so concurrent changes of the same product cannot leak into the event.
+     *
+     * @param product  product whose stock changed
+     * @param previous stock the change was applied to
+     * @param delta    applied change (positive for increases, negative for decreases)
+     */
+    private void publishStockChange(Product product, int previous, int delta) {
+        stockVersion.incrementAndGet();
+        dispatcher.publish(new StoreEvent.StockChanged(product, previous, previous + delta));
+    }
+
+    /**
+     * Records an order in the global order list and the per-customer and ID indexes.
+     * The caller holds the write lock.
+     *
+     * @param order order to record (must not be {@code null})
+     */
+    private void indexOrder(Order order) {
+        allOrders.add(order);
+        ordersById.put(order.getOrderID(), order);
+
+        String key = usernameKey(order.getCustomerUsername());
+        if (key != null) {
+            ordersByCustomer.computeIfAbsent(key, k -> new ArrayList<>()).add(order);
+        }
+    }
+
+    /**
+     * Normalizes a username into the key used by the customer registry and the order index.
+     *
+     * @param username raw username (may be {@code null})
+     * @return trimmed lower-case key, or {@code null} if the username is null or blank
+     */
+    private static String usernameKey(String username) {
+        if (username == null) {
+            return null;
         }
+        String u = username.trim();
+        return u.isEmpty() ? null : u.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalizes a product name into the key used by the catalog indexes.
+     *
+     * @param name product name (never {@code null} for catalog products)
+     * @return lower-case key used for case-insensitive lookups
+     */
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
     }
 
     /**
@@ -516,4 +1468,46 @@ public class StoreEngine implements StoreSubject {
     public Product findProductPublic(String name) {
         return findProductByName(name);
     }
+
+    /**
+     * Looks up a catalog product by its stable ID.
+     * Used by I/O utilities to re-link order lines; an optimistic read, so it normally never blocks.
+     *
+     * @param id product ID
+     * @return matching product, or {@code null} if no catalog product has this ID
+     */
+    public Product findProductById(int id) {
+        if (id <= 0) {
+            return null;
+        }
+
+        long stamp = stateLock.tryOptimisticRead();
+        Product[] byId = productsById;
+        Product p = (id < byId.length) ? byId[id] : null;
+        if (stateLock.validate(stamp)) {
+            return p;
+        }
+
+        stamp = readLockState();
+        try {
+            return (id < productsById.length) ? productsById[id] : null;
+        } finally {
+            stateLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Cached result of {@link #getAvailableProducts()}, tagged with the state it was computed from.
+     */
+    private static final class AvailableProducts {
+        private final CatalogSnapshot snapshot;
+        private final long stockVersion;
+        private final List<Product> products;
+
+        private AvailableProducts(CatalogSnapshot snapshot, long stockVersion, List<Product> products) {
+            this.snapshot = snapshot;
+            this.stockVersion = stockVersion;
+            this.products = products;
+        }
+    }
 }
@@ -0,0 +1,192 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hashed timing wheel that runs tasks after a delay.
+ *
+ * <p>
+ * Time is divided into ticks of fixed length. Each of the wheel's buckets holds the
+ * timeouts whose deadline falls on that tick, modulo the number of buckets. Timeouts
+ * further away than one turn of the wheel carry the number of remaining turns.
+ * Scheduling and cancelling are O(1). On each tick, a single background thread visits
+ * one bucket and runs the tasks whose deadline has been reached. Expirations are
+ * therefore accurate to one tick, and thousands of pending timeouts cost nothing
+ * until their bucket comes up.
+ * </p>
+ * <p>
+ * New timeouts are handed to the wheel thread through a concurrent queue. Cancelled
+ * timeouts are dropped the next time their bucket is visited. Only the wheel thread
+ * touches the buckets, so they need no locking.
+ * </p>
+ */
+final class TimingWheel {
+
+    /** Length of one tick, in nanoseconds. */
+    private final long tickNanos;
+
+    /** Buckets of the wheel (length is a power of two). */
+    private final List<List<Timeout>> buckets;
+
+    /** {@code buckets.size() - 1}, for fast bucket selection. */
+    private final int mask;
+
+    /** Timeouts scheduled since the last tick, not yet placed in a bucket. */
+    private final ConcurrentLinkedQueue<Timeout> incoming;
+
+    /** Wheel start time ({@link System#nanoTime()}). */
+    private final long startNanos;
+
+    /**
+     * Creates and starts a timing wheel.
+     *
+     * @param tickMillis  length of one tick in milliseconds (must be positive)
+     * @param bucketCount number of buckets (rounded up to a power of two; must be positive)
+     * @param threadName  name of the wheel thread
+     * @throws IllegalArgumentException if {@code tickMillis} or {@code bucketCount} is not positive
+     */
+    TimingWheel(long tickMillis, int bucketCount, String threadName) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be > 0");
+        }
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("bucketCount must be > 0");
+        }
+
+        int size = Integer.highestOneBit(bucketCount);
+        if (size < bucketCount) {
+            size <<= 1;
+        }
+
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            this.buckets.add(new ArrayList<>());
+        }
+        this.mask = size - 1;
+        this.incoming = new ConcurrentLinkedQueue<>();
+        this.startNanos = System.nanoTime();
+
+        Thread thread = new Thread(this::runLoop, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Schedules a task to run on the wheel thread after the given delay.
+     *
+     * @param task        task to run (must be short and must not block)
+     * @param delayMillis delay in milliseconds
+     * @return a handle that can cancel the task
+     */
+    Timeout schedule(Runnable task, long delayMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delayMillis));
+        Timeout t = new Timeout(task, deadline);
+        incoming.add(t);
+        return t;
+    }
+
+    /**
+     * Wheel thread body: waits for each tick, then expires the tick's bucket.
+     */
+    private void runLoop() {
+        long tick = 0;
+        while (true) {
+            long wakeAt = startNanos + (tick + 1) * tickNanos;
+            long sleep = wakeAt - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            transferIncoming(tick);
+            expireBucket(buckets.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    /**
+     * Moves newly scheduled timeouts into their buckets.
+     *
+     * @param currentTick the tick being processed
+     */
+    private void transferIncoming(long currentTick) {
+        Timeout t;
+        while ((t = incoming.poll()) != null) {
+            if (t.done.get()) continue;
+
+            long deadlineTick = Math.max(currentTick, (t.deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+            t.remainingRounds = (deadlineTick - currentTick) / buckets.size();
+            buckets.get((int) (deadlineTick & mask)).add(t);
+        }
+    }
+
+    /**
+     * Runs the due timeouts of a bucket and keeps the others.
+     *
+     * @param bucket bucket of the current tick
+     */
+    private void expireBucket(List<Timeout> bucket) {
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Timeout t = bucket.get(i);
+            if (t.done.get()) continue;
+
+            if (t.remainingRounds > 0) {
+                t.remainingRounds--;
+                bucket.set(kept++, t);
+                continue;
+            }
+
+            if (t.done.compareAndSet(false, true)) {
+                try {
+                    t.task.run();
+                } catch (RuntimeException ex) {
+                    System.err.println("Timed task failed: " + ex.getMessage());
+                }
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    static final class Timeout {
+        private final Runnable task;
+        private final long deadlineNanos;
+
+        /** Set once the task has run or has been cancelled. */
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        /** Full wheel turns left before expiry (wheel thread only). */
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancels the task if it has not run yet.
+         *
+         * @return true if the task was cancelled; false if it already ran or was cancelled
+         */
+        boolean cancel() {
+            return done.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.gui.controller;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, expiring cache that runs an action at most once per request ID.
+ *
+ * <p>
+ * Results are kept in two generations of concurrent maps. New entries go into the current
+ * generation. Lookups check the current generation, then the previous one. When the current
+ * generation is older than half the time-to-live or holds half the maximum number of entries,
+ * it becomes the previous generation and the old previous generation is dropped as a whole.
+ * A result is therefore remembered for at least half the TTL and for at most about one TTL.
+ * At most about {@code maxEntries} results are kept, and expiry costs nothing per entry.
+ * </p>
+ * <p>
+ * Concurrent calls with the same ID share one execution: the first caller runs the action and
+ * the others wait for its result. A repeat of a completed request only reads a map; it never
+ * takes a lock. An action that fails, or that returns {@code null}, is not remembered, so the
+ * request can be retried.
+ * </p>
+ *
+ * @param <V> result type
+ */
+final class RequestDeduplicator<V> {
+
+    /** Time after which a generation is rotated out, in nanoseconds (half the TTL). */
+    private final long generationNanos;
+
+    /** Number of entries after which a generation is rotated out (half the maximum). */
+    private final int generationCapacity;
+
+    /** Current and previous generations. */
+    private final AtomicReference<Generations<V>> generations;
+
+    /**
+     * Creates a deduplicator.
+     *
+     * @param ttlMillis  how long results are remembered, in milliseconds (must be positive)
+     * @param maxEntries approximate maximum number of remembered results (must be at least 2)
+     * @throws IllegalArgumentException if an argument is out of range
+     */
+    RequestDeduplicator(long ttlMillis, int maxEntries) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be > 0");
+        }
+        if (maxEntries < 2) {
+            throw new IllegalArgumentException("maxEntries must be >= 2");
+        }
+
+        this.generationNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis) / 2;
+        this.generationCapacity = maxEntries / 2;
+        this.generations = new AtomicReference<>(
+                new Generations<>(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), System.nanoTime()));
+    }
+
+    /**
+     * Returns the result of the request with the given ID, running the action only if the
+     * request has not been seen (or its earlier attempt failed).
+     *
+     * @param requestId request ID (must not be {@code null})
+     * @param action    action producing the result
+     * @return the action's result, or the remembered result of an earlier identical request
+     * @throws RuntimeException if the action throws (rethrown unchanged)
+     */
+    V execute(String requestId, Supplier<V> action) {
+        Generations<V> g = currentGenerations();
+
+        CompletableFuture<V> known = g.current.get(requestId);
+        if (known == null) {
+            known = g.previous.get(requestId);
+        }
+        if (known != null) {
+            return await(known);
+        }
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        known = g.current.putIfAbsent(requestId, mine);
+        if (known != null) {
+            return await(known);
+        }
+
+        try {
+            V result = action.get();
+            if (result == null) {
+                g.current.remove(requestId, mine);
+            }
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException ex) {
+            g.current.remove(requestId, mine);
+            mine.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the generations, rotating them first if the current one is full or too old.
+     *
+     * @return generations to use for this call
+     */
+    private Generations<V> currentGenerations() {
+        while (true) {
+            Generations<V> g = generations.get();
+            long now = System.nanoTime();
+            if (now - g.createdNanos < generationNanos && g.current.size() < generationCapacity) {
+                return g;
+            }
+
+            Generations<V> rotated = new Generations<>(new ConcurrentHashMap<>(), g.current, now);
+            if (generations.compareAndSet(g, rotated)) {
+                return rotated;
+            }
+        }
+    }
+
+    /**
+     * Waits for a request's result.
+     *
+     * @param future result of the request
+     * @return the result ({@code null} if that attempt failed)
+     * @throws RuntimeException the action's exception, if the shared attempt threw
+     */
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Immutable pair of generations.
+     */
+    private static final class Generations<V> {
+        private final ConcurrentHashMap<String, CompletableFuture<V>> current;
+        private final ConcurrentHashMap<String, CompletableFuture<V>> previous;
+        private final long createdNanos;
+
+        private Generations(ConcurrentHashMap<String, CompletableFuture<V>> current,
+                            ConcurrentHashMap<String, CompletableFuture<V>> previous,
+                            long createdNanos) {
+            this.current = current;
+            this.previous = previous;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
@@ -12,19 +12,26 @@ import store.core.Manager;
 import store.discount.DiscountStrategy;
 import store.discount.NoDiscount;
 import store.discount.PercentageDiscount;
+import store.engine.StockHold;
 import store.engine.StoreEngine;
 import store.io.OrderHistoryIO;
 import store.io.ProductCatalogIO;
 import store.order.Order;
+import store.products.Category;
 import store.products.Product;
 import store.shipping.Adapter;
 import store.shipping.FastShipAPI;
+import store.shipping.ShippingDispatcher;
 import store.shipping.ShippingProvider;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Coordinates interactions between the GUI layer and the store domain model.
@@ -37,16 +44,33 @@ import java.util.List;
  *
  * <p>
  * Thread-safety: GUI actions may be triggered from different event contexts.
- * This class synchronizes on the shared {@link StoreEngine} instance for
- * consistency of operations that read/modify shared store state. File operations
- * on the product catalog are additionally guarded by an internal lock to prevent
- * concurrent load/save conflicts.
+ * The {@link StoreEngine} guards its own state (a read/write lock with optimistic reads,
+ * immutable catalog snapshots and lock-free stock), so this class never locks the engine.
+ * Operations on the active customer's cart are guarded by that cart's lock, so different
+ * customers' sessions do not contend with each other. File operations on the product
+ * catalog are additionally guarded by an internal lock to prevent concurrent load/save conflicts.
+ * All of these are explicit locks rather than monitors, so controller operations can run on
+ * virtual threads without pinning them while they block.
  * </p>
  */
 public class StoreController {
 
-    /** Lock object used to serialize product catalog file operations. */
-    private static final Object PRODUCT_FILE_LOCK = new Object();
+    /** Lock used to serialize product catalog file operations. */
+    private static final ReentrantLock PRODUCT_FILE_LOCK = new ReentrantLock();
+
+    /** How long checkout request IDs are remembered, in milliseconds. */
+    public static final long CHECKOUT_DEDUP_TTL_MILLIS = 10 * 60 * 1000L;
+
+    /** Approximate maximum number of remembered checkout request IDs. */
+    private static final int CHECKOUT_DEDUP_MAX_ENTRIES = 100_000;
+
+    /** Results of idempotent checkouts, keyed by customer and request ID (shared by all controllers). */
+    private static final RequestDeduplicator<Order> CHECKOUT_REQUESTS =
+            new RequestDeduplicator<>(CHECKOUT_DEDUP_TTL_MILLIS, CHECKOUT_DEDUP_MAX_ENTRIES);
+
+    /** Shared asynchronous FastShip dispatcher used by controllers without an explicit provider. */
+    private static final ShippingProvider DEFAULT_SHIPPING =
+            new ShippingDispatcher(new Adapter(new FastShipAPI()));
 
     /** The shared store engine backing the application state. */
     private final StoreEngine engine;
@@ -60,8 +84,10 @@ public class StoreController {
     /** The shipping provider used to dispatch orders during checkout. */
     private final ShippingProvider shippingProvider;
 
+
     /**
      * Creates a new controller bound to the given store engine and active session users.
+     * Orders are shipped asynchronously through a shared FastShip {@link ShippingDispatcher}.
      *
      * @param engine   the shared store engine instance (must not be {@code null})
      * @param customer the active customer (may be {@code null} for manager-only flows)
@@ -69,15 +95,31 @@ public class StoreController {
      * @throws IllegalArgumentException if {@code engine} is {@code null}
      */
     public StoreController(StoreEngine engine, Customer customer, Manager manager) {
+        this(engine, customer, manager, DEFAULT_SHIPPING);
+    }
+
+    /**
+     * Creates a new controller that dispatches orders through the given shipping provider.
+     *
+     * @param engine           the shared store engine instance (must not be {@code null})
+     * @param customer         the active customer (may be {@code null} for manager-only flows)
+     * @param manager          the active manager (may be {@code null} when not in manager mode)
+     * @param shippingProvider the provider used to ship orders at checkout (must not be {@code null})
+     * @throws IllegalArgumentException if {@code engine} or {@code shippingProvider} is {@code null}
+     */
+    public StoreController(StoreEngine engine, Customer customer, Manager manager,
+                           ShippingProvider shippingProvider) {
         if (engine == null) {
             throw new IllegalArgumentException("engine cannot be null");
         }
+        if (shippingProvider == null) {
+            throw new IllegalArgumentException("shippingProvider cannot be null");
+        }
 
         this.engine = engine;
         this.customer = customer;
         this.manager = manager;
-
-        this.shippingProvider = new Adapter(new FastShipAPI());
+        this.shippingProvider = shippingProvider;
     }
 
     /**
@@ -96,25 +138,36 @@ public class StoreController {
     /**
      * Computes the current cart subtotal for the active customer.
      *
-     * @return the cart subtotal, or {@code 0.0} if there is no active customer/cart
+     * @return the cart subtotal in cents, or {@code 0} if there is no active customer/cart
      */
-    public double getCartSubtotal() {
-        if (customer == null) return 0.0;
-        synchronized (engine) {
-            Cart cart = customer.getCart();
-            return (cart == null) ? 0.0 : cart.calculateTotal();
+    public long getCartSubtotalCents() {
+        if (customer == null) return 0L;
+        Cart cart = customer.getCart();
+        if (cart == null) return 0L;
+        Lock lock = cart.getLock();
+        lock.lock();
+        try {
+            return cart.calculateTotalCents();
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
      * Computes the cart total after applying the currently active discount strategy.
      *
-     * @return the discounted total, or {@code 0.0} if there is no active customer
+     * @return the discounted total in cents, or {@code 0} if there is no active customer
      */
-    public double getCartTotalAfterDiscount() {
-        if (customer == null) return 0.0;
-        synchronized (engine) {
-            return engine.calculateTotalAfterDiscount(customer.getCart());
+    public long getCartTotalAfterDiscountCents() {
+        if (customer == null) return 0L;
+        Cart cart = customer.getCart();
+        if (cart == null) return 0L;
+        Lock lock = cart.getLock();
+        lock.lock();
+        try {
+            return engine.calculateTotalAfterDiscountCents(cart);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -124,21 +177,19 @@ public class StoreController {
      * @return a human-readable discount name (defaults to {@code "No discount"} when none is set)
      */
     public String getDiscountDisplayName() {
-        synchronized (engine) {
-            DiscountStrategy s = engine.getDiscountStrategy();
-            return (s == null) ? "No discount" : s.getDisplayName();
-        }
+        DiscountStrategy s = engine.getDiscountStrategy();
+        return (s == null) ? "No discount" : s.getDisplayName();
     }
 
     /**
      * Computes the absolute discount amount for the active customer's cart.
      *
-     * @return the difference between subtotal and discounted total (never negative)
+     * @return the difference between subtotal and discounted total in cents (never negative)
      */
-    public double getDiscountAmount() {
-        double subtotal = getCartSubtotal();
-        double total = getCartTotalAfterDiscount();
-        return Math.max(0.0, subtotal - total);
+    public long getDiscountAmountCents() {
+        long subtotal = getCartSubtotalCents();
+        long total = getCartTotalAfterDiscountCents();
+        return Math.max(0L, subtotal - total);
     }
 
     // ---------------------------------------------------------------------
@@ -152,10 +203,8 @@ public class StoreController {
      */
     public boolean setNoDiscount() {
         if (!canManage()) return false;
-        synchronized (engine) {
-            engine.setDiscountStrategy(NoDiscount.INSTANCE);
-            return true;
-        }
+        engine.setDiscountStrategy(NoDiscount.INSTANCE);
+        return true;
     }
 
     /**
@@ -172,14 +221,12 @@ public class StoreController {
      */
     public boolean setPercentageDiscount(double percent) {
         if (!canManage()) return false;
-        synchronized (engine) {
-            if (percent <= 0.0) {
-                engine.setDiscountStrategy(NoDiscount.INSTANCE);
-            } else {
-                engine.setDiscountStrategy(new PercentageDiscount(percent));
-            }
-            return true;
+        if (percent <= 0.0) {
+            engine.setDiscountStrategy(NoDiscount.INSTANCE);
+        } else {
+            engine.setDiscountStrategy(new PercentageDiscount(percent));
         }
+        return true;
     }
 
     // ---------------------------------------------------------------------
@@ -188,24 +235,52 @@ public class StoreController {
 
     /**
      * Returns products that are currently available for purchase.
+     * Reads the engine's catalog snapshot without locking.
      *
-     * @return a list of available products as provided by the model
+     * @return an unmodifiable list of available products as provided by the model
      */
     public List<Product> getAvailableProducts() {
-        synchronized (engine) {
-            return engine.getAvailableProducts();
-        }
+        return engine.getAvailableProducts();
     }
 
     /**
      * Returns all products known to the store (including those not currently available).
+     * Reads the engine's catalog snapshot without locking.
      *
-     * @return a list of all products as provided by the model
+     * @return an unmodifiable list of all products as provided by the model
      */
     public List<Product> getAllProducts() {
-        synchronized (engine) {
-            return engine.getAllProducts();
-        }
+        return engine.getAllProducts();
+    }
+
+    /**
+     * Returns all products of the given category (including those not currently available).
+     * Reads the engine's catalog snapshot without locking.
+     *
+     * @param category the category to filter by
+     * @return an unmodifiable list of matching products as provided by the model
+     */
+    public List<Product> getProductsByCategory(Category category) {
+        return engine.getProductsByCategory(category);
+    }
+
+    /**
+     * Returns the current catalog version (changes when products are added or removed).
+     *
+     * @return the current catalog version
+     */
+    public long getCatalogVersion() {
+        return engine.getCatalogVersion();
+    }
+
+    /**
+     * Indicates whether the catalog changed since the given version was observed.
+     *
+     * @param version a version previously returned by {@link #getCatalogVersion()}
+     * @return {@code true} if products were added or removed since then; {@code false} otherwise
+     */
+    public boolean hasCatalogChangedSince(long version) {
+        return engine.hasCatalogChangedSince(version);
     }
 
     /**
@@ -215,9 +290,7 @@ public class StoreController {
      * @return {@code true} if the product was removed; {@code false} otherwise
      */
     public boolean removeProduct(Product product) {
-        synchronized (engine) {
-            return engine.removeProduct(product);
-        }
+        return engine.removeProduct(product);
     }
 
     /**
@@ -228,29 +301,31 @@ public class StoreController {
      */
     public void loadProductsFromFile(File file) throws IOException {
         List<Product> loaded;
-        synchronized (PRODUCT_FILE_LOCK) {
+        PRODUCT_FILE_LOCK.lock();
+        try {
             loaded = ProductCatalogIO.loadProductsFromFile(file);
+        } finally {
+            PRODUCT_FILE_LOCK.unlock();
         }
 
-        synchronized (engine) {
-            engine.addProducts(loaded);
-        }
+        engine.addProducts(loaded);
     }
 
     /**
      * Saves the current store catalog into the given file.
+     * The saved stock includes units held by open carts (see {@link StoreEngine#getStockOnHand()}).
      *
      * @param file the destination file to save into
      * @throws IOException if writing to the file fails
      */
     public void saveProductsToFile(File file) throws IOException {
-        List<Product> snapshot;
-        synchronized (engine) {
-            snapshot = engine.getAllProducts();
-        }
+        Map<Product, Integer> onHand = engine.getStockOnHand();
 
-        synchronized (PRODUCT_FILE_LOCK) {
-            ProductCatalogIO.saveProductsToFile(file, snapshot);
+        PRODUCT_FILE_LOCK.lock();
+        try {
+            ProductCatalogIO.saveProductsToFile(file, new ArrayList<>(onHand.keySet()), onHand);
+        } finally {
+            PRODUCT_FILE_LOCK.unlock();
         }
     }
 
@@ -264,45 +339,93 @@ public class StoreController {
      * @return a list of all orders as provided by the model
      */
     public List<Order> getAllOrders() {
-        synchronized (engine) {
-            return engine.getAllOrders();
-        }
+        return engine.getAllOrders();
     }
 
     /**
      * Returns the order history for the active customer.
      *
      * <p>
-     * Orders are filtered by matching {@link Order#getCustomerUsername()} to the
-     * active customer's username (case-insensitive).
+     * Orders are looked up in the engine's per-customer index by the active
+     * customer's username (case-insensitive), so the cost depends only on the
+     * customer's own order count.
      * </p>
      *
      * @return a list of orders belonging to the active customer; empty if not applicable
      */
     public List<Order> getCustomerOrders() {
-        List<Order> result = new ArrayList<>();
+        return getCustomerOrders(0, Integer.MAX_VALUE);
+    }
 
+    /**
+     * Returns one page of the order history for the active customer, in creation order.
+     *
+     * @param offset index of the first order to return (must be &gt;= 0)
+     * @param limit  maximum number of orders to return (must be &gt;= 0)
+     * @return the requested page; empty if not applicable
+     * @throws IllegalArgumentException if {@code offset} or {@code limit} is negative
+     */
+    public List<Order> getCustomerOrders(int offset, int limit) {
         if (customer == null || customer.getUsername() == null) {
-            return result;
+            return new ArrayList<>();
         }
 
-        String username = customer.getUsername().trim();
-        if (username.isEmpty()) {
-            return result;
+        return engine.getOrdersByCustomer(customer.getUsername(), offset, limit);
+    }
+
+    /**
+     * Returns one page of the order history visible to the current user, read from the
+     * history file rather than from memory, so the history may be larger than the heap.
+     *
+     * <p>
+     * Managers see all orders; customers see only their own. Orders are returned in
+     * history order. The history is scanned from its start, so this method should not
+     * be called on the Event Dispatch Thread.
+     * </p>
+     *
+     * @param offset number of visible orders to skip (must be &gt;= 0)
+     * @param limit  maximum number of orders to return (must be &gt;= 0)
+     * @return the requested page; empty if not applicable
+     * @throws IllegalArgumentException     if {@code offset} or {@code limit} is negative
+     * @throws java.io.UncheckedIOException if the history cannot be read
+     */
+    public List<Order> getOrderHistoryPage(int offset, int limit) {
+        if (canManage()) {
+            return OrderHistoryIO.readOrders(engine, null, null, null, offset, limit);
+        }
+        if (customer == null || customer.getUsername() == null) {
+            return new ArrayList<>();
         }
 
-        synchronized (engine) {
-            for (Order o : engine.getAllOrders()) {
-                if (o == null) continue;
+        return OrderHistoryIO.readOrders(engine, customer.getUsername(), null, null, offset, limit);
+    }
 
-                String owner = o.getCustomerUsername();
-                if (owner != null && owner.equalsIgnoreCase(username)) {
-                    result.add(o);
-                }
-            }
+    /**
+     * Indicates whether the given order was placed by the active customer
+     * (case-insensitive username match).
+     *
+     * @param order the order to check
+     * @return {@code true} if the order belongs to the active customer; {@code false} otherwise
+     */
+    public boolean isCustomerOrder(Order order) {
+        if (order == null || customer == null || customer.getUsername() == null) {
+            return false;
+        }
+        String owner = order.getCustomerUsername();
+        return owner != null && owner.equalsIgnoreCase(customer.getUsername().trim());
+    }
+
+    /**
+     * Returns the number of orders placed by the active customer.
+     *
+     * @return the customer's order count; 0 if not applicable
+     */
+    public int countCustomerOrders() {
+        if (customer == null || customer.getUsername() == null) {
+            return 0;
         }
 
-        return result;
+        return engine.countOrdersByCustomer(customer.getUsername());
     }
 
     /**
@@ -310,68 +433,147 @@ public class StoreController {
      *
      * <p>
      * This method validates the cart contents, updates inventory quantities,
-     * creates an order in the model, triggers shipping, and appends the order to
-     * persistent history storage.
+     * appends the order to persistent history storage, records it in the model,
+     * and triggers shipping.
+     * </p>
+     *
+     * <p>
+     * Stock is committed all-or-nothing via {@link StoreEngine#commitStock(List)}, which
+     * only locks the stripes of the products in this cart. The cart is locked while its
+     * stock is committed and the order is created, so no item can be added in between;
+     * shipping runs without any lock held.
+     * </p>
+     *
+     * <p>
+     * The history append is a write-ahead step: the order is recorded, the cart cleared and
+     * the order shipped only after it has been written. If the write fails, the stock is
+     * returned, the cart is kept and the {@link java.io.UncheckedIOException} is thrown to the caller.
+     * </p>
+     *
+     * <p>
+     * Stock held for cart lines (see {@link #addToCart(Product, int)}) is converted without
+     * re-validation; only quantities whose holds have expired are committed against current stock.
+     * If the checkout fails, the converted holds are reinstated, so the cart keeps its reservation.
+     * </p>
+     *
+     * <p>
+     * The order is handed to the shipping provider, which (by default) ships it in the
+     * background, so checkout latency does not depend on the carrier. Once the order has been
+     * created, a shipping failure is reported but does not fail the checkout: the order is
+     * still recorded and keeps its NEW status.
      * </p>
      *
      * @return {@code true} if checkout completed successfully; {@code false} otherwise
+     * @throws java.io.UncheckedIOException if the order could not be written to the history
      */
     public boolean checkout() {
-        if (customer == null) {
-            return false;
-        }
-
-        synchronized (engine) {
-            Cart cart = customer.getCart();
-            if (cart == null || cart.isEmpty()) {
-                return false;
-            }
+        return placeOrder() != null;
+    }
 
-            List<CartItem> items = cart.getItems();
+    /**
+     * Performs an idempotent checkout for the active customer's cart.
+     *
+     * <p>
+     * Repeating a call with the same request ID (e.g., a double click or a retry after a
+     * timeout) returns the order created by the first call instead of creating a second one.
+     * A repeat only reads a lock-free cache and takes no engine or cart lock. Concurrent calls
+     * with the same ID wait for the first one. Request IDs are remembered per customer for
+     * between half and all of {@link #CHECKOUT_DEDUP_TTL_MILLIS}. A failed checkout is not
+     * remembered, so it can be retried with the same ID.
+     * </p>
+     *
+     * @param requestId client-chosen ID of this checkout request (must not be {@code null} or blank)
+     * @return the created (or previously created) order, or {@code null} if checkout failed
+     * @throws IllegalArgumentException    if {@code requestId} is {@code null} or blank
+     * @throws java.io.UncheckedIOException if the order could not be written to the history
+     * @see #checkout()
+     */
+    public Order checkout(String requestId) {
+        if (requestId == null || requestId.trim().isEmpty()) {
+            throw new IllegalArgumentException("requestId cannot be null or blank");
+        }
+        if (customer == null || customer.getUsername() == null) {
+            return null;
+        }
 
-            for (CartItem item : items) {
-                if (item == null) return false;
+        // Scope IDs per customer so one customer's ID can never return another customer's order.
+        String key = customer.getUsername().trim().toLowerCase(Locale.ROOT) + '\n' + requestId;
+        return CHECKOUT_REQUESTS.execute(key, this::placeOrder);
+    }
 
-                Product p = item.getProduct();
-                int qty = item.getQuantity();
+    /**
+     * Runs the checkout steps described in {@link #checkout()}.
+     * The stock and order steps run under the engine's order creation lock, so a store
+     * snapshot never sees the stock of an order that is not in the history yet.
+     *
+     * @return the created order, or {@code null} if checkout failed
+     */
+    private Order placeOrder() {
+        if (customer == null) {
+            return null;
+        }
 
-                if (p == null || qty <= 0) return false;
-                if (p.getStock() < qty) return false;
-            }
+        Cart cart = customer.getCart();
+        if (cart == null || cart.isEmpty()) {
+            return null;
+        }
 
-            List<CartItem> decreased = new ArrayList<>();
-            for (CartItem item : items) {
-                Product p = item.getProduct();
-                int qty = item.getQuantity();
-
-                boolean ok = p.decreaseStock(qty);
-                if (!ok) {
-                    for (CartItem prev : decreased) {
-                        prev.getProduct().increaseStock(prev.getQuantity());
-                    }
-                    return false;
+        Order order;
+        Lock lock = cart.getLock();
+        Lock creation = engine.getOrderCreationLock();
+        lock.lock();
+        creation.lock();
+        try {
+            List<StockHold> converted = new ArrayList<>();
+            List<CartItem> excess = new ArrayList<>();
+            List<CartItem> missing = new ArrayList<>();
+
+            // Held quantities are already taken from stock; only lines whose holds expired
+            // (or were never placed) still need to be committed.
+            for (CartItem item : cart.getItemsView()) {
+                int heldQty = convertHolds(cart, item.getProduct(), converted);
+                int fromHolds = Math.min(heldQty, item.getQuantity());
+                if (heldQty > fromHolds) {
+                    excess.add(new CartItem(item.getProduct(), heldQty - fromHolds));
+                }
+                if (item.getQuantity() > fromHolds) {
+                    missing.add(new CartItem(item.getProduct(), item.getQuantity() - fromHolds));
                 }
-                decreased.add(item);
             }
 
-            Order order = engine.createOrderFromCustomer(customer);
-            if (order == null) {
-                for (CartItem item : decreased) {
-                    item.getProduct().increaseStock(item.getQuantity());
-                }
-                return false;
+            if (!missing.isEmpty() && !engine.commitStock(missing)) {
+                reinstateHolds(converted);
+                return null;
             }
 
             try {
-                shippingProvider.shipOrder(order);
+                order = engine.createOrderFromCustomer(customer, OrderHistoryIO::appendOrder);
             } catch (RuntimeException ex) {
-                System.err.println("Shipping failed: " + ex.getMessage());
-                return false;
+                reinstateHolds(converted);
+                engine.restoreStock(missing);
+                throw ex;
+            }
+            if (order == null) {
+                reinstateHolds(converted);
+                engine.restoreStock(missing);
+                return null;
             }
 
-            OrderHistoryIO.appendOrder(order);
-            return true;
+            // Only now are the holds done with: return over-held stock and drop the rest.
+            engine.restoreStock(excess);
+            releaseHoldsLocked(cart);
+        } finally {
+            creation.unlock();
+            lock.unlock();
         }
+
+        try {
+            shippingProvider.shipOrder(order);
+        } catch (RuntimeException ex) {
+            System.err.println("Shipping failed for order " + order.getOrderID() + ": " + ex.getMessage());
+        }
+
+        return order;
     }
 
     // ---------------------------------------------------------------------
@@ -379,16 +581,38 @@ public class StoreController {
     // ---------------------------------------------------------------------
 
     /**
-     * Adds a product to the active customer's cart.
+     * Adds a product to the active customer's cart and places a timed stock hold for it.
+     *
+     * <p>
+     * The quantity is reserved immediately, so the item cannot be sold to someone else while
+     * it sits in the cart. If the hold expires before checkout, its stock returns to the
+     * catalog and checkout re-validates that quantity.
+     * </p>
      *
      * @param product  the product to add
      * @param quantity the quantity to add
-     * @return {@code true} if the item was added; {@code false} otherwise
+     * @return {@code true} if the item was added; {@code false} otherwise (e.g., not enough stock)
      */
     public boolean addToCart(Product product, int quantity) {
-        if (customer == null) return false;
-        synchronized (engine) {
-            return customer.addToCart(product, quantity);
+        if (customer == null || product == null || quantity <= 0) return false;
+
+        Cart cart = customer.getCart();
+        Lock lock = cart.getLock();
+        lock.lock();
+        try {
+            StockHold hold = engine.placeHold(product, quantity);
+            if (hold == null) {
+                return false;
+            }
+
+            if (!cart.addItem(product, quantity)) {
+                engine.releaseHold(hold);
+                return false;
+            }
+            cart.addHold(hold);
+            return true;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -399,8 +623,12 @@ public class StoreController {
      */
     public List<CartItem> getItems() {
         if (customer == null) return new ArrayList<>();
-        synchronized (engine) {
+        Lock lock = customer.getCart().getLock();
+        lock.lock();
+        try {
             return customer.getItems();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -412,8 +640,79 @@ public class StoreController {
      */
     public boolean removeFromCart(Product product) {
         if (customer == null) return false;
-        synchronized (engine) {
-            return customer.removeFromCart(product);
+        Cart cart = customer.getCart();
+        Lock lock = cart.getLock();
+        lock.lock();
+        try {
+            if (!customer.removeFromCart(product)) {
+                return false;
+            }
+
+            for (StockHold h : cart.removeHolds(product)) {
+                engine.releaseHold(h);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases all stock holds of the active customer's cart (e.g., when the session ends).
+     * The cart itself is kept; its quantities are re-validated at checkout.
+     */
+    public void releaseHolds() {
+        if (customer == null) return;
+        Cart cart = customer.getCart();
+        Lock lock = cart.getLock();
+        lock.lock();
+        try {
+            releaseHoldsLocked(cart);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Converts the active holds of a product and returns the converted quantity.
+     * The caller holds the cart's lock.
+     *
+     * @param cart      the cart whose holds are converted
+     * @param product   the product whose holds should be converted
+     * @param converted receives the converted holds
+     * @return total quantity of the converted holds
+     */
+    private int convertHolds(Cart cart, Product product, List<StockHold> converted) {
+        int quantity = 0;
+        for (StockHold h : cart.getHolds(product)) {
+            if (engine.convertHold(h)) {
+                converted.add(h);
+                quantity += h.getQuantity();
+            }
+        }
+        return quantity;
+    }
+
+    /**
+     * Gives converted holds back to the cart as active holds after a failed checkout, so the
+     * cart keeps the stock it had reserved. The caller holds the cart's lock.
+     *
+     * @param converted holds converted by the failed checkout
+     */
+    private void reinstateHolds(List<StockHold> converted) {
+        for (StockHold h : converted) {
+            engine.reinstateHold(h);
+        }
+    }
+
+    /**
+     * Releases every remaining hold of a cart and forgets all its holds. The caller holds the cart's lock.
+     *
+     * @param cart the cart whose holds are released
+     */
+    private void releaseHoldsLocked(Cart cart) {
+        for (StockHold h : cart.removeAllHolds()) {
+            engine.releaseHold(h);
         }
     }
 
@@ -439,10 +738,8 @@ public class StoreController {
     public boolean addProduct(Product product) {
         if (!canManage() || product == null) return false;
 
-        synchronized (engine) {
-            engine.addProduct(product);
-            return true;
-        }
+        engine.addProduct(product);
+        return true;
     }
 
     /**
@@ -455,9 +752,7 @@ public class StoreController {
     public boolean increaseStock(Product product, int amount) {
         if (!canManage() || product == null || amount <= 0) return false;
 
-        synchronized (engine) {
-            return engine.increaseStock(product, amount);
-        }
+        return engine.increaseStock(product, amount);
     }
 
     /**
@@ -470,24 +765,17 @@ public class StoreController {
     public boolean decreaseStock(Product product, int amount) {
         if (!canManage() || product == null || amount <= 0) return false;
 
-        synchronized (engine) {
-            return engine.decreaseStock(product, amount);
-        }
+        return engine.decreaseStock(product, amount);
     }
 
     /**
      * Computes a product price after applying the currently active discount strategy.
      *
      * @param product the product whose price should be calculated
-     * @return the discounted price, or {@code 0.0} if {@code product} is {@code null}
-     */
-    public double getPriceAfterDiscount(Product product) {
-        if (product == null) return 0.0;
-        synchronized (engine) {
-            DiscountStrategy s = engine.getDiscountStrategy();
-            double base = product.getPrice();
-            return (s == null) ? base : s.apply(base);
-        }
+     * @return the discounted price in cents, or {@code 0} if {@code product} is {@code null}
+     */
+    public long getPriceAfterDiscountCents(Product product) {
+        return engine.getPriceAfterDiscountCents(product);
     }
 
 }
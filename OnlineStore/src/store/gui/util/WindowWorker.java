@@ -6,29 +6,34 @@
 package store.gui.util;
 
 import javax.swing.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
  * Utility for running tasks off the Swing EDT and updating the UI on the EDT.
+ *
+ * <p>
+ * Tasks of one worker run one at a time, in submission order, on virtual threads.
+ * No platform thread is kept per window: a virtual thread is started only while the
+ * worker has queued tasks, so a single JVM can host very many windows or simulated sessions.
+ * </p>
  */
 public final class WindowWorker {
 
-    private final ExecutorService executor;
+    private final SerialExecutor executor;
 
     /**
-     * Creates a single-thread worker for the owning window.
+     * Creates a worker for the owning window.
      *
-     * @param threadName name for the created worker thread
+     * @param threadName name for the virtual threads that run this worker's tasks
      */
     public WindowWorker(String threadName) {
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, threadName);
-            t.setDaemon(true);
-            return t;
-        });
+        this.executor = new SerialExecutor(Thread.ofVirtual().name(threadName).factory());
     }
 
     /**
@@ -39,7 +44,7 @@ public final class WindowWorker {
      * @param onError   runs on the Swing EDT if an error occurs (may be null)
      */
     public void runAsync(Runnable task, Runnable onSuccess, Consumer<Throwable> onError) {
-        executor.submit(() -> {
+        executor.execute(() -> {
             try {
                 task.run();
                 if (onSuccess != null) {
@@ -62,7 +67,7 @@ public final class WindowWorker {
      * @param <T>       result type
      */
     public <T> void runAsync(Supplier<T> task, Consumer<T> onSuccess, Consumer<Throwable> onError) {
-        executor.submit(() -> {
+        executor.execute(() -> {
             try {
                 T result = task.get();
                 if (onSuccess != null) {
@@ -77,9 +82,69 @@ public final class WindowWorker {
     }
 
     /**
-     * Stops the worker thread.
+     * Stops accepting tasks. Tasks already queued still run.
      */
     public void close() {
-        executor.shutdown();
+        executor.close();
+    }
+
+    /**
+     * Runs tasks one at a time, in submission order, on threads created on demand.
+     */
+    private static final class SerialExecutor implements Executor {
+
+        /** Creates the thread that drains the queue. */
+        private final ThreadFactory threadFactory;
+
+        /** Tasks waiting to run. */
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        /** Set while a thread is draining the queue. */
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+
+        /** Set once the executor no longer accepts tasks. */
+        private volatile boolean closed;
+
+        private SerialExecutor(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (closed) {
+                throw new RejectedExecutionException("worker is closed");
+            }
+            tasks.add(task);
+            startDrainIfIdle();
+        }
+
+        private void close() {
+            closed = true;
+        }
+
+        /**
+         * Starts a draining thread unless one is already running.
+         */
+        private void startDrainIfIdle() {
+            if (!tasks.isEmpty() && draining.compareAndSet(false, true)) {
+                threadFactory.newThread(this::drain).start();
+            }
+        }
+
+        /**
+         * Runs queued tasks until the queue is empty.
+         */
+        private void drain() {
+            try {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+            } finally {
+                draining.set(false);
+                // A task may have been queued after the last poll but before the flag was cleared.
+                startDrainIfIdle();
+            }
+        }
     }
 }
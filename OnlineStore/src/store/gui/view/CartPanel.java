@@ -6,6 +6,7 @@
 package store.gui.view;
 
 import store.cart.CartItem;
+import store.core.Money;
 import store.products.Product;
 
 import javax.swing.*;
@@ -81,7 +82,7 @@ public class CartPanel extends JPanel {
     /**
      * Updates the displayed cart items (rows).
      * <p>
-     * Note: Totals can be set accurately using {@link #setTotals(double, String, double)}.
+     * Note: Totals can be set accurately using {@link #setTotals(long, String, long)}.
      * This method keeps a safe default behavior (no-discount) if called alone.
      * </p>
      *
@@ -90,10 +91,10 @@ public class CartPanel extends JPanel {
     public void setItems(List<CartItem> items) {
         itemsPanel.removeAll();
 
-        double subtotal = 0.0;
+        long subtotal = 0L;
         for (CartItem item : items) {
             itemsPanel.add(createRow(item));
-            subtotal += item.getTotalPrice();
+            subtotal += item.getTotalPriceCents();
         }
 
         // Default (no discount) if totals aren't provided by the window/controller.
@@ -106,17 +107,17 @@ public class CartPanel extends JPanel {
     /**
      * Sets subtotal/discount/final total labels.
      *
-     * @param subtotal     subtotal before discount
+     * @param subtotal     subtotal before discount, in cents
      * @param discountText discount strategy display name (e.g. "10% off")
-     * @param finalTotal   total after discount
+     * @param finalTotal   total after discount, in cents
      */
-    public void setTotals(double subtotal, String discountText, double finalTotal) {
-        double discountAmount = Math.max(0.0, subtotal - finalTotal);
+    public void setTotals(long subtotal, String discountText, long finalTotal) {
+        long discountAmount = Math.max(0L, subtotal - finalTotal);
 
-        subtotalLabel.setText("Subtotal: " + currency.format(subtotal));
-        discountLabel.setText("Discount: " + currency.format(discountAmount)
+        subtotalLabel.setText("Subtotal: " + currency.format(Money.toDouble(subtotal)));
+        discountLabel.setText("Discount: " + currency.format(Money.toDouble(discountAmount))
                 + " (" + (discountText == null ? "" : discountText) + ")");
-        totalLabel.setText("Total: " + currency.format(finalTotal));
+        totalLabel.setText("Total: " + currency.format(Money.toDouble(finalTotal)));
     }
 
     /**
@@ -5,6 +5,7 @@
  */
 package store.gui.view;
 
+import store.core.Money;
 import store.core.SystemUpdatable;
 import store.gui.controller.StoreController;
 import store.products.Category;
@@ -187,7 +188,7 @@ public class CatalogManagementWindow extends JDialog implements SystemUpdatable
                     Product p = (Product) value;
                     label.setText(
                             p.getName() + " | " + p.getCategory()
-                                    + " | price: $" + p.getPrice()
+                                    + " | price: $" + Money.format(p.getPriceCents())
                                     + " | stock: " + p.getStock()
                     );
                 }
@@ -6,8 +6,12 @@
 package store.gui.view;
 
 import store.cart.CartItem;
+import store.core.Money;
+import store.core.StoreEvent;
+import store.core.StoreEventListener;
 import store.core.SystemUpdatable;
 import store.gui.controller.StoreController;
+import store.gui.util.WindowWorker;
 import store.order.Order;
 
 import javax.swing.*;
@@ -15,6 +19,7 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
 import java.util.List;
 
 /**
@@ -29,8 +34,15 @@ import java.util.List;
  *       additional "Customer" column is shown.</li>
  *   <li>Otherwise, only the current customer's orders are displayed.</li>
  * </ul>
+ *
+ * <p>
+ * Orders are read from the history file one page ({@value #PAGE_SIZE} orders) at a time on
+ * a background worker, so the history may be larger than the heap. While open, the dialog
+ * subscribes to {@link StoreEvent.OrderCreated} events and appends new orders to the last
+ * page instead of reloading it.
+ * </p>
  */
-public class OrderHistoryWindow extends JDialog implements SystemUpdatable {
+public class OrderHistoryWindow extends JDialog implements SystemUpdatable, StoreEventListener {
 
     /** Controller used to fetch orders. May be {@code null}. */
     private final StoreController controller;
@@ -47,6 +59,33 @@ public class OrderHistoryWindow extends JDialog implements SystemUpdatable {
     /** Closes the dialog. */
     private final JButton closeButton;
 
+    /** Shows the previous page. */
+    private final JButton previousButton;
+
+    /** Shows the next page. */
+    private final JButton nextButton;
+
+    /** Shows the current page number. */
+    private final JLabel pageLabel;
+
+    /** Number of orders shown per page. */
+    private static final int PAGE_SIZE = 100;
+
+    /** Background worker used to read history pages off the EDT. */
+    private final WindowWorker worker;
+
+    /** Zero-based index of the displayed page (EDT only). */
+    private int page;
+
+    /** Whether more orders follow the displayed page (EDT only). */
+    private boolean hasNextPage;
+
+    /** Whether a page is being read (EDT only). */
+    private boolean loading;
+
+    /** Whether orders were created while a page was being read (EDT only). */
+    private boolean reloadPending;
+
     /** Date-time formatter used for displaying order creation time. */
     private static final DateTimeFormatter DATE_TIME_FORMAT =
             DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
@@ -55,8 +94,8 @@ public class OrderHistoryWindow extends JDialog implements SystemUpdatable {
      * Creates a modal "Order History" dialog.
      *
      * <p>
-     * If a controller is provided, the dialog registers as an observer of the store engine
-     * and refreshes automatically upon model updates.
+     * If a controller is provided, the dialog subscribes to order-created events of the
+     * store engine and appends new orders automatically.
      * </p>
      *
      * @param parent     the parent frame used for modality and centering
@@ -66,17 +105,19 @@ public class OrderHistoryWindow extends JDialog implements SystemUpdatable {
         super(parent, "Order History", true);
 
         this.controller = controller;
+        this.worker = new WindowWorker("OrderHistory-WindowWorker-" + System.identityHashCode(this));
 
         if (this.controller != null) {
-            this.controller.getEngine().addObserver(this);
+            this.controller.getEngine().subscribe(this, EnumSet.of(StoreEvent.Type.ORDER_CREATED));
         }
 
         addWindowListener(new java.awt.event.WindowAdapter() {
             @Override
             public void windowClosed(java.awt.event.WindowEvent e) {
                 if (OrderHistoryWindow.this.controller != null) {
-                    OrderHistoryWindow.this.controller.getEngine().removeObserver(OrderHistoryWindow.this);
+                    OrderHistoryWindow.this.controller.getEngine().unsubscribe(OrderHistoryWindow.this);
                 }
+                worker.close();
             }
 
             @Override
@@ -108,14 +149,22 @@ public class OrderHistoryWindow extends JDialog implements SystemUpdatable {
         add(new JScrollPane(table), BorderLayout.CENTER);
 
         JPanel bottom = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        previousButton = new JButton("Previous");
+        pageLabel = new JLabel();
+        nextButton = new JButton("Next");
         refreshButton = new JButton("Refresh");
         closeButton = new JButton("Close");
 
+        bottom.add(previousButton);
+        bottom.add(pageLabel);
+        bottom.add(nextButton);
         bottom.add(refreshButton);
         bottom.add(closeButton);
 
         add(bottom, BorderLayout.SOUTH);
 
+        previousButton.addActionListener(e -> showPage(page - 1));
+        nextButton.addActionListener(e -> showPage(page + 1));
         refreshButton.addActionListener(e -> refreshOrders());
         closeButton.addActionListener(e -> dispose());
 
@@ -123,7 +172,7 @@ public class OrderHistoryWindow extends JDialog implements SystemUpdatable {
     }
 
     /**
-     * Reloads the table contents from the controller.
+     * Reloads the displayed page from the controller.
      *
      * <p>
      * If the controller is {@code null}, the method does nothing. The table columns
@@ -131,39 +180,99 @@ public class OrderHistoryWindow extends JDialog implements SystemUpdatable {
      * </p>
      */
     public void refreshOrders() {
-        tableModel.setRowCount(0);
+        showPage(page);
+    }
 
-        if (controller == null) return;
+    /**
+     * Reads a page of the history on the background worker and displays it.
+     *
+     * <p>
+     * One extra order is read to find out whether a next page exists. Must be called on the EDT.
+     * </p>
+     *
+     * @param index zero-based page index (ignored if negative)
+     */
+    private void showPage(int index) {
+        if (controller == null || index < 0) return;
+
+        loading = true;
+        reloadPending = false;
+        updatePaging();
+
+        worker.runAsync(
+                () -> controller.getOrderHistoryPage(index * PAGE_SIZE, PAGE_SIZE + 1),
+                orders -> {
+                    loading = false;
+                    page = index;
+                    fillTable(orders);
+                    if (reloadPending) {
+                        showPage(page);
+                    }
+                },
+                ex -> {
+                    loading = false;
+                    updatePaging();
+                    JOptionPane.showMessageDialog(
+                            this,
+                            "Failed to read the order history:\n" + ex.getMessage(),
+                            "IO Error",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                }
+        );
+    }
 
-        boolean isManager = controller.canManage();
+    /**
+     * Replaces the table contents with a page of orders.
+     *
+     * @param orders the page, possibly followed by the first order of the next page
+     */
+    private void fillTable(List<Order> orders) {
+        tableModel.setRowCount(0);
 
-        List<Order> orders = isManager
-                ? controller.getAllOrders()
-                : controller.getCustomerOrders();
+        boolean isManager = controller.canManage();
+        hasNextPage = orders.size() > PAGE_SIZE;
 
-        if (orders == null || orders.isEmpty()) {
-            return;
+        for (int i = 0; i < Math.min(orders.size(), PAGE_SIZE); i++) {
+            Order o = orders.get(i);
+            if (o == null) continue;
+            addOrderRow(o, isManager);
         }
+        updatePaging();
+    }
 
-        for (Order o : orders) {
-            if (o == null) continue;
+    /**
+     * Updates the page label and the enabled state of the paging buttons.
+     */
+    private void updatePaging() {
+        pageLabel.setText("Page " + (page + 1));
+        previousButton.setEnabled(!loading && page > 0);
+        nextButton.setEnabled(!loading && hasNextPage);
+        refreshButton.setEnabled(!loading);
+    }
 
-            if (isManager) {
-                tableModel.addRow(new Object[]{
-                        o.getCustomerUsername(),
-                        o.getOrderID(),
-                        String.format("%.2f", o.getTotalAmount()),
-                        formatDateTime(o.getCreatedAt()),
-                        buildItemsSummary(o)
-                });
-            } else {
-                tableModel.addRow(new Object[]{
-                        o.getOrderID(),
-                        String.format("%.2f", o.getTotalAmount()),
-                        formatDateTime(o.getCreatedAt()),
-                        buildItemsSummary(o)
-                });
-            }
+    /**
+     * Appends a single order to the table.
+     *
+     * @param o         the order to display
+     * @param isManager whether the manager column layout is used
+     */
+    private void addOrderRow(Order o, boolean isManager) {
+        if (isManager) {
+            tableModel.addRow(new Object[]{
+                    o.getCustomerUsername(),
+                    o.getOrderID(),
+                    Money.format(o.getTotalCents()),
+                    formatDateTime(o.getCreatedAt()),
+                    buildItemsSummary(o)
+            });
+        } else {
+            tableModel.addRow(new Object[]{
+                    o.getOrderID(),
+                    Money.format(o.getTotalCents()),
+                    formatDateTime(o.getCreatedAt()),
+                    buildItemsSummary(o)
+            });
         }
     }
 
@@ -212,14 +321,45 @@ public class OrderHistoryWindow extends JDialog implements SystemUpdatable {
     }
 
     /**
-     * Receives model-change notifications from the store engine and refreshes the table.
+     * Reloads the displayed page on the Swing Event Dispatch Thread (EDT).
+     */
+    @Override
+    public void update() {
+        SwingUtilities.invokeLater(this::refreshOrders);
+    }
+
+    /**
+     * Receives order-created events and appends the orders visible to the current user.
      *
      * <p>
-     * The refresh is executed on the Swing Event Dispatch Thread (EDT).
+     * Rows are appended on the Swing Event Dispatch Thread (EDT), and only while the last
+     * page is displayed; once it is full, the orders continue on the next page. Orders
+     * created while a page is being read cause it to be read again.
      * </p>
+     *
+     * @param events the delivered order-created events
      */
     @Override
-    public void update() {
-        SwingUtilities.invokeLater(this::refreshOrders);
+    public void onEvents(List<StoreEvent> events) {
+        if (controller == null) return;
+
+        SwingUtilities.invokeLater(() -> {
+            boolean isManager = controller.canManage();
+            for (StoreEvent e : events) {
+                if (!(e instanceof StoreEvent.OrderCreated)) continue;
+
+                Order o = ((StoreEvent.OrderCreated) e).getOrder();
+                if (o == null || !(isManager || controller.isCustomerOrder(o))) continue;
+
+                if (loading) {
+                    reloadPending = true;
+                } else if (hasNextPage || tableModel.getRowCount() >= PAGE_SIZE) {
+                    hasNextPage = true;
+                } else {
+                    addOrderRow(o, isManager);
+                }
+            }
+            updatePaging();
+        });
     }
 }
@@ -6,6 +6,7 @@
 
 package store.gui.view;
 
+import store.core.Money;
 import store.products.Product;
 
 import javax.imageio.ImageIO;
@@ -168,7 +169,7 @@ public class ProductDetailsPanel extends JPanel {
         }
 
         nameLabel.setText("Name: " + safeText(product.getDisplayName()));
-        priceLabel.setText("Price: " + product.getPrice() + "$");
+        priceLabel.setText("Price: " + Money.format(product.getPriceCents()) + "$");
         stockLabel.setText("Stock: " + product.getStock());
 
         String desc = (product.getDescription() == null) ? "" : product.getDescription();
@@ -5,6 +5,7 @@
  */
 package store.gui.view;
 
+import store.core.Money;
 import store.gui.controller.StoreController;
 import store.products.Product;
 
@@ -178,6 +179,24 @@ public class ProductPanel extends JPanel {
         return product;
     }
 
+    /**
+     * Re-renders the stock-dependent parts of the card (badge, colors and tooltip)
+     * after the product's stock changed. Must be called on the Swing EDT.
+     */
+    public void refreshStock() {
+        applyStockUi();
+        setToolTipText(buildTooltip());
+    }
+
+    /**
+     * Re-renders the displayed price after the store discount changed.
+     * Must be called on the Swing EDT.
+     */
+    public void refreshPrice() {
+        applyDiscountUi();
+        setToolTipText(buildTooltip());
+    }
+
     /**
      * Updates the displayed price according to the currently active discount strategy.
      *
@@ -193,20 +212,20 @@ public class ProductPanel extends JPanel {
             return;
         }
 
-        double base = product.getPrice();
-        double discounted = base;
+        long base = product.getPriceCents();
+        long discounted = base;
 
         if (controller != null) {
-            discounted = controller.getPriceAfterDiscount(product);
+            discounted = controller.getPriceAfterDiscountCents(product);
         }
 
-        priceLabel.setText(currency.format(discounted));
+        priceLabel.setText(currency.format(Money.toDouble(discounted)));
 
-        boolean hasDiscount = Math.abs(discounted - base) > 1e-9 && discounted < base;
+        boolean hasDiscount = discounted < base;
 
         if (hasDiscount && controller != null) {
             String strategyName = controller.getDiscountDisplayName();
-            originalPriceLabel.setText("<html><strike>" + currency.format(base) + "</strike> &nbsp;(" + strategyName + ")</html>");
+            originalPriceLabel.setText("<html><strike>" + currency.format(Money.toDouble(base)) + "</strike> &nbsp;(" + strategyName + ")</html>");
         } else {
             originalPriceLabel.setText("");
         }
@@ -242,14 +261,15 @@ public class ProductPanel extends JPanel {
         desc = desc.trim();
         if (desc.length() > 180) desc = desc.substring(0, 180) + "...";
 
-        double base = product.getPrice();
-        double discounted = (controller == null) ? base : controller.getPriceAfterDiscount(product);
+        long base = product.getPriceCents();
+        long discounted = (controller == null) ? base : controller.getPriceAfterDiscountCents(product);
 
         String priceText;
-        if (Math.abs(discounted - base) > 1e-9 && discounted < base && controller != null) {
-            priceText = currency.format(discounted) + " (" + controller.getDiscountDisplayName() + "), was " + currency.format(base);
+        if (discounted < base && controller != null) {
+            priceText = currency.format(Money.toDouble(discounted)) + " (" + controller.getDiscountDisplayName()
+                    + "), was " + currency.format(Money.toDouble(base));
         } else {
-            priceText = currency.format(base);
+            priceText = currency.format(Money.toDouble(base));
         }
 
         return "<html>"
@@ -6,6 +6,8 @@
 package store.gui.view;
 
 import store.cart.CartItem;
+import store.core.StoreEvent;
+import store.core.StoreEventListener;
 import store.core.SystemUpdatable;
 import store.gui.controller.StoreController;
 import store.gui.util.WindowWorker;
@@ -20,7 +22,10 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Main GUI window of the online store.
@@ -36,11 +41,14 @@ import java.util.List;
  * </ul>
  *
  * <p>
- * The window observes model changes via {@link SystemUpdatable}. When the underlying store state
- * changes, {@link #update()} refreshes the relevant UI components on the Swing EDT.
+ * The window subscribes to typed model events ({@link StoreEventListener}) and applies them
+ * incrementally on the Swing EDT: a stock change only re-renders the affected product card,
+ * a discount change only re-renders prices and cart totals, and only catalog membership
+ * changes rebuild the grid. {@link #update()} ({@link SystemUpdatable}) remains available
+ * as a full refresh.
  * </p>
  */
-public class StoreWindow extends JFrame implements SystemUpdatable {
+public class StoreWindow extends JFrame implements SystemUpdatable, StoreEventListener {
 
     /** Singleton instance for the manager window. */
     private static StoreWindow managerInstance;
@@ -60,9 +68,15 @@ public class StoreWindow extends JFrame implements SystemUpdatable {
     /** Shopping cart panel (customer only; {@code null} for manager sessions). */
     private CartPanel cartPanel;
 
+    /** Product cards currently shown in the grid, by product identity. */
+    private final Map<Product, ProductPanel> productPanels = new IdentityHashMap<>();
+
     /** Guards against scheduling multiple full UI refreshes concurrently. */
     private boolean refreshQueued = false;
 
+    /** Catalog version the grid was last built from (EDT only). */
+    private long shownCatalogVersion = -1L;
+
     private final JButton loadButton = new JButton("Load");
     private final JButton saveButton = new JButton("Save");
     private final JButton manageCatalogButton = new JButton("Manage Catalog");
@@ -114,8 +128,8 @@ public class StoreWindow extends JFrame implements SystemUpdatable {
      * Constructs the main store window for either a customer or manager session.
      *
      * <p>
-     * The window registers as an observer of the store engine and releases resources
-     * (observer registration and worker thread) when closed.
+     * The window subscribes to store events and releases resources
+     * (event subscription, stock holds of the cart and worker thread) when closed.
      * </p>
      *
      * @param storeController the store controller used by this window (must not be {@code null})
@@ -131,12 +145,17 @@ public class StoreWindow extends JFrame implements SystemUpdatable {
         String roleName = controller.canManage() ? "Manager" : "Customer";
         this.worker = new WindowWorker(roleName + "-WindowWorker-" + System.identityHashCode(this));
 
-        this.controller.getEngine().addObserver(this);
+        this.controller.getEngine().subscribe(this, EnumSet.of(
+                StoreEvent.Type.PRODUCT_ADDED,
+                StoreEvent.Type.PRODUCT_REMOVED,
+                StoreEvent.Type.STOCK_CHANGED,
+                StoreEvent.Type.DISCOUNT_CHANGED));
 
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosed(WindowEvent e) {
-                controller.getEngine().removeObserver(StoreWindow.this);
+                controller.getEngine().unsubscribe(StoreWindow.this);
+                controller.releaseHolds();
                 worker.close();
             }
 
@@ -372,8 +391,8 @@ public class StoreWindow extends JFrame implements SystemUpdatable {
 
         cartPanel.setItems(items);
 
-        double subtotal = controller.getCartSubtotal();
-        double finalTotal = controller.getCartTotalAfterDiscount();
+        long subtotal = controller.getCartSubtotalCents();
+        long finalTotal = controller.getCartTotalAfterDiscountCents();
         String discountText = controller.getDiscountDisplayName();
 
         cartPanel.setTotals(subtotal, discountText, finalTotal);
@@ -384,7 +403,7 @@ public class StoreWindow extends JFrame implements SystemUpdatable {
      *
      * <p>
      * Operations that modify model state are executed asynchronously via {@link WindowWorker}.
-     * The catalog view itself is refreshed through observer notifications ({@link #update()}),
+     * The catalog view itself is refreshed through store events ({@link #onEvents(List)}),
      * while this method updates cart/details immediately for responsiveness.
      * </p>
      */
@@ -508,9 +527,11 @@ public class StoreWindow extends JFrame implements SystemUpdatable {
      */
     public void setCatalogProducts(List<Product> products) {
         catalogPanel.removeAll();
+        productPanels.clear();
 
         for (Product p : products) {
             ProductPanel panel = new ProductPanel(p, controller);
+            productPanels.put(p, panel);
 
             panel.addMouseListener(new MouseAdapter() {
                 @Override
@@ -561,21 +582,19 @@ public class StoreWindow extends JFrame implements SystemUpdatable {
 
         Object selected = categoryCombo.getSelectedItem();
 
-        List<Product> all = controller.getAllProducts();
+        shownCatalogVersion = controller.getCatalogVersion();
+        List<Product> candidates = (selected instanceof Category)
+                ? controller.getProductsByCategory((Category) selected)
+                : controller.getAllProducts();
         java.util.List<Product> filtered = new java.util.ArrayList<>();
 
-        for (Product p : all) {
+        for (Product p : candidates) {
             if (p == null) continue;
 
             String name = (p.getName() == null) ? "" : p.getName();
             boolean matchName = text.isEmpty() || name.toLowerCase().contains(text);
 
-            boolean matchCategory =
-                    selected == null ||
-                            "All".equals(selected) ||
-                            p.getCategory() == selected;
-
-            if (matchName && matchCategory) {
+            if (matchName) {
                 filtered.add(p);
             }
         }
@@ -599,10 +618,11 @@ public class StoreWindow extends JFrame implements SystemUpdatable {
     }
 
     /**
-     * Receives model-change notifications from the store engine and refreshes relevant UI components.
+     * Fully refreshes the catalog grid and cart totals from the current model state.
      *
      * <p>
-     * Multiple rapid update events are coalesced to prevent flooding the EDT with repeated refreshes.
+     * Multiple rapid calls are coalesced to prevent flooding the EDT with repeated refreshes.
+     * Regular model changes are applied incrementally by {@link #onEvents(List)} instead.
      * </p>
      */
     @Override
@@ -623,6 +643,75 @@ public class StoreWindow extends JFrame implements SystemUpdatable {
         });
     }
 
+    /**
+     * Receives typed model events from the store engine and applies them incrementally on the EDT.
+     *
+     * @param events the events delivered for this tick
+     */
+    @Override
+    public void onEvents(List<StoreEvent> events) {
+        SwingUtilities.invokeLater(() -> applyEvents(events));
+    }
+
+    /**
+     * Applies a tick's events to the UI. Must be called on the Swing EDT.
+     *
+     * <p>
+     * Catalog membership changes re-apply the filters (rebuilding the grid) unless the grid already
+     * shows the current catalog version; otherwise only the
+     * cards of products whose stock changed are re-rendered. A discount change re-renders every
+     * card's price and the cart totals.
+     * </p>
+     *
+     * @param events the events to apply
+     */
+    private void applyEvents(List<StoreEvent> events) {
+        boolean catalogChanged = false;
+        boolean discountChanged = false;
+
+        for (StoreEvent e : events) {
+            switch (e.getType()) {
+                case PRODUCT_ADDED:
+                case PRODUCT_REMOVED:
+                    catalogChanged = true;
+                    break;
+                case DISCOUNT_CHANGED:
+                    discountChanged = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // The grid may already show the current catalog version (e.g. after a full refresh).
+        if (catalogChanged && controller.hasCatalogChangedSince(shownCatalogVersion)) {
+            applyFilters();
+        } else {
+            for (StoreEvent e : events) {
+                if (!(e instanceof StoreEvent.StockChanged)) continue;
+
+                Product p = ((StoreEvent.StockChanged) e).getProduct();
+                ProductPanel panel = productPanels.get(p);
+                if (panel != null) {
+                    panel.refreshStock();
+                }
+                if (detailsPanel != null && detailsPanel.getProduct() == p) {
+                    detailsPanel.setProduct(p);
+                }
+            }
+
+            if (discountChanged) {
+                for (ProductPanel panel : productPanels.values()) {
+                    panel.refreshPrice();
+                }
+            }
+        }
+
+        if (discountChanged && cartPanel != null) {
+            updateCartTotals(controller.getItems());
+        }
+    }
+
     /**
      * Immutable UI snapshot used to update the view after background operations.
      */
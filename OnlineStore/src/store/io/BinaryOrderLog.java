@@ -0,0 +1,880 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.io;
+
+import store.cart.CartItem;
+import store.engine.StoreEngine;
+import store.order.Order;
+import store.products.Product;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary order log format: length-prefixed, checksummed records replayed through a memory map.
+ *
+ * <h3>Layout</h3>
+ * <p>
+ * The file starts with the magic bytes {@code OSOL} and a one-byte format version
+ * ({@value #VERSION}). Each record follows as:
+ * </p>
+ * <ul>
+ *   <li>{@code int} payload length and {@code int} CRC-32C of the payload</li>
+ *   <li>payload: {@code long} order ID, {@code long} creation time (epoch seconds, UTC),
+ *       {@code long} total in cents, username, {@code int} item count, and for each item the
+ *       product reference ({@code int} product ID and name), {@code int} quantity and
+ *       {@code long} unit price in cents</li>
+ * </ul>
+ * <p>
+ * Version 1 logs have no product IDs in their items. They are still read (items are then
+ * resolved by name), and {@link #prepareForAppend(Path)} rewrites them in the current version
+ * before new records are appended.
+ * </p>
+ * <p>
+ * Strings are stored as an {@code int} byte length followed by UTF-8 bytes, so names may
+ * contain any character (no CSV escaping). Numbers are big-endian.
+ * </p>
+ *
+ * <h3>Replay</h3>
+ * <p>
+ * {@link #replay(Path, StoreEngine)} and {@link #stream} map the file read-only, one window
+ * at a time, and decode records in place. Items are re-linked with
+ * {@link StoreEngine#findProductById(int)}, falling back to the name for items whose ID is
+ * unknown.
+ * It stops at the first record that is incomplete (a torn write) or fails its checksum; the
+ * invalid tail is copied to a {@code .corrupt} file next to the log and cut off, so new
+ * appends follow the last valid record. The mapping is released before the cut, since some
+ * platforms refuse to truncate a mapped file. If the tail cannot be cut,
+ * {@link #prepareForAppend(Path)} refuses the log, so no record is ever appended after
+ * invalid bytes (where replay would never reach it).
+ * </p>
+ */
+final class BinaryOrderLog {
+
+    /** File magic ({@code "OSOL"}). */
+    private static final byte[] MAGIC = {'O', 'S', 'O', 'L'};
+
+    /** Current format version. */
+    static final byte VERSION = 2;
+
+    /** Oldest format version that can still be read. */
+    private static final byte MIN_VERSION = 1;
+
+    /** Size of the file header (magic + version). */
+    static final int HEADER_BYTES = MAGIC.length + 1;
+
+    /** Size of a record header (length + checksum). */
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /** Largest accepted record payload; larger lengths are treated as corruption. */
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    /** Largest region mapped at once (files above this size are replayed in windows). */
+    private static final long MAX_MAP_BYTES = 1L << 30;
+
+    /** Logs (absolute paths) known to end with a valid record, i.e. safe to append to. */
+    private static final Set<Path> VALID_TAIL = ConcurrentHashMap.newKeySet();
+
+    /** {@code sun.misc.Unsafe} instance used to release mappings, or {@code null} if unavailable. */
+    private static final Object UNSAFE;
+
+    /** {@code Unsafe.invokeCleaner(ByteBuffer)}, or {@code null} if unavailable. */
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // Mappings are then released by the garbage collector only.
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private BinaryOrderLog() {}
+
+    /**
+     * Returns the file header to write at the start of a new log.
+     *
+     * @return magic and version bytes
+     */
+    static byte[] header() {
+        byte[] header = new byte[HEADER_BYTES];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        header[MAGIC.length] = VERSION;
+        return header;
+    }
+
+    /**
+     * Encodes an order as one framed record (length, checksum and payload).
+     * <p>
+     * {@code null} items and items without a product are skipped. The unit price is the
+     * one recorded in the order line at checkout, so re-encoding an old order (snapshot,
+     * conversion) keeps the price that was paid.
+     * </p>
+     *
+     * @param order order to encode (must not be {@code null})
+     * @return encoded record
+     * @throws IllegalArgumentException if the record would exceed the maximum record size
+     */
+    static byte[] encode(Order order) {
+        byte[] username = order.getCustomerUsername().getBytes(StandardCharsets.UTF_8);
+
+        List<CartItem> items = order.getItems();
+        CartItem[] lines = new CartItem[items.size()];
+        byte[][] names = new byte[items.size()][];
+        int count = 0;
+        long payload = 8 + 8 + 8 + 4 + username.length + 4;
+        for (CartItem item : items) {
+            if (item == null || item.getProduct() == null) continue;
+
+            lines[count] = item;
+            names[count] = item.getProduct().getName().getBytes(StandardCharsets.UTF_8);
+            payload += 4 + 4 + names[count].length + 4 + 8;
+            count++;
+        }
+        if (payload > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Order " + order.getOrderID() + " is too large for the order log");
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER_BYTES + (int) payload);
+        buf.putInt((int) payload).putInt(0);
+        buf.putLong(order.getOrderID())
+                .putLong(order.getCreatedAt().toEpochSecond(ZoneOffset.UTC))
+                .putLong(order.getTotalCents());
+        putString(buf, username);
+        buf.putInt(count);
+        for (int i = 0; i < count; i++) {
+            buf.putInt(lines[i].getProduct().getId());
+            putString(buf, names[i]);
+            buf.putInt(lines[i].getQuantity())
+                    .putLong(lines[i].getUnitPriceCents());
+        }
+        return seal(buf);
+    }
+
+    /**
+     * Fills in the checksum of a framed record.
+     *
+     * @param buf record buffer (length at 0, checksum at 4, payload after the record header)
+     * @return the record bytes
+     */
+    private static byte[] seal(ByteBuffer buf) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.array(), RECORD_HEADER_BYTES, buf.capacity() - RECORD_HEADER_BYTES);
+        buf.putInt(4, (int) crc.getValue());
+        return buf.array();
+    }
+
+    /**
+     * Re-encodes a version 1 record payload in the current version. The items get product ID 0
+     * (unknown), so they keep being resolved by name.
+     *
+     * @param payload version 1 payload (position at its start)
+     * @return framed record in the current version
+     * @throws BufferUnderflowException if the payload is shorter than its content
+     * @throws IllegalArgumentException if a field is invalid
+     */
+    private static byte[] upgradeRecord(ByteBuffer payload) {
+        ByteBuffer in = payload.duplicate();
+        in.position(8 + 8 + 8);
+        in.position(in.position() + 4 + in.getInt(in.position()));
+        int count = in.getInt();
+        if (count < 0 || count > (MAX_RECORD_BYTES - payload.remaining()) / 4) {
+            throw new IllegalArgumentException("invalid item count " + count);
+        }
+        int fixed = in.position();
+
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.remaining() + 4 * count);
+        buf.putInt(buf.capacity() - RECORD_HEADER_BYTES).putInt(0);
+        buf.put(payload.duplicate().limit(payload.position() + fixed));
+        for (int i = 0; i < count; i++) {
+            int itemStart = in.position();
+            in.position(itemStart + 4 + in.getInt(itemStart) + 4 + 8);
+            buf.putInt(0).put(in.duplicate().position(itemStart).limit(in.position()));
+        }
+        return seal(buf);
+    }
+
+    /**
+     * Writes a complete log holding the given orders, replacing {@code file} atomically.
+     *
+     * @param file   log file to create or replace
+     * @param orders orders to write, in order
+     * @throws IOException if the log cannot be written
+     */
+    static void write(Path file, List<Order> orders) throws IOException {
+        Iterator<Order> it = orders.iterator();
+        Path tmp = tempFile(file);
+        writeRecords(tmp, () -> it.hasNext() ? encode(it.next()) : null);
+        moveIntoPlace(tmp, file);
+        VALID_TAIL.add(key(file));
+    }
+
+    /**
+     * Rewrites a version 1 log in the current version, replacing it atomically, so new
+     * records can be appended to it. Logs already in the current version are left unchanged.
+     * An invalid tail is reported, saved and dropped, as by {@link #replay}.
+     *
+     * @param file log file (ignored if it does not exist or is empty)
+     * @throws IOException if the file cannot be read or rewritten, is not an order log,
+     *                     or has an unsupported version
+     */
+    private static void upgrade(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+
+        Path tmp = tempFile(file);
+        long size;
+        RecordReader reader;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = ch.size();
+            if (size == 0 || checkHeader(ch, size, file) == VERSION) {
+                return;
+            }
+
+            reader = new RecordReader(ch, HEADER_BYTES, size, null, HistoryFilter.ALL, MIN_VERSION);
+            writeRecords(tmp, () -> {
+                long recordStart = reader.windowStart + reader.pos;
+                ByteBuffer payload = reader.nextPayload();
+                if (payload == null) {
+                    return null;
+                }
+                try {
+                    return upgradeRecord(payload);
+                } catch (BufferUnderflowException | IllegalArgumentException ex) {
+                    reader.fail("malformed record (" + ex + ")", recordStart);
+                    return null;
+                }
+            });
+            reader.unmap();
+        }
+
+        if (reader.problem != null) {
+            System.err.println("Order log " + file + ": " + reader.problem + " at offset " + reader.problemOffset
+                    + "; ignoring the last " + (size - reader.problemOffset) + " bytes");
+            saveTail(file, reader.problemOffset);
+        }
+        moveIntoPlace(tmp, file);
+        VALID_TAIL.add(key(file));
+    }
+
+    /**
+     * Makes a log safe to append to: upgrades a version 1 log, and checks that the log ends
+     * with a valid record, cutting off an invalid tail. Logs already replayed to their end
+     * (or repaired) are not scanned again.
+     *
+     * @param file log file (nothing to do if it does not exist or is empty)
+     * @throws IOException if the log cannot be read, is not an order log, or ends with invalid
+     *                     bytes that could not be cut off (appending after them would make every
+     *                     new record unreadable)
+     */
+    static void prepareForAppend(Path file) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) == 0) {
+            return;
+        }
+
+        upgrade(file);
+        if (VALID_TAIL.contains(key(file))) {
+            return;
+        }
+
+        long size;
+        RecordReader reader;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = ch.size();
+            byte version = checkHeader(ch, size, file);
+            reader = new RecordReader(ch, HEADER_BYTES, size, null, HistoryFilter.ALL, version);
+            while (reader.nextPayload() != null) {
+                // checksum every record
+            }
+            reader.unmap();
+        }
+        finishScan(file, size, reader);
+
+        if (!VALID_TAIL.contains(key(file))) {
+            throw new IOException("Order log " + file + " ends with invalid bytes that could not be cut off;"
+                    + " refusing to append after them");
+        }
+    }
+
+    /**
+     * Supplies framed records to {@link #writeRecords}.
+     */
+    private interface RecordSource {
+        /**
+         * Returns the next record.
+         *
+         * @return record bytes, or {@code null} after the last record
+         * @throws IOException if the record cannot be read
+         */
+        byte[] next() throws IOException;
+    }
+
+    /**
+     * Returns the temporary file a log is written to before it replaces {@code file}.
+     *
+     * @param file log file
+     * @return sibling {@code .tmp} path
+     */
+    private static Path tempFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    /**
+     * Writes a complete log (header and records) to a file and forces it to disk.
+     *
+     * @param tmp     file to create or overwrite
+     * @param records records to write, in order
+     * @throws IOException if the log cannot be written
+     */
+    private static void writeRecords(Path tmp, RecordSource records) throws IOException {
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocateDirect(64 * 1024);
+            out.put(header());
+            byte[] record;
+            while ((record = records.next()) != null) {
+                if (out.remaining() < record.length) {
+                    drain(ch, out);
+                }
+                if (out.remaining() < record.length) {
+                    ch.write(ByteBuffer.wrap(record));
+                } else {
+                    out.put(record);
+                }
+            }
+            drain(ch, out);
+            ch.force(true);
+        }
+    }
+
+    /**
+     * Replaces a log with a completely written temporary file, atomically where supported.
+     *
+     * @param tmp  written temporary file
+     * @param file log file to replace
+     * @throws IOException if the file cannot be moved
+     */
+    private static void moveIntoPlace(Path tmp, Path file) throws IOException {
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Replays a log into orders.
+     * <p>
+     * Product references are resolved by ID, or by name for items without a known ID;
+     * items whose product is no longer in the catalog are skipped (as with the CSV history).
+     * An invalid tail is reported on {@code System.err}, saved and cut off (see class comment).
+     * </p>
+     *
+     * @param file   log file
+     * @param engine engine used to resolve products (may be {@code null})
+     * @return replayed orders in log order (empty if the file is empty)
+     * @throws IOException if the file cannot be read, is not an order log, or has an unsupported version
+     */
+    static List<Order> replay(Path file, StoreEngine engine) throws IOException {
+        List<Order> orders = new ArrayList<>();
+        replay(file, engine, orders::add);
+        return orders;
+    }
+
+    /**
+     * Replays a log, passing each order to a callback instead of collecting them,
+     * so that the whole log never has to be in memory. Otherwise as {@link #replay(Path, StoreEngine)}.
+     *
+     * @param file   log file
+     * @param engine engine used to resolve products (may be {@code null})
+     * @param action receives the replayed orders in log order
+     * @throws IOException if the file cannot be read, is not an order log, or has an unsupported version
+     */
+    static void replay(Path file, StoreEngine engine, Consumer<? super Order> action) throws IOException {
+        replay(file, engine, HEADER_BYTES, action);
+    }
+
+    /**
+     * Replays the records of a log that start at or after a given offset (e.g., the records
+     * appended after a snapshot). Otherwise as {@link #replay(Path, StoreEngine)}.
+     *
+     * @param file   log file
+     * @param engine engine used to resolve products (may be {@code null})
+     * @param from   offset of the first record to replay (a record boundary, at least {@link #HEADER_BYTES})
+     * @param action receives the replayed orders in log order
+     * @throws IOException              if the file cannot be read, is not an order log, or has an unsupported version
+     * @throws IllegalArgumentException if {@code from} is before the first record
+     */
+    static void replay(Path file, StoreEngine engine, long from, Consumer<? super Order> action)
+            throws IOException {
+        if (from < HEADER_BYTES) {
+            throw new IllegalArgumentException("from must be >= " + HEADER_BYTES);
+        }
+
+        long size;
+        RecordReader reader;
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = ch.size();
+            if (size == 0) {
+                return;
+            }
+            byte version = checkHeader(ch, size, file);
+
+            reader = new RecordReader(ch, from, size, engine, HistoryFilter.ALL, version);
+            try {
+                while (reader.next(action)) {
+                    // replay every valid record
+                }
+            } finally {
+                reader.unmap();
+            }
+        }
+        finishScan(file, size, reader);
+    }
+
+    /**
+     * Records the outcome of a scan that read a log to its end or to its first invalid record:
+     * an invalid tail is reported, saved and cut off; otherwise the log is marked appendable.
+     *
+     * @param file   log file
+     * @param size   file size when the scan started
+     * @param reader the finished reader (its mapping already released)
+     */
+    private static void finishScan(Path file, long size, RecordReader reader) {
+        if (reader.problem == null) {
+            VALID_TAIL.add(key(file));
+            return;
+        }
+        System.err.println("Order log " + file + ": " + reader.problem + " at offset " + reader.problemOffset
+                + "; ignoring the last " + (size - reader.problemOffset) + " bytes");
+        discardTail(file, reader.problemOffset);
+    }
+
+    /**
+     * Returns the key of a log in {@link #VALID_TAIL}.
+     *
+     * @param file log file
+     * @return absolute, normalized path
+     */
+    private static Path key(Path file) {
+        return file.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Opens a lazy stream over the records in the bytes {@code [from, size)} of a log.
+     * <p>
+     * Records are read one mapped window at a time and decoded as the stream is consumed;
+     * the filter is applied before items are decoded. The stream ends at the first invalid
+     * record (the tail is repaired by the next {@link #replay}). The stream must be closed
+     * to release the file.
+     * </p>
+     *
+     * @param file   log file
+     * @param from   offset of the first record (a record boundary; 0 for the whole log)
+     * @param size   end of the range to read (the file size when the stream was requested)
+     * @param engine engine used to resolve products (may be {@code null})
+     * @param filter records to return
+     * @return orders in log order
+     * @throws IOException if the file cannot be opened, is not an order log, or has an unsupported version
+     */
+    static Stream<Order> stream(Path file, long from, long size, StoreEngine engine, HistoryFilter filter)
+            throws IOException {
+        if (size == 0) {
+            return Stream.empty();
+        }
+
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        byte version;
+        try {
+            version = checkHeader(ch, size, file);
+        } catch (IOException ex) {
+            ch.close();
+            throw ex;
+        }
+
+        RecordReader reader = new RecordReader(ch, Math.max(from, HEADER_BYTES), size, engine, filter, version);
+        Spliterator<Order> records = new Spliterators.AbstractSpliterator<Order>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Order> action) {
+                return reader.next(action);
+            }
+        };
+        return StreamSupport.stream(records, false).onClose(() -> {
+            try {
+                ch.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * Checks the magic bytes and version of a log.
+     *
+     * @param ch   open log
+     * @param size file size
+     * @param file log path (for messages)
+     * @return the format version of the log
+     * @throws IOException if the header is missing, wrong or of an unsupported version
+     */
+    private static byte checkHeader(FileChannel ch, long size, Path file) throws IOException {
+        if (size < HEADER_BYTES) {
+            throw new IOException(file + " is not an order log (too short)");
+        }
+        ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                throw new IOException(file + " is not an order log");
+            }
+        }
+        byte version = header.get(MAGIC.length);
+        if (version < MIN_VERSION || version > VERSION) {
+            throw new IOException("Unsupported order log version " + version + " in " + file);
+        }
+        return version;
+    }
+
+    /**
+     * Decodes one record payload written in the current version (see {@link #encode(Order)}).
+     *
+     * @param payload payload bytes (position at its start)
+     * @param engine  engine used to resolve products (may be {@code null})
+     * @param filter  records to decode (checked before the items are decoded)
+     * @return decoded order, or {@code null} if the record is filtered out
+     * @throws BufferUnderflowException if the payload is shorter than its content
+     * @throws IllegalArgumentException if a field is invalid
+     */
+    static Order decode(ByteBuffer payload, StoreEngine engine, HistoryFilter filter) {
+        return decode(payload, engine, filter, VERSION);
+    }
+
+    /**
+     * Decodes one record payload.
+     *
+     * @param payload payload bytes (position at its start)
+     * @param engine  engine used to resolve products (may be {@code null})
+     * @param filter  records to decode (checked before the items are decoded)
+     * @param version format version of the record
+     * @return decoded order, or {@code null} if the record is filtered out
+     * @throws BufferUnderflowException if the payload is shorter than its content
+     * @throws IllegalArgumentException if a field is invalid
+     */
+    private static Order decode(ByteBuffer payload, StoreEngine engine, HistoryFilter filter, byte version) {
+        long orderId = payload.getLong();
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(payload.getLong(), 0, ZoneOffset.UTC);
+        long totalCents = payload.getLong();
+        String username = getString(payload);
+        if (!filter.matches(username, createdAt)) {
+            return null;
+        }
+
+        int count = payload.getInt();
+        if (count < 0) {
+            throw new IllegalArgumentException("negative item count");
+        }
+        List<CartItem> items = new ArrayList<>(Math.min(count, 64));
+        for (int i = 0; i < count; i++) {
+            int productId = (version >= 2) ? payload.getInt() : 0;
+            String name = getString(payload);
+            int quantity = payload.getInt();
+            long unitPrice = payload.getLong();
+
+            Product p = OrderHistoryIO.productById(engine, productId, name);
+            if (p == null && engine != null) {
+                p = engine.findProductPublic(name);
+            }
+            if (p != null && quantity > 0) {
+                items.add(new CartItem(p, quantity, Math.max(0, unitPrice)));
+            }
+        }
+        return new Order(username, orderId, items, totalCents, createdAt);
+    }
+
+    /**
+     * Writes a length-prefixed string.
+     *
+     * @param buf   destination
+     * @param bytes UTF-8 bytes of the string
+     */
+    private static void putString(ByteBuffer buf, byte[] bytes) {
+        buf.putInt(bytes.length).put(bytes);
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     *
+     * @param buf source
+     * @return decoded string
+     * @throws IllegalArgumentException if the length is invalid
+     */
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0 || length > buf.remaining()) {
+            throw new IllegalArgumentException("invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies the bytes after {@code validEnd} to {@code <file>.corrupt} and truncates the log there.
+     * Failures are reported on {@code System.err}; the log is then marked as not appendable
+     * (see {@link #prepareForAppend(Path)}).
+     *
+     * @param file     log file
+     * @param validEnd end of the last valid record
+     */
+    private static void discardTail(Path file, long validEnd) {
+        if (!saveTail(file, validEnd)) {
+            VALID_TAIL.remove(key(file));
+            return;
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(validEnd);
+            ch.force(true);
+            VALID_TAIL.add(key(file));
+        } catch (IOException ex) {
+            VALID_TAIL.remove(key(file));
+            System.err.println("Could not cut the invalid tail of " + file + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Copies the bytes after {@code validEnd} to {@code <file>.corrupt}, using plain channel reads
+     * (no mapping). Failures are reported on {@code System.err}.
+     *
+     * @param file     log file
+     * @param validEnd end of the last valid record
+     * @return true if the tail was saved
+     */
+    private static boolean saveTail(Path file, long validEnd) {
+        Path corrupt = Paths.get(file + ".corrupt");
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(corrupt, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+            long pos = validEnd;
+            int n;
+            while ((n = ch.read(buf, pos)) > 0) {
+                pos += n;
+                drain(out, buf);
+            }
+            out.force(true);
+            return true;
+        } catch (IOException ex) {
+            System.err.println("Could not save the invalid tail of " + file + ": " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Releases a mapping right away instead of when it is garbage collected, so the file can be
+     * truncated or replaced on platforms that refuse to while a mapping exists. The buffer must
+     * not be used afterwards.
+     *
+     * @param buffer mapping to release (ignored if {@code null})
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // Left to the garbage collector.
+        }
+    }
+
+    /**
+     * Writes the content of a buffer to a channel and clears the buffer.
+     *
+     * @param ch  destination
+     * @param buf buffer in write mode
+     * @throws IOException if the write fails
+     */
+    private static void drain(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * Sequential reader over the records of a log, one mapped window at a time.
+     */
+    private static final class RecordReader {
+
+        private final FileChannel channel;
+        private final long size;
+        private final StoreEngine engine;
+        private final HistoryFilter filter;
+        private final byte version;
+        private final CRC32C crc = new CRC32C();
+
+        /** File offset of the current window (the first record to read before the first window). */
+        private long windowStart;
+
+        /** Current window ({@code null} before the first one). */
+        private MappedByteBuffer window;
+
+        /** Start of the next record in the current window. */
+        private int pos;
+
+        /** Why reading stopped early ({@code null} if the log is valid so far). */
+        private String problem;
+
+        /** File offset of the first invalid record (valid if {@link #problem} is set). */
+        private long problemOffset;
+
+        private RecordReader(FileChannel channel, long start, long size, StoreEngine engine, HistoryFilter filter,
+                             byte version) {
+            this.channel = channel;
+            this.windowStart = start;
+            this.size = size;
+            this.engine = engine;
+            this.filter = filter;
+            this.version = version;
+        }
+
+        /**
+         * Decodes the next selected record.
+         *
+         * @param action receives the order
+         * @return false at the end of the log or at the first invalid record
+         * @throws UncheckedIOException if the file cannot be read
+         */
+        boolean next(Consumer<? super Order> action) {
+            while (true) {
+                long recordStart = windowStart + pos;
+                ByteBuffer payload;
+                try {
+                    payload = nextPayload();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                if (payload == null) {
+                    return false;
+                }
+
+                Order order;
+                try {
+                    order = decode(payload, engine, filter, version);
+                } catch (BufferUnderflowException | IllegalArgumentException ex) {
+                    fail("malformed record (" + ex + ")", recordStart);
+                    return false;
+                }
+                if (order != null) {
+                    action.accept(order);
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Returns the payload of the next record after checking its length and checksum.
+         *
+         * @return payload, or {@code null} at the end of the log or at an invalid record
+         * @throws IOException if a window cannot be mapped
+         */
+        private ByteBuffer nextPayload() throws IOException {
+            while (problem == null) {
+                if (window != null && window.limit() - pos >= RECORD_HEADER_BYTES) {
+                    int length = window.getInt(pos);
+                    int checksum = window.getInt(pos + 4);
+                    if (length < 0 || length > MAX_RECORD_BYTES) {
+                        fail("invalid record length " + length, windowStart + pos);
+                        return null;
+                    }
+                    if (window.limit() - pos - RECORD_HEADER_BYTES >= length) {
+                        ByteBuffer payload = window.slice(pos + RECORD_HEADER_BYTES, length);
+                        crc.reset();
+                        crc.update(payload.duplicate());
+                        if ((int) crc.getValue() != checksum) {
+                            fail("checksum mismatch", windowStart + pos);
+                            return null;
+                        }
+                        pos += RECORD_HEADER_BYTES + length;
+                        return payload;
+                    }
+                }
+
+                // The window is used up or ends inside a record: map the next one from the first unread byte.
+                long start = windowStart + pos;
+                if (window != null && windowStart + window.limit() == size) {
+                    if (start < size) {
+                        fail("incomplete record", start);
+                    }
+                    return null;
+                }
+                if (start >= size) {
+                    return null;
+                }
+                window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, MAX_MAP_BYTES));
+                windowStart = start;
+                pos = 0;
+            }
+            return null;
+        }
+
+        /**
+         * Releases the current window. Called once reading is finished and no payload of the
+         * window is referenced any more.
+         */
+        void unmap() {
+            BinaryOrderLog.unmap(window);
+            window = null;
+        }
+
+        /**
+         * Records why reading stopped.
+         *
+         * @param reason description of the invalid record
+         * @param offset file offset of the invalid record
+         */
+        private void fail(String reason, long offset) {
+            problem = reason;
+            problemOffset = offset;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.io;
+
+import store.engine.StoreEngine;
+import store.order.Order;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily reads the CSV order history as a stream, one memory-mapped window at a time.
+ *
+ * <p>
+ * Only the current window (newline-aligned, at most {@value #WINDOW_BYTES} bytes) is mapped,
+ * and orders are decoded as the stream is consumed, so a history far larger than the heap can
+ * be scanned. Lines are parsed with a {@link CsvOrderParser}, which applies the filter before
+ * decoding items.
+ * </p>
+ */
+final class CsvHistoryStream extends Spliterators.AbstractSpliterator<Order> {
+
+    /** Largest window mapped at once. */
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final HistoryFilter filter;
+    private final CsvOrderParser parser;
+
+    /** File offset of the current window (the first line to read before the first window). */
+    private long windowStart;
+
+    /** Current window ({@code null} before the first one). */
+    private MappedByteBuffer window;
+
+    /** Start of the next line in the current window. */
+    private int pos;
+
+    private CsvHistoryStream(FileChannel channel, long start, long size, Charset charset, StoreEngine engine,
+                             HistoryFilter filter) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.channel = channel;
+        this.windowStart = start;
+        this.size = size;
+        this.filter = filter;
+        this.parser = new CsvOrderParser(charset, engine);
+    }
+
+    /**
+     * Opens a stream over the bytes {@code [start, size)} of a history file.
+     * The stream must be closed to release the file.
+     *
+     * @param file    history file
+     * @param start   offset of the first line to read (0, or just after a newline)
+     * @param size    end of the range to read (the file size when the stream was requested)
+     * @param charset file encoding (see {@link ParallelHistoryLoader#supports(Charset)})
+     * @param engine  engine used to resolve product names (may be {@code null})
+     * @param filter  records to return
+     * @return orders in file order
+     * @throws IOException if the file cannot be opened
+     */
+    static Stream<Order> open(Path file, long start, long size, Charset charset, StoreEngine engine,
+                              HistoryFilter filter) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        return StreamSupport.stream(new CsvHistoryStream(ch, start, size, charset, engine, filter), false)
+                .onClose(() -> {
+                    try {
+                        ch.close();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+    }
+
+    /**
+     * Returns the next selected order.
+     *
+     * @param action receives the order
+     * @return false at the end of the history
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super Order> action) {
+        while (true) {
+            if (window == null || pos >= window.limit()) {
+                if (!nextWindow()) {
+                    return false;
+                }
+            }
+
+            int lineEnd = parser.lineEnd(pos);
+            Order order = parser.parseLine(pos, lineEnd, filter);
+            pos = lineEnd + 1;
+            if (order != null) {
+                action.accept(order);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Maps the window after the current one.
+     *
+     * @return false if the whole history has been read
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    private boolean nextWindow() {
+        long start = (window == null) ? windowStart : windowStart + window.limit();
+        if (start >= size) {
+            return false;
+        }
+
+        try {
+            long end = (size - start <= WINDOW_BYTES)
+                    ? size
+                    : ParallelHistoryLoader.lineEnd(channel, start + WINDOW_BYTES, size);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        windowStart = start;
+        pos = 0;
+        parser.setData(window);
+        return true;
+    }
+}
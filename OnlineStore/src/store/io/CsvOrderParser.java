@@ -0,0 +1,413 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.io;
+
+import store.cart.CartItem;
+import store.engine.StoreEngine;
+import store.order.Order;
+import store.products.Product;
+import store.products.ProductIdRegistry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses CSV history lines directly from (memory-mapped) bytes.
+ *
+ * <p>
+ * Fields are located by scanning for delimiters, and numbers and dates are decoded in place,
+ * so only the username and product names become strings. Lines the fast path does not
+ * recognize (the old format, unusual numbers or dates) are handed to the regular parser in
+ * {@link OrderHistoryIO}, so every reader accepts the same formats.
+ * </p>
+ * <p>
+ * Items carrying a product ID are resolved with {@link StoreEngine#findProductById(int)} (the ID is
+ * also passed to {@link ProductIdRegistry#observe(int)}); items without one, or whose ID is no longer
+ * in the catalog or now names another product, are resolved by name through a cache in
+ * front of {@link StoreEngine#findProductPublic(String)}. A parser is used by one thread at a time.
+ * The charset must keep ASCII delimiters and digits as single bytes
+ * (see {@link ParallelHistoryLoader#supports(Charset)}).
+ * </p>
+ */
+final class CsvOrderParser {
+
+    /** Marker returned by the fast path for lines that need the regular parser. */
+    private static final Order NEEDS_REGULAR_PARSER = new Order(-1L, new ArrayList<>(), 0L);
+
+    private final Charset charset;
+    private final StoreEngine engine;
+
+    /** Products resolved by name ({@code null} values cache misses). */
+    private final Map<String, Product> products = new HashMap<>();
+
+    /** Bytes being parsed (absolute indexes). */
+    private ByteBuffer data;
+
+    /**
+     * Creates a parser.
+     *
+     * @param charset file encoding
+     * @param engine  engine used to resolve product names (may be {@code null})
+     */
+    CsvOrderParser(Charset charset, StoreEngine engine) {
+        this.charset = charset;
+        this.engine = engine;
+    }
+
+    /**
+     * Sets the bytes to parse; the product cache is kept.
+     *
+     * @param data history bytes
+     */
+    void setData(ByteBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Returns the end of the line starting at {@code from}.
+     *
+     * @param from start of the line
+     * @return index of its newline, or the limit of the data if it has none
+     */
+    int lineEnd(int from) {
+        int limit = data.limit();
+        int i = from;
+        while (i < limit && data.get(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Parses one line.
+     *
+     * @param s      start of the line
+     * @param e      end of the line (exclusive, without the newline)
+     * @param filter records to keep
+     * @return parsed order, or {@code null} for blank, unparseable or filtered lines
+     */
+    Order parseLine(int s, int e, HistoryFilter filter) {
+        int ts = trimStart(s, e);
+        int te = trimEnd(ts, e);
+        if (ts >= te) {
+            return null;
+        }
+
+        Order order = parseNewFormat(ts, te, filter);
+        if (order != NEEDS_REGULAR_PARSER) {
+            return order;
+        }
+        order = OrderHistoryIO.parseLine(engine, string(ts, te));
+        return filter.matches(order) ? order : null;
+    }
+
+    /**
+     * Fast path for {@code username,orderId,total,createdAt,itemsSummary}.
+     *
+     * @param s      start of the trimmed line
+     * @param e      end of the trimmed line (exclusive)
+     * @param filter records to keep (checked before the items are parsed)
+     * @return parsed order, {@code null} if the record is filtered out, or
+     *         {@link #NEEDS_REGULAR_PARSER} if the line is not in the fast-path format
+     */
+    private Order parseNewFormat(int s, int e, HistoryFilter filter) {
+        int c1 = indexOf(',', s, e);
+        int c2 = (c1 < 0) ? -1 : indexOf(',', c1 + 1, e);
+        int c3 = (c2 < 0) ? -1 : indexOf(',', c2 + 1, e);
+        int c4 = (c3 < 0) ? -1 : indexOf(',', c3 + 1, e);
+        if (c4 < 0) {
+            return NEEDS_REGULAR_PARSER;
+        }
+
+        long orderId = parseLong(trimStart(c1 + 1, c2), trimEnd(c1 + 1, c2));
+        long total = parseCents(trimStart(c2 + 1, c3), trimEnd(c2 + 1, c3));
+        LocalDateTime createdAt = parseDate(trimStart(c3 + 1, c4), trimEnd(c3 + 1, c4));
+        if (orderId < 0 || total == Long.MIN_VALUE || createdAt == null) {
+            return NEEDS_REGULAR_PARSER;
+        }
+
+        String username = string(trimStart(s, c1), trimEnd(s, c1));
+        if (username.isEmpty()) username = Order.UNKNOWN_CUSTOMER;
+        if (!filter.matches(username, createdAt)) {
+            return null;
+        }
+
+        return new Order(username, orderId, parseItems(c4 + 1, e), total, createdAt);
+    }
+
+    /**
+     * Parses an items summary ({@code "ProductName xQTY#ID;..."}, the {@code #ID} suffix being optional);
+     * unparseable or unknown items are skipped.
+     *
+     * @param s start of the summary
+     * @param e end of the summary (exclusive)
+     * @return parsed items
+     */
+    private List<CartItem> parseItems(int s, int e) {
+        List<CartItem> items = new ArrayList<>();
+        int tokenStart = s;
+        while (tokenStart < e) {
+            int tokenEnd = indexOf(';', tokenStart, e);
+            if (tokenEnd < 0) tokenEnd = e;
+
+            int ts = trimStart(tokenStart, tokenEnd);
+            int te = trimEnd(tokenStart, tokenEnd);
+            int x = lastIndexOfQuantityMarker(ts, te);
+            if (x > ts) {
+                int hash = indexOf('#', x + 2, te);
+                int qtyEnd = (hash < 0) ? te : hash;
+                long qty = parseLong(trimStart(x + 2, qtyEnd), trimEnd(x + 2, qtyEnd));
+                long id = (hash < 0) ? 0 : parseLong(hash + 1, te);
+                if (qty > 0 && qty <= Integer.MAX_VALUE && id >= 0 && id <= Integer.MAX_VALUE) {
+                    Product p = product((int) id, ts, x);
+                    if (p != null) {
+                        items.add(new CartItem(p, (int) qty));
+                    }
+                }
+            }
+            tokenStart = tokenEnd + 1;
+        }
+        return items;
+    }
+
+    /**
+     * Resolves an item's product by ID, falling back to its name through the chunk cache.
+     *
+     * @param id        product ID (0 if the item has none)
+     * @param nameStart start of the product name
+     * @param nameEnd   end of the product name and its trailing spaces (exclusive)
+     * @return product, or {@code null} if unknown (or no engine was given)
+     */
+    private Product product(int id, int nameStart, int nameEnd) {
+        ProductIdRegistry.observe(id);
+        if (engine == null) {
+            return null;
+        }
+        nameEnd = trimEnd(nameStart, nameEnd);
+        Product p = engine.findProductById(id);
+        if (p != null) {
+            if (hasName(nameStart, nameEnd, p)) {
+                return p;
+            }
+            OrderHistoryIO.reportIdMismatch(p, string(nameStart, nameEnd));
+        }
+        String name = string(nameStart, nameEnd);
+        if (products.containsKey(name)) {
+            return products.get(name);
+        }
+        p = engine.findProductPublic(name);
+        products.put(name, p);
+        return p;
+    }
+
+    /**
+     * Checks whether the stored item name is the product's name, comparing ASCII names in
+     * place so an ID hit does not create a string.
+     *
+     * @param s start of the name
+     * @param e end of the name (exclusive)
+     * @param p product found by the item's ID
+     * @return true if the names match (see {@link OrderHistoryIO#isStoredName(Product, String)})
+     */
+    private boolean hasName(int s, int e, Product p) {
+        String name = p.getName();
+        if (e - s == name.length()) {
+            int i = 0;
+            while (i < name.length()) {
+                byte b = data.get(s + i);
+                char c = name.charAt(i);
+                if (b < 0 || c >= 0x80 || c == ',') {
+                    break;
+                }
+                if (b != c) {
+                    return false;
+                }
+                i++;
+            }
+            if (i == name.length()) {
+                return true;
+            }
+        }
+        return OrderHistoryIO.isStoredName(p, string(s, e));
+    }
+
+    /**
+     * Finds the last {@code " x"} in a token.
+     *
+     * @param s start of the token
+     * @param e end of the token (exclusive)
+     * @return index of the space, or -1
+     */
+    private int lastIndexOfQuantityMarker(int s, int e) {
+        for (int i = e - 2; i >= s; i--) {
+            if (data.get(i) == ' ' && data.get(i + 1) == 'x') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a non-negative decimal integer.
+     *
+     * @param s start of the digits
+     * @param e end of the digits (exclusive)
+     * @return the value, or -1 if the text is not 1 to 18 digits
+     */
+    private long parseLong(int s, int e) {
+        if (s >= e || e - s > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = s; i < e; i++) {
+            int d = data.get(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    /**
+     * Parses an amount written as {@code [-]units[.c[c]]}.
+     *
+     * @param s start of the amount
+     * @param e end of the amount (exclusive)
+     * @return amount in cents, or {@link Long#MIN_VALUE} if it needs the regular parser
+     */
+    private long parseCents(int s, int e) {
+        boolean negative = s < e && data.get(s) == '-';
+        int i = negative ? s + 1 : s;
+        int dot = indexOf('.', i, e);
+        int unitsEnd = (dot < 0) ? e : dot;
+        if (unitsEnd - i > 16) {
+            return Long.MIN_VALUE;
+        }
+
+        long units = parseLong(i, unitsEnd);
+        if (units < 0) {
+            return Long.MIN_VALUE;
+        }
+
+        long fraction = 0;
+        if (dot >= 0) {
+            int digits = e - dot - 1;
+            if (digits < 1 || digits > 2) {
+                return Long.MIN_VALUE;
+            }
+            fraction = parseLong(dot + 1, e);
+            if (fraction < 0) {
+                return Long.MIN_VALUE;
+            }
+            if (digits == 1) {
+                fraction *= 10;
+            }
+        }
+
+        long cents = units * 100 + fraction;
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Parses {@code yyyy-MM-ddTHH:mm} or {@code yyyy-MM-ddTHH:mm:ss}.
+     *
+     * @param s start of the date
+     * @param e end of the date (exclusive)
+     * @return the date-time, or {@code null} if it needs the regular parser
+     */
+    private LocalDateTime parseDate(int s, int e) {
+        int len = e - s;
+        if ((len != 16 && len != 19)
+                || data.get(s + 4) != '-' || data.get(s + 7) != '-' || data.get(s + 10) != 'T'
+                || data.get(s + 13) != ':' || (len == 19 && data.get(s + 16) != ':')) {
+            return null;
+        }
+
+        long year = parseLong(s, s + 4);
+        long month = parseLong(s + 5, s + 7);
+        long day = parseLong(s + 8, s + 10);
+        long hour = parseLong(s + 11, s + 13);
+        long minute = parseLong(s + 14, s + 16);
+        long second = (len == 19) ? parseLong(s + 17, s + 19) : 0;
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+            return null;
+        }
+
+        try {
+            return LocalDateTime.of((int) year, (int) month, (int) day, (int) hour, (int) minute, (int) second);
+        } catch (DateTimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the index of a byte in a range.
+     *
+     * @param b byte to find
+     * @param s start of the range
+     * @param e end of the range (exclusive)
+     * @return index, or -1 if not found
+     */
+    private int indexOf(char b, int s, int e) {
+        for (int i = s; i < e; i++) {
+            if (data.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Skips leading whitespace and control characters (as {@link String#trim()} does).
+     *
+     * @param s start of the range
+     * @param e end of the range (exclusive)
+     * @return first non-blank index, or {@code e}
+     */
+    private int trimStart(int s, int e) {
+        while (s < e && (data.get(s) & 0xFF) <= ' ') {
+            s++;
+        }
+        return s;
+    }
+
+    /**
+     * Skips trailing whitespace and control characters (as {@link String#trim()} does).
+     *
+     * @param s start of the range
+     * @param e end of the range (exclusive)
+     * @return end of the last non-blank byte, or {@code s}
+     */
+    private int trimEnd(int s, int e) {
+        while (e > s && (data.get(e - 1) & 0xFF) <= ' ') {
+            e--;
+        }
+        return e;
+    }
+
+    /**
+     * Decodes a byte range.
+     *
+     * @param s start of the range
+     * @param e end of the range (exclusive)
+     * @return decoded string
+     */
+    private String string(int s, int e) {
+        if (s >= e) {
+            return "";
+        }
+        byte[] bytes = new byte[e - s];
+        data.get(s, bytes);
+        return new String(bytes, charset);
+    }
+}
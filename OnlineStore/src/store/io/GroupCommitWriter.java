@@ -0,0 +1,206 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Appends records to an {@link OrderJournal} in batches (group commit).
+ *
+ * <p>
+ * Callers hand a record to {@link #append(Object)} and block until it has been written.
+ * A single background thread takes the first queued record, collects further records
+ * until the batch is full or the linger time has passed, writes the whole batch with one
+ * journal append (and, depending on the journal's fsync policy, one {@code fsync}), and
+ * then releases every caller of the batch. If the append fails, every caller of the batch
+ * receives the failure.
+ * Records arriving while a batch is being written form the next batch, so under load many
+ * checkouts share one file write even with a linger time of zero.
+ * </p>
+ *
+ * @param <T> record type (e.g., a text line or an encoded binary record)
+ */
+final class GroupCommitWriter<T> {
+
+    /**
+     * Writes one batch of records with a single journal append.
+     *
+     * @param <T> record type
+     */
+    @FunctionalInterface
+    interface BatchWriter<T> {
+
+        /**
+         * Writes the records of a batch, in order.
+         *
+         * @param records records to write (not retained after the call)
+         * @throws IOException if the append fails
+         */
+        void write(List<T> records) throws IOException;
+    }
+
+    /** Writes a batch to the journal. */
+    private final BatchWriter<T> batchWriter;
+
+    /** Lock shared with readers of the file; held while a batch is written. */
+    private final Lock fileLock;
+
+    /** Maximum number of records per batch. */
+    private final int maxBatchSize;
+
+    /** Maximum time to wait for more records after the first one of a batch, in nanoseconds. */
+    private final long lingerNanos;
+
+    /** Records waiting to be written. */
+    private final LinkedBlockingQueue<PendingRecord<T>> queue;
+
+    /**
+     * Creates and starts a group-commit writer.
+     *
+     * @param batchWriter   writes a batch to the journal
+     * @param fileLock      lock to hold while writing a batch
+     * @param maxBatchSize  maximum records per batch (must be positive)
+     * @param lingerMillis  maximum linger time in milliseconds (must not be negative)
+     * @param threadName    name of the writer thread
+     * @throws IllegalArgumentException if {@code maxBatchSize} or {@code lingerMillis} is invalid
+     */
+    GroupCommitWriter(BatchWriter<T> batchWriter, Lock fileLock, int maxBatchSize, long lingerMillis,
+                      String threadName) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be > 0");
+        }
+        if (lingerMillis < 0) {
+            throw new IllegalArgumentException("lingerMillis must be >= 0");
+        }
+
+        this.batchWriter = batchWriter;
+        this.fileLock = fileLock;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.queue = new LinkedBlockingQueue<>();
+
+        Thread thread = new Thread(this::runLoop, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a record and waits until the batch containing it has been written.
+     *
+     * @param record record to write
+     * @throws UncheckedIOException if writing the batch containing the record failed
+     */
+    void append(T record) {
+        PendingRecord<T> pending = new PendingRecord<>(record);
+        queue.add(pending);
+        try {
+            pending.written.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Writer thread body: collects a batch, writes it and releases its callers.
+     */
+    private void runLoop() {
+        List<PendingRecord<T>> batch = new ArrayList<>(maxBatchSize);
+        List<T> records = new ArrayList<>(maxBatchSize);
+
+        while (true) {
+            try {
+                batch.add(queue.take());
+                collectBatch(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                writeBatch(batch, records);
+                for (PendingRecord<T> p : batch) {
+                    p.written.complete(null);
+                }
+            } catch (IOException ex) {
+                UncheckedIOException failure = new UncheckedIOException("Could not write order batch", ex);
+                for (PendingRecord<T> p : batch) {
+                    p.written.completeExceptionally(failure);
+                }
+            } catch (RuntimeException ex) {
+                for (PendingRecord<T> p : batch) {
+                    p.written.completeExceptionally(ex);
+                }
+            }
+            batch.clear();
+            records.clear();
+        }
+    }
+
+    /**
+     * Adds queued records to the batch until it is full or the linger time is over.
+     *
+     * @param batch batch already holding its first record
+     * @throws InterruptedException if the writer thread is interrupted while lingering
+     */
+    private void collectBatch(List<PendingRecord<T>> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        queue.drainTo(batch, maxBatchSize - batch.size());
+
+        while (batch.size() < maxBatchSize && lingerNanos > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+
+            PendingRecord<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    /**
+     * Writes all records of a batch with a single journal append.
+     *
+     * @param batch   queued records to write
+     * @param records reusable list receiving the records of {@code batch}
+     * @throws IOException if the journal append fails
+     */
+    private void writeBatch(List<PendingRecord<T>> batch, List<T> records) throws IOException {
+        for (PendingRecord<T> p : batch) {
+            records.add(p.record);
+        }
+
+        fileLock.lock();
+        try {
+            batchWriter.write(records);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * A queued record and the future completed once its batch has been written.
+     */
+    private static final class PendingRecord<T> {
+        private final T record;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        private PendingRecord(T record) {
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.io;
+
+import store.order.Order;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Selects history records by customer and creation time.
+ *
+ * <p>
+ * Readers check the filter as soon as the username and timestamp of a record are known,
+ * before its items are decoded and their products resolved.
+ * </p>
+ */
+final class HistoryFilter {
+
+    /** Filter that accepts every order. */
+    static final HistoryFilter ALL = new HistoryFilter(null, null, null);
+
+    /** Normalized username to match, or {@code null} for any customer. */
+    private final String usernameKey;
+
+    /** Earliest creation time (inclusive), or {@code null}. */
+    private final LocalDateTime from;
+
+    /** Latest creation time (exclusive), or {@code null}. */
+    private final LocalDateTime to;
+
+    /**
+     * Creates a filter.
+     *
+     * @param username customer username (case-insensitive; {@code null} or blank for any customer)
+     * @param from     earliest creation time, inclusive ({@code null} for no lower bound)
+     * @param to       latest creation time, exclusive ({@code null} for no upper bound)
+     */
+    HistoryFilter(String username, LocalDateTime from, LocalDateTime to) {
+        String key = (username == null) ? "" : username.trim().toLowerCase(Locale.ROOT);
+        this.usernameKey = key.isEmpty() ? null : key;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Checks a record by its username and creation time.
+     *
+     * @param username  username stored in the record
+     * @param createdAt creation time stored in the record
+     * @return true if the record is selected
+     */
+    boolean matches(String username, LocalDateTime createdAt) {
+        if (usernameKey != null && (username == null || !usernameKey.equalsIgnoreCase(username.trim()))) {
+            return false;
+        }
+        if (from != null && createdAt.isBefore(from)) {
+            return false;
+        }
+        return to == null || createdAt.isBefore(to);
+    }
+
+    /**
+     * Checks a decoded order.
+     *
+     * @param order order (may be {@code null})
+     * @return true if the order is non-null and selected
+     */
+    boolean matches(Order order) {
+        return order != null && matches(order.getCustomerUsername(), order.getCreatedAt());
+    }
+}
@@ -6,14 +6,29 @@
 package store.io;
 
 import store.cart.CartItem;
+import store.core.Money;
 import store.engine.StoreEngine;
 import store.order.Order;
 import store.products.Product;
+import store.products.ProductIdRegistry;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Utility class responsible for persisting and loading order history to/from a CSV file.
@@ -34,88 +49,339 @@ import java.util.List;
  *
  * <p>
  * The {@code itemsSummary} field uses a simple semicolon-separated representation:
- * {@code "ProductName xQTY;ProductName xQTY;"}.
+ * {@code "ProductName xQTY#ID;ProductName xQTY#ID;"}, where {@code ID} is the stable product ID.
+ * Items are re-linked by ID, or by name for items written without one.
  * </p>
+ *
+ * <h3>Binary log</h3>
+ * <p>
+ * With {@code store.ordersFormat=binary}, orders are written to a {@link BinaryOrderLog}
+ * ({@code store.ordersLogFile}, default {@code orders_history.bin}) instead: length-prefixed,
+ * checksummed records with quantities, unit prices and timestamps, replayed through a memory
+ * map. If the binary log does not exist yet when the history is loaded, an existing CSV
+ * history is converted into it first (see {@link #convertCsvToBinary(StoreEngine)}).
+ * </p>
+ *
+ * <h3>Streaming</h3>
+ * <p>
+ * {@link #streamOrders(StoreEngine, String, LocalDateTime, LocalDateTime)} and
+ * {@link #readOrders} read the history lazily from disk (by customer, time range and page),
+ * so reports and history views also work when the history is larger than the heap.
+ * </p>
+ *
+ * <h3>Journal and group commit</h3>
+ * <p>
+ * Records are appended through an {@link OrderJournal}, which keeps the history file open
+ * and reuses one direct buffer for all writes. By default, appends also go through a
+ * {@link GroupCommitWriter}: concurrent checkouts are queued and written together with one
+ * journal append. Write failures are thrown to the caller of {@link #appendOrder(Order)}.
+ * The behavior is controlled by system properties:
+ * </p>
+ * <ul>
+ *   <li>{@code store.ordersGroupCommit} – {@code false} writes each order directly (default {@code true})</li>
+ *   <li>{@code store.ordersBatchSize} – maximum orders per append (default {@value #DEFAULT_BATCH_SIZE})</li>
+ *   <li>{@code store.ordersLingerMillis} – maximum time a batch waits for more orders
+ *       (default {@value #DEFAULT_LINGER_MILLIS})</li>
+ *   <li>{@code store.ordersFsync} – {@code always} (force every append before returning),
+ *       {@code interval} (force in the background) or {@code none} (leave it to the OS; default).
+ *       {@code true} and {@code false} are accepted as {@code always} and {@code none}.</li>
+ *   <li>{@code store.ordersFsyncMillis} – background sync interval for {@code interval}
+ *       (default {@value #DEFAULT_FSYNC_MILLIS})</li>
+ * </ul>
  */
 public class OrderHistoryIO {
 
-    /** Global lock used to serialize access to the order history file. */
-    private static final Object ORDER_FILE_LOCK = new Object();
+    /**
+     * Global lock used to serialize access to the order history file.
+     * An explicit lock (not a monitor), so virtual threads waiting on file I/O are not pinned.
+     */
+    private static final ReentrantLock ORDER_FILE_LOCK = new ReentrantLock();
+
+    /** Product IDs whose history name differs from the catalog name (each is reported once). */
+    private static final Set<Integer> MISMATCHED_IDS = ConcurrentHashMap.newKeySet();
+
+    /** Default maximum number of orders written by one group-commit append. */
+    public static final int DEFAULT_BATCH_SIZE = 128;
+
+    /** Default group-commit linger time in milliseconds (0 = batch only what is already queued). */
+    public static final long DEFAULT_LINGER_MILLIS = 0L;
+
+    /** Default background sync interval in milliseconds for the {@code interval} fsync policy. */
+    public static final long DEFAULT_FSYNC_MILLIS = 1000L;
+
+    /** Whether orders are kept in the binary log ({@code store.ordersFormat=binary}) instead of CSV. */
+    private static final boolean BINARY =
+            "binary".equalsIgnoreCase(System.getProperty("store.ordersFormat", "csv").trim());
+
+    /**
+     * Whether the CSV history is loaded by the parallel, memory-mapped loader
+     * ({@code store.ordersParallelLoad}, default {@code true}).
+     */
+    private static final boolean PARALLEL_LOAD =
+            Boolean.parseBoolean(System.getProperty("store.ordersParallelLoad", "true"));
+
+    /** Whether appends are group-committed ({@code store.ordersGroupCommit}, default {@code true}). */
+    private static final boolean GROUP_COMMIT =
+            Boolean.parseBoolean(System.getProperty("store.ordersGroupCommit", "true"));
 
     /**
      * Default CSV file path for order history.
      * <p>
-     * The path is relative to the application's current working directory.
+     * The path is relative to the application's current working directory and may be
+     * overridden with the {@code store.ordersFile} system property (e.g., by benchmarks
+     * that must not touch the real history file).
      * </p>
      */
-    public static final String ORDER_HISTORY_FILE = "orders_history.csv";
+    public static final String ORDER_HISTORY_FILE =
+            System.getProperty("store.ordersFile", "orders_history.csv");
 
     /**
-     * Appends a single order record to the history file using the new format.
+     * Binary order log path (used with {@code store.ordersFormat=binary}); may be overridden
+     * with the {@code store.ordersLogFile} system property.
+     */
+    public static final String ORDER_LOG_FILE =
+            System.getProperty("store.ordersLogFile", "orders_history.bin");
+
+    /** Open journal of the history file (opened on first append; guarded by {@link #ORDER_FILE_LOCK}). */
+    private static volatile OrderJournal journal;
+
+    /** Shared group-commit writer for CSV records (created on first append in group-commit mode). */
+    private static volatile GroupCommitWriter<String> textWriter;
+
+    /** Shared group-commit writer for binary records (created on first append in group-commit mode). */
+    private static volatile GroupCommitWriter<byte[]> binaryWriter;
+
+    /**
+     * Appends a single order record to the history file using the new format
+     * (or to the binary log, see the class comment).
      * <p>
      * Written format:
      * {@code username,orderId,total,createdAt,itemsSummary}
      * </p>
      * <p>
-     * This method synchronizes on {@link #ORDER_FILE_LOCK} to prevent concurrent writes.
-     * If an I/O error occurs, the exception is printed (kept simple for this assignment).
+     * In group-commit mode the record is queued and this method returns once the batch
+     * containing it has been written. Otherwise it writes the record directly. Either way,
+     * writes hold {@link #ORDER_FILE_LOCK}, and the method returns only after the record was
+     * appended (and forced, if the fsync policy is {@code always}).
      * </p>
      *
      * @param order the order to append; if {@code null}, the method returns without writing
+     * @throws UncheckedIOException if the record could not be written (nothing of it is left in the file)
      */
     public static void appendOrder(Order order) {
         if (order == null) return;
 
-        synchronized (ORDER_FILE_LOCK) {
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(ORDER_HISTORY_FILE, true))) {
+        if (BINARY) {
+            appendBinary(order);
+            return;
+        }
 
-                String itemsSummary = buildItemsSummary(order);
+        String record = formatOrderRecord(order);
 
-                // username first (so admin/history can filter + show owner)
-                String line = String.format(
-                        "%s,%d,%.2f,%s,%s",
-                        safeCsv(order.getCustomerUsername()),
-                        order.getOrderID(),
-                        order.getTotalAmount(),
-                        order.getCreatedAt(),
-                        safeCsv(itemsSummary)
-                );
+        if (GROUP_COMMIT) {
+            textWriter().append(record);
+            return;
+        }
 
-                writer.write(line);
-                writer.newLine();
+        ORDER_FILE_LOCK.lock();
+        try {
+            journal().append(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append order " + order.getOrderID(), e);
+        } finally {
+            ORDER_FILE_LOCK.unlock();
+        }
+    }
 
-            } catch (IOException e) {
-                e.printStackTrace();
+    /**
+     * Appends an order to the binary log, group-committed or directly.
+     *
+     * @param order the order to append (assumed non-null)
+     * @throws UncheckedIOException if the record could not be written
+     */
+    private static void appendBinary(Order order) {
+        byte[] record = BinaryOrderLog.encode(order);
+
+        if (GROUP_COMMIT) {
+            binaryWriter().append(record);
+            return;
+        }
+
+        ORDER_FILE_LOCK.lock();
+        try {
+            journal().append(List.of(record));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append order " + order.getOrderID(), e);
+        } finally {
+            ORDER_FILE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Returns the open journal, opening it on first use. If opening fails, the next call tries again.
+     *
+     * @return the journal
+     * @throws UncheckedIOException if the history file cannot be opened
+     */
+    private static OrderJournal journal() {
+        OrderJournal j = journal;
+        if (j != null) {
+            return j;
+        }
+
+        ORDER_FILE_LOCK.lock();
+        try {
+            if (journal == null) {
+                if (BINARY) {
+                    // Upgrades an older log and refuses one with an invalid tail that cannot be cut.
+                    BinaryOrderLog.prepareForAppend(Paths.get(ORDER_LOG_FILE));
+                }
+                OrderJournal opened = new OrderJournal(
+                        Paths.get(BINARY ? ORDER_LOG_FILE : ORDER_HISTORY_FILE),
+                        Charset.defaultCharset(),
+                        OrderJournal.FsyncPolicy.parse(System.getProperty("store.ordersFsync", "none")),
+                        Long.getLong("store.ordersFsyncMillis", DEFAULT_FSYNC_MILLIS),
+                        "order-history-sync");
+                if (BINARY && opened.size() == 0) {
+                    try {
+                        opened.append(List.of(BinaryOrderLog.header()));
+                    } catch (IOException e) {
+                        opened.close();
+                        throw e;
+                    }
+                }
+                journal = opened;
             }
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open order history "
+                    + (BINARY ? ORDER_LOG_FILE : ORDER_HISTORY_FILE), e);
+        } finally {
+            ORDER_FILE_LOCK.unlock();
         }
     }
 
     /**
-     * Builds a compact textual summary of the items in an order.
+     * Returns the shared group-commit writer for CSV records, creating it (and opening the journal) on first use.
+     *
+     * @return the writer
+     * @throws UncheckedIOException if the history file cannot be opened
+     */
+    private static GroupCommitWriter<String> textWriter() {
+        GroupCommitWriter<String> w = textWriter;
+        if (w != null) {
+            return w;
+        }
+
+        ORDER_FILE_LOCK.lock();
+        try {
+            if (textWriter == null) {
+                OrderJournal j = journal();
+                textWriter = newGroupCommitWriter(records -> {
+                    StringBuilder sb = new StringBuilder(records.size() * 128);
+                    for (String record : records) {
+                        sb.append(record);
+                    }
+                    j.append(sb);
+                });
+            }
+            return textWriter;
+        } finally {
+            ORDER_FILE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Returns the shared group-commit writer for binary records, creating it (and opening the journal) on first use.
+     *
+     * @return the writer
+     * @throws UncheckedIOException if the log file cannot be opened
+     */
+    private static GroupCommitWriter<byte[]> binaryWriter() {
+        GroupCommitWriter<byte[]> w = binaryWriter;
+        if (w != null) {
+            return w;
+        }
+
+        ORDER_FILE_LOCK.lock();
+        try {
+            if (binaryWriter == null) {
+                binaryWriter = newGroupCommitWriter(journal()::append);
+            }
+            return binaryWriter;
+        } finally {
+            ORDER_FILE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Creates a group-commit writer configured from the system properties.
+     *
+     * @param batchWriter writes one batch to the journal
+     * @param <T>         record type
+     * @return the writer
+     */
+    private static <T> GroupCommitWriter<T> newGroupCommitWriter(GroupCommitWriter.BatchWriter<T> batchWriter) {
+        return new GroupCommitWriter<>(
+                batchWriter,
+                ORDER_FILE_LOCK,
+                Integer.getInteger("store.ordersBatchSize", DEFAULT_BATCH_SIZE),
+                Long.getLong("store.ordersLingerMillis", DEFAULT_LINGER_MILLIS),
+                "order-history-writer");
+    }
+
+    /**
+     * Formats an order as a history record, including the line separator.
+     * <p>
+     * The record is built with a single {@link StringBuilder}: the total is written by
+     * {@link Money#appendTo(StringBuilder, long)} and the items summary is appended in
+     * place, so no {@code String.format} or intermediate strings are involved.
+     * </p>
+     *
+     * @param order the order to format (assumed non-null)
+     * @return the CSV line in the new format, followed by the line separator
+     */
+    private static String formatOrderRecord(Order order) {
+        StringBuilder sb = new StringBuilder(128);
+
+        // username first (so admin/history can filter + show owner)
+        sb.append(safeCsv(order.getCustomerUsername())).append(',')
+                .append(order.getOrderID()).append(',');
+        Money.appendTo(sb, order.getTotalCents()).append(',')
+                .append(order.getCreatedAt()).append(',');
+        appendItemsSummary(sb, order);
+
+        return sb.append(System.lineSeparator()).toString();
+    }
+
+    /**
+     * Appends a compact textual summary of the items in an order.
      * <p>
      * The summary format is a semicolon-separated list where each entry represents
-     * a product name and its quantity:
-     * {@code "ProductName xQTY;ProductName xQTY;"}.
+     * a product name, its quantity and its product ID:
+     * {@code "ProductName xQTY#ID;ProductName xQTY#ID;"}. Commas in names are replaced with
+     * spaces (see {@link #safeCsv(String)}).
      * </p>
      * <p>
      * Null {@link CartItem} entries and entries with {@code null} products are skipped.
      * </p>
      *
+     * @param sb    destination
      * @param order the order whose items should be summarized (assumed non-null)
-     * @return an items summary string (may be empty if no valid items exist)
      */
-    private static String buildItemsSummary(Order order) {
-        StringBuilder itemsSummary = new StringBuilder();
+    private static void appendItemsSummary(StringBuilder sb, Order order) {
         for (CartItem item : order.getItems()) {
             if (item == null || item.getProduct() == null) continue;
 
-            // Keep it simple: ProductName xQTY;
-            itemsSummary.append(item.getProduct().getName())
+            // Keep it simple: ProductName xQTY#ID;
+            sb.append(safeCsv(item.getProduct().getName()))
                     .append(" x")
-                    .append(item.getQuantity())
-                    .append(";");
+                    .append(item.getQuantity());
+            if (item.getProduct().getId() > 0) {
+                sb.append('#').append(item.getProduct().getId());
+            }
+            sb.append(';');
         }
-        return itemsSummary.toString();
     }
 
     /**
@@ -126,14 +392,295 @@ public class OrderHistoryIO {
      * objects so that {@link CartItem} references real products.
      * </p>
      * <p>
+     * In binary mode the binary log is replayed instead; if it does not exist yet, the CSV
+     * history is converted into it first.
+     * </p>
+     * <p>
      * If the file does not exist, an empty list is returned.
-     * This method synchronizes on {@link #ORDER_FILE_LOCK} to prevent reading during a write.
+     * This method holds {@link #ORDER_FILE_LOCK} to prevent reading during a write.
      * </p>
      *
      * @param engine the engine used to resolve products by name (may be {@code null})
      * @return a list of loaded orders (never {@code null})
      */
     public static List<Order> loadOrders(StoreEngine engine) {
+        if (!BINARY) {
+            return loadCsvOrders(engine);
+        }
+
+        ORDER_FILE_LOCK.lock();
+        try {
+            Path log = Paths.get(ORDER_LOG_FILE);
+            if (!Files.exists(log) && new File(ORDER_HISTORY_FILE).isFile()) {
+                convertCsvToBinary(engine);
+            }
+            if (!Files.isRegularFile(log)) {
+                return new ArrayList<>();
+            }
+            return BinaryOrderLog.replay(log, engine);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        } finally {
+            ORDER_FILE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Reads the whole order history, passing each order to a callback instead of keeping
+     * the history in memory. Like {@link #loadOrders(StoreEngine)}, this converts a CSV
+     * history into a missing binary log and repairs an invalid binary log tail, so it can
+     * replace {@code loadOrders} at startup when the history is not preloaded.
+     *
+     * @param engine the engine used to resolve products by name (may be {@code null})
+     * @param action receives the orders in history order
+     */
+    public static void forEachOrder(StoreEngine engine, Consumer<? super Order> action) {
+        if (!BINARY) {
+            try (Stream<Order> orders = streamOrders(engine)) {
+                orders.forEach(action);
+            } catch (UncheckedIOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        ORDER_FILE_LOCK.lock();
+        try {
+            Path log = Paths.get(ORDER_LOG_FILE);
+            if (!Files.exists(log) && new File(ORDER_HISTORY_FILE).isFile()) {
+                convertCsvToBinary(engine);
+            }
+            if (Files.isRegularFile(log)) {
+                BinaryOrderLog.replay(log, engine, action);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            ORDER_FILE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Converts the CSV history into the binary log, replacing the binary log if it exists.
+     * <p>
+     * The CSV file is left unchanged. The CSV format has no unit prices, so the converted
+     * items carry the current catalog prices; items whose products cannot be resolved are
+     * skipped, as when loading the CSV history.
+     * </p>
+     *
+     * @param engine the engine used to resolve products by name (may be {@code null})
+     * @return number of converted orders
+     * @throws IOException if the binary log cannot be written
+     */
+    public static int convertCsvToBinary(StoreEngine engine) throws IOException {
+        ORDER_FILE_LOCK.lock();
+        try {
+            List<Order> orders = loadCsvOrders(engine);
+            BinaryOrderLog.write(Paths.get(ORDER_LOG_FILE), orders);
+            return orders.size();
+        } finally {
+            ORDER_FILE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Opens a lazy stream over the whole order history.
+     *
+     * @param engine the engine used to resolve products by name (may be {@code null})
+     * @return orders in history order (must be closed)
+     * @throws UncheckedIOException if the history cannot be opened
+     * @see #streamOrders(StoreEngine, String, LocalDateTime, LocalDateTime)
+     */
+    public static Stream<Order> streamOrders(StoreEngine engine) {
+        return streamOrders(engine, null, null, null);
+    }
+
+    /**
+     * Opens a lazy stream over the orders of the history file (CSV or binary, as configured).
+     * <p>
+     * Only the orders written before this call are returned, and orders are read from disk
+     * as the stream is consumed, so the history does not have to fit in memory. Records
+     * outside the filter are skipped before their items are decoded. The stream keeps the
+     * file open until it is closed, so use it in a try-with-resources block.
+     * </p>
+     *
+     * @param engine   the engine used to resolve products by name (may be {@code null})
+     * @param username customer username (case-insensitive; {@code null} for all customers)
+     * @param from     earliest creation time, inclusive ({@code null} for no lower bound)
+     * @param to       latest creation time, exclusive ({@code null} for no upper bound)
+     * @return selected orders in history order (must be closed)
+     * @throws UncheckedIOException if the history cannot be opened
+     */
+    public static Stream<Order> streamOrders(StoreEngine engine, String username,
+                                             LocalDateTime from, LocalDateTime to) {
+        HistoryFilter filter = new HistoryFilter(username, from, to);
+        Path file;
+        long size;
+
+        ORDER_FILE_LOCK.lock();
+        try {
+            if (BINARY) {
+                file = Paths.get(ORDER_LOG_FILE);
+                if (!Files.exists(file) && new File(ORDER_HISTORY_FILE).isFile()) {
+                    convertCsvToBinary(engine);
+                }
+            } else {
+                file = Paths.get(ORDER_HISTORY_FILE);
+            }
+            if (!Files.isRegularFile(file)) {
+                return Stream.empty();
+            }
+            size = Files.size(file);
+            return openStream(file, 0, size, engine, filter);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            ORDER_FILE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Opens a lazy stream over a byte range of the history file.
+     *
+     * @param file   history file (the CSV file or the binary log, as configured)
+     * @param from   offset of the first record (0 for the whole file)
+     * @param size   end of the range (the file size when the stream was requested)
+     * @param engine the engine used to resolve products by name (may be {@code null})
+     * @param filter records to return
+     * @return selected orders in history order (must be closed)
+     * @throws IOException if the file cannot be opened
+     */
+    private static Stream<Order> openStream(Path file, long from, long size, StoreEngine engine,
+                                            HistoryFilter filter) throws IOException {
+        if (BINARY) {
+            return BinaryOrderLog.stream(file, from, size, engine, filter);
+        }
+        Charset charset = Charset.defaultCharset();
+        if (ParallelHistoryLoader.supports(charset)) {
+            return CsvHistoryStream.open(file, from, size, charset, engine, filter);
+        }
+
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ).position(from);
+        BufferedReader reader = new BufferedReader(Channels.newReader(ch, charset));
+        return reader.lines()
+                .map(line -> parseLine(engine, line))
+                .filter(filter::matches)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+    }
+
+    /**
+     * Returns the history file of the configured format.
+     *
+     * @return the binary log in binary mode, otherwise the CSV history file
+     */
+    static Path historyFile() {
+        return Paths.get(BINARY ? ORDER_LOG_FILE : ORDER_HISTORY_FILE);
+    }
+
+    /**
+     * Indicates whether orders are stored in the binary log.
+     *
+     * @return true in binary mode
+     */
+    static boolean isBinary() {
+        return BINARY;
+    }
+
+    /**
+     * Returns the current size of the history file. Appends are serialized with
+     * {@link #ORDER_FILE_LOCK}, so the size is always at a record boundary.
+     *
+     * @return size in bytes (0 if the file does not exist)
+     * @throws IOException if the size cannot be read
+     */
+    static long historySize() throws IOException {
+        ORDER_FILE_LOCK.lock();
+        try {
+            Path file = historyFile();
+            return Files.isRegularFile(file) ? Files.size(file) : 0L;
+        } finally {
+            ORDER_FILE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Reads the orders written at or after an offset of the history file (e.g., after a
+     * snapshot), passing each to a callback. In binary mode an invalid log tail is repaired
+     * as by {@link #loadOrders(StoreEngine)}.
+     *
+     * @param from   offset of the first record (a record boundary returned by {@link #historySize()})
+     * @param engine the engine used to resolve products by name (may be {@code null})
+     * @param action receives the orders in history order
+     * @throws IOException if the history cannot be read
+     */
+    static void forEachOrderFrom(long from, StoreEngine engine, Consumer<? super Order> action)
+            throws IOException {
+        ORDER_FILE_LOCK.lock();
+        try {
+            Path file = historyFile();
+            if (!Files.isRegularFile(file)) {
+                return;
+            }
+            if (BINARY) {
+                BinaryOrderLog.replay(file, engine, Math.max(from, BinaryOrderLog.HEADER_BYTES), action);
+                return;
+            }
+            try (Stream<Order> orders = openStream(file, from, Files.size(file), engine, HistoryFilter.ALL)) {
+                orders.forEach(action);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } finally {
+            ORDER_FILE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Reads one page of the order history from disk.
+     * <p>
+     * The history is scanned from the start, so the cost grows with the offset, but only
+     * the requested page is kept in memory.
+     * </p>
+     *
+     * @param engine   the engine used to resolve products by name (may be {@code null})
+     * @param username customer username (case-insensitive; {@code null} for all customers)
+     * @param from     earliest creation time, inclusive ({@code null} for no lower bound)
+     * @param to       latest creation time, exclusive ({@code null} for no upper bound)
+     * @param offset   number of selected orders to skip
+     * @param limit    maximum number of orders to return
+     * @return the page, in history order (never {@code null})
+     * @throws IllegalArgumentException if {@code offset} or {@code limit} is negative
+     * @throws UncheckedIOException     if the history cannot be read
+     */
+    public static List<Order> readOrders(StoreEngine engine, String username,
+                                         LocalDateTime from, LocalDateTime to,
+                                         long offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must be >= 0");
+        }
+        if (limit == 0) {
+            return new ArrayList<>();
+        }
+
+        try (Stream<Order> orders = streamOrders(engine, username, from, to)) {
+            return orders.skip(offset).limit(limit).collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Loads the CSV history file (both formats).
+     *
+     * @param engine the engine used to resolve products by name (may be {@code null})
+     * @return a list of loaded orders (never {@code null})
+     */
+    private static List<Order> loadCsvOrders(StoreEngine engine) {
         List<Order> loaded = new ArrayList<>();
 
         File file = new File(ORDER_HISTORY_FILE);
@@ -141,36 +688,53 @@ public class OrderHistoryIO {
             return loaded;
         }
 
-        synchronized (ORDER_FILE_LOCK) {
+        ORDER_FILE_LOCK.lock();
+        try {
+            Charset charset = Charset.defaultCharset();
+            if (PARALLEL_LOAD && ParallelHistoryLoader.supports(charset)) {
+                return ParallelHistoryLoader.load(file.toPath(), charset, engine);
+            }
+
             try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
                 String line;
 
                 while ((line = reader.readLine()) != null) {
-                    String trimmed = line.trim();
-                    if (trimmed.isEmpty()) continue;
-
-                    // Try NEW format first (5 fields)
-                    Order parsed = tryParseNewFormat(engine, trimmed);
-                    if (parsed != null) {
-                        loaded.add(parsed);
-                        continue;
-                    }
-
-                    // Fallback to OLD format (4 fields)
-                    parsed = tryParseOldFormat(engine, trimmed);
+                    Order parsed = parseLine(engine, line);
                     if (parsed != null) {
                         loaded.add(parsed);
                     }
                 }
-
-            } catch (IOException e) {
-                e.printStackTrace();
             }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            ORDER_FILE_LOCK.unlock();
         }
 
         return loaded;
     }
 
+    /**
+     * Parses one history line in either CSV format.
+     *
+     * @param engine engine used to resolve product names (may be {@code null})
+     * @param line   CSV line (surrounding whitespace is ignored)
+     * @return parsed order, or {@code null} if the line is blank or matches neither format
+     */
+    static Order parseLine(StoreEngine engine, String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty()) return null;
+
+        // Try NEW format first (5 fields)
+        Order parsed = tryParseNewFormat(engine, trimmed);
+        if (parsed != null) {
+            return parsed;
+        }
+
+        // Fallback to OLD format (4 fields)
+        return tryParseOldFormat(engine, trimmed);
+    }
+
     /**
      * Attempts to parse a CSV line using the new format:
      * {@code username,orderId,total,createdAt,itemsSummary}.
@@ -187,11 +751,11 @@ public class OrderHistoryIO {
         String username = unsafeCsv(parts[0]).trim();
         if (username.isEmpty()) username = Order.UNKNOWN_CUSTOMER;
 
-        int orderId;
-        double total;
+        long orderId;
+        long total;
         try {
-            orderId = Integer.parseInt(parts[1].trim());
-            total = Double.parseDouble(parts[2].trim());
+            orderId = Long.parseLong(parts[1].trim());
+            total = Money.parse(parts[2]);
         } catch (NumberFormatException ex) {
             return null;
         }
@@ -200,7 +764,7 @@ public class OrderHistoryIO {
 
         List<CartItem> items = parseItemsSummary(engine, unsafeCsv(parts[4]).trim());
 
-        // uses constructor: Order(String username, int id, List<CartItem>, double, LocalDateTime)
+        // uses constructor: Order(String username, long id, List<CartItem>, long cents, LocalDateTime)
         return new Order(username, orderId, items, total, createdAt);
     }
 
@@ -219,11 +783,11 @@ public class OrderHistoryIO {
         String[] parts = line.split(",", 4);
         if (parts.length < 4) return null;
 
-        int orderId;
-        double total;
+        long orderId;
+        long total;
         try {
-            orderId = Integer.parseInt(parts[0].trim());
-            total = Double.parseDouble(parts[1].trim());
+            orderId = Long.parseLong(parts[0].trim());
+            total = Money.parse(parts[1]);
         } catch (NumberFormatException ex) {
             return null;
         }
@@ -256,8 +820,10 @@ public class OrderHistoryIO {
     /**
      * Parses an items summary string into a list of {@link CartItem}.
      * <p>
-     * The expected format is: {@code "ProductName xQTY;ProductName xQTY;"}.
-     * Product names are resolved via {@link StoreEngine#findProductPublic(String)} when an engine is provided.
+     * The expected format is: {@code "ProductName xQTY#ID;ProductName xQTY#ID;"} (the {@code #ID}
+     * suffix is optional). When an engine is provided, products are resolved by ID (see
+     * {@link #productById(StoreEngine, int, String)}), or via {@link StoreEngine#findProductPublic(String)}
+     * for items without a known ID.
      * Items that cannot be parsed or resolved are skipped.
      * </p>
      *
@@ -277,15 +843,25 @@ public class OrderHistoryIO {
             String[] parts = t.split(" x");
             if (parts.length != 2) continue;
 
+            String qtyPart = parts[1].trim();
+            int hash = qtyPart.indexOf('#');
             int qty;
+            int id = 0;
             try {
-                qty = Integer.parseInt(parts[1].trim());
+                qty = Integer.parseInt((hash < 0) ? qtyPart : qtyPart.substring(0, hash).trim());
+                if (hash >= 0) {
+                    id = Integer.parseInt(qtyPart.substring(hash + 1));
+                }
             } catch (NumberFormatException ex) {
                 continue;
             }
+            if (qty <= 0 || id < 0) continue;
 
             String productName = parts[0].trim();
-            Product p = (engine == null) ? null : engine.findProductPublic(productName);
+            Product p = productById(engine, id, productName);
+            if (p == null && engine != null) {
+                p = engine.findProductPublic(productName);
+            }
             if (p != null) {
                 result.add(new CartItem(p, qty));
             }
@@ -294,6 +870,57 @@ public class OrderHistoryIO {
         return result;
     }
 
+    /**
+     * Resolves a history item by its product ID.
+     * <p>
+     * The ID is first passed to {@link ProductIdRegistry#observe(int)}, so an ID still referenced
+     * by the history is never handed to a new product (even after its product was deleted).
+     * If the catalog product with that ID has a different name, the ID belonged to another
+     * product when the order was written: the mismatch is reported and {@code null} is returned,
+     * so the caller falls back to the name.
+     * </p>
+     *
+     * @param engine engine to resolve in (may be {@code null})
+     * @param id     product ID of the item (0 if the item has none)
+     * @param name   product name stored with the item
+     * @return the product, or {@code null} if the ID is unknown or names another product
+     */
+    static Product productById(StoreEngine engine, int id, String name) {
+        ProductIdRegistry.observe(id);
+        Product p = (engine == null) ? null : engine.findProductById(id);
+        if (p == null || isStoredName(p, name)) {
+            return p;
+        }
+        reportIdMismatch(p, name);
+        return null;
+    }
+
+    /**
+     * Checks whether a name stored in the history is the name of a product, as written by
+     * either format (the CSV history replaces commas and drops surrounding spaces).
+     *
+     * @param p    catalog product
+     * @param name name stored with a history item
+     * @return true if {@code name} is the product's name
+     */
+    static boolean isStoredName(Product p, String name) {
+        String actual = p.getName();
+        return actual.equals(name) || safeCsv(actual).trim().equals(name);
+    }
+
+    /**
+     * Reports (once per ID) a history item whose product ID now belongs to a product with another name.
+     *
+     * @param p    catalog product holding the ID
+     * @param name name stored with the history item
+     */
+    static void reportIdMismatch(Product p, String name) {
+        if (MISMATCHED_IDS.add(p.getId())) {
+            System.err.println("Order history item \"" + name + "\" has product ID " + p.getId()
+                    + ", which now belongs to \"" + p.getName() + "\"; resolving it by name");
+        }
+    }
+
     /**
      * Minimal CSV safety helper.
      * <p>
@@ -0,0 +1,78 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Utility class that persists the order ID high-water mark.
+ *
+ * <p>
+ * The file contains a single decimal number: the highest order ID that may have been
+ * handed out. It is replaced atomically (write to a temporary file, then move), so a
+ * crash never leaves a partially written value behind.
+ * </p>
+ */
+public final class OrderIdStore {
+
+    /**
+     * Default high-water mark file path, relative to the application's working directory.
+     * May be overridden with the {@code store.orderIdFile} system property.
+     */
+    public static final String ORDER_ID_FILE =
+            System.getProperty("store.orderIdFile", "orders_id.hwm");
+
+    /**
+     * Prevents instantiation; this is a static utility class.
+     */
+    private OrderIdStore() {}
+
+    /**
+     * Reads the persisted high-water mark.
+     *
+     * @return the stored high-water mark, or 0 if the file does not exist or cannot be read
+     */
+    public static long loadHighWaterMark() {
+        Path path = Paths.get(ORDER_ID_FILE);
+        if (!Files.isRegularFile(path)) {
+            return 0L;
+        }
+
+        try {
+            String text = new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim();
+            return text.isEmpty() ? 0L : Math.max(0L, Long.parseLong(text));
+        } catch (IOException | NumberFormatException ex) {
+            System.err.println("Could not read order ID high-water mark: " + ex.getMessage());
+            return 0L;
+        }
+    }
+
+    /**
+     * Atomically replaces the persisted high-water mark.
+     * <p>
+     * If writing fails, the error is reported and the previous value is kept; IDs issued in
+     * the meantime are still recovered from the order history on the next start.
+     * </p>
+     *
+     * @param highWaterMark the new high-water mark
+     */
+    public static void saveHighWaterMark(long highWaterMark) {
+        Path path = Paths.get(ORDER_ID_FILE).toAbsolutePath();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try {
+            Files.write(tmp, Long.toString(highWaterMark).getBytes(StandardCharsets.US_ASCII));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            System.err.println("Could not persist order ID high-water mark: " + ex.getMessage());
+        }
+    }
+}
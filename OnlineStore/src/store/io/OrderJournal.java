@@ -0,0 +1,330 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only order journal (write-ahead log) backed by a single open {@link FileChannel}.
+ *
+ * <p>
+ * Records (text, or pre-encoded binary records) are copied into one reusable direct buffer
+ * and appended with a single channel write, so no writer objects are created per order. When to force the
+ * data to the storage device is set by the {@link FsyncPolicy}.
+ * </p>
+ * <p>
+ * A failed append is reported to the caller as an {@link IOException}, and any partly
+ * written bytes are truncated away so the file never ends with a torn record. With
+ * {@link FsyncPolicy#INTERVAL}, a failure of the background sync is reported by the next
+ * append.
+ * </p>
+ * <p>
+ * The journal is not thread-safe: callers serialize appends (e.g., with
+ * the order file lock). The background sync thread only calls {@link FileChannel#force(boolean)},
+ * which may run concurrently with writes.
+ * </p>
+ */
+final class OrderJournal implements Closeable {
+
+    /**
+     * When appended records are forced to the storage device.
+     */
+    enum FsyncPolicy {
+        /** Force after every append; callers return only once their record is durable. */
+        ALWAYS,
+        /** Force in the background every interval; at most one interval of orders can be lost. */
+        INTERVAL,
+        /** Never force explicitly; the operating system decides when data reaches the device. */
+        NONE;
+
+        /**
+         * Parses a policy name ({@code always}, {@code interval}, {@code none}). For backward
+         * compatibility, {@code true} means {@link #ALWAYS} and {@code false} means {@link #NONE}.
+         *
+         * @param text policy name (case-insensitive)
+         * @return the policy
+         * @throws IllegalArgumentException if {@code text} is not a known policy
+         */
+        static FsyncPolicy parse(String text) {
+            String s = (text == null) ? "" : text.trim().toLowerCase(Locale.ROOT);
+            switch (s) {
+                case "always":
+                case "true":
+                    return ALWAYS;
+                case "interval":
+                    return INTERVAL;
+                case "none":
+                case "false":
+                    return NONE;
+                default:
+                    throw new IllegalArgumentException("Unknown fsync policy: " + text);
+            }
+        }
+    }
+
+    /** Initial capacity of the direct encode buffer (grown on demand). */
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    /** Open journal file. */
+    private final FileChannel channel;
+
+    /** Sync policy. */
+    private final FsyncPolicy policy;
+
+    /** Encoder for records (reused). */
+    private final CharsetEncoder encoder;
+
+    /** Reusable direct buffer holding the encoded records of one append. */
+    private ByteBuffer buffer;
+
+    /** Whether data was written since the last background sync. */
+    private volatile boolean dirty;
+
+    /** Failure of the last background sync, reported by the next append. */
+    private volatile IOException syncFailure;
+
+    /** Background sync thread ({@code null} unless the policy is {@link FsyncPolicy#INTERVAL}). */
+    private final Thread syncThread;
+
+    /**
+     * Opens (or creates) a journal file for appending.
+     *
+     * @param file           journal file
+     * @param charset        record encoding
+     * @param policy         sync policy
+     * @param intervalMillis sync interval for {@link FsyncPolicy#INTERVAL} (must be positive then)
+     * @param threadName     name of the background sync thread
+     * @throws IOException              if the file cannot be opened
+     * @throws IllegalArgumentException if {@code intervalMillis} is not positive for the interval policy
+     */
+    OrderJournal(Path file, Charset charset, FsyncPolicy policy, long intervalMillis, String threadName)
+            throws IOException {
+        if (policy == FsyncPolicy.INTERVAL && intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be > 0");
+        }
+
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.policy = policy;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_BYTES);
+
+        if (policy == FsyncPolicy.INTERVAL) {
+            this.syncThread = new Thread(() -> syncLoop(intervalMillis), threadName);
+            this.syncThread.setDaemon(true);
+            this.syncThread.start();
+        } else {
+            this.syncThread = null;
+        }
+    }
+
+    /**
+     * Returns the sync policy.
+     *
+     * @return policy
+     */
+    FsyncPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Appends records (already terminated by line separators) with one write.
+     *
+     * @param records record text
+     * @throws IOException if the records could not be written (or forced, with {@link FsyncPolicy#ALWAYS}),
+     *                     or if the previous background sync failed
+     */
+    void append(CharSequence records) throws IOException {
+        checkSyncFailure();
+        encode(records);
+        writeBuffer();
+    }
+
+    /**
+     * Appends already encoded binary records with one write.
+     *
+     * @param records encoded records, in order
+     * @throws IOException if the records could not be written (or forced, with {@link FsyncPolicy#ALWAYS}),
+     *                     or if the previous background sync failed
+     */
+    void append(List<byte[]> records) throws IOException {
+        checkSyncFailure();
+
+        buffer.clear();
+        for (byte[] record : records) {
+            while (buffer.remaining() < record.length) {
+                grow();
+            }
+            buffer.put(record);
+        }
+        buffer.flip();
+        writeBuffer();
+    }
+
+    /**
+     * Returns the current size of the journal file.
+     *
+     * @return size in bytes
+     * @throws IOException if the size cannot be read
+     */
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Throws (once) the failure of the last background sync, if any.
+     *
+     * @throws IOException if the previous background sync failed
+     */
+    private void checkSyncFailure() throws IOException {
+        IOException pending = syncFailure;
+        if (pending != null) {
+            syncFailure = null;
+            throw new IOException("Background sync of the order journal failed", pending);
+        }
+    }
+
+    /**
+     * Writes the content of {@link #buffer} at the end of the file and applies the sync policy.
+     * On failure the file is truncated back to its previous size.
+     *
+     * @throws IOException if the write or the forced sync fails
+     */
+    private void writeBuffer() throws IOException {
+        long start = channel.size();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (policy == FsyncPolicy.ALWAYS) {
+                channel.force(false);
+            } else {
+                dirty = true;
+            }
+        } catch (IOException ex) {
+            truncateTo(start, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Forces all appended records to the storage device.
+     *
+     * @throws IOException if the sync fails
+     */
+    void force() throws IOException {
+        dirty = false;
+        channel.force(false);
+    }
+
+    /**
+     * Stops the background sync, forces pending data (unless the policy is {@link FsyncPolicy#NONE})
+     * and closes the file.
+     *
+     * @throws IOException if the final sync or close fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (syncThread != null) {
+            syncThread.interrupt();
+        }
+        try {
+            if (policy != FsyncPolicy.NONE && channel.isOpen()) {
+                channel.force(false);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Encodes records into {@link #buffer}, growing it if needed, and flips it for writing.
+     *
+     * @param records record text
+     * @throws CharacterCodingException if encoding fails
+     */
+    private void encode(CharSequence records) throws CharacterCodingException {
+        CharBuffer in = CharBuffer.wrap(records);
+        encoder.reset();
+        buffer.clear();
+
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, true);
+            if (result.isUnderflow()) {
+                result = encoder.flush(buffer);
+            }
+            if (result.isUnderflow()) {
+                break;
+            }
+            if (result.isOverflow()) {
+                grow();
+            } else {
+                result.throwException();
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Doubles the capacity of {@link #buffer}, keeping its content.
+     */
+    private void grow() {
+        ByteBuffer bigger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+        buffer.flip();
+        bigger.put(buffer);
+        buffer = bigger;
+    }
+
+    /**
+     * Removes a partly written append after a failure.
+     *
+     * @param size  file size before the append
+     * @param cause failure of the append (the truncate failure is attached to it)
+     */
+    private void truncateTo(long size, IOException cause) {
+        try {
+            channel.truncate(size);
+        } catch (IOException ex) {
+            cause.addSuppressed(ex);
+        }
+    }
+
+    /**
+     * Background sync loop for {@link FsyncPolicy#INTERVAL}.
+     *
+     * @param intervalMillis sync interval
+     */
+    private void syncLoop(long intervalMillis) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(intervalMillis);
+                if (dirty) {
+                    force();
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } catch (IOException ex) {
+                syncFailure = ex;
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.io;
+
+import store.engine.StoreEngine;
+import store.order.Order;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads the CSV order history in parallel.
+ *
+ * <p>
+ * The file is split into newline-aligned chunks, and each chunk is memory-mapped and parsed by
+ * its own task on the common fork-join pool, which parses it straight from the mapped bytes with
+ * a {@link CsvOrderParser}. The chunk results are merged and returned in order-ID order.
+ * </p>
+ */
+final class ParallelHistoryLoader {
+
+    /** Files smaller than this are parsed as a single chunk on the calling thread. */
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+
+    /** Largest chunk (a mapped region must stay well below 2 GB). */
+    private static final long MAX_CHUNK_BYTES = 256L << 20;
+
+    /** Chunks per pool thread, so uneven chunks still keep every thread busy. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelHistoryLoader() {}
+
+    /**
+     * Checks whether a charset keeps ASCII delimiters and digits as single bytes,
+     * which the byte-level parser relies on.
+     *
+     * @param charset file encoding
+     * @return true if the file can be parsed by this loader
+     */
+    static boolean supports(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.ISO_8859_1)
+                || charset.equals(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Loads all orders of a CSV history file.
+     *
+     * @param file    history file
+     * @param charset file encoding (see {@link #supports(Charset)})
+     * @param engine  engine used to resolve product names (may be {@code null})
+     * @return loaded orders sorted by order ID (orders with equal IDs keep their file order)
+     * @throws IOException if the file cannot be read
+     */
+    static List<Order> load(Path file, Charset charset, StoreEngine engine) throws IOException {
+        List<ChunkTask> tasks = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size == 0) {
+                return new ArrayList<>();
+            }
+
+            int threads = ForkJoinPool.getCommonPoolParallelism();
+            long chunkSize = Math.min(MAX_CHUNK_BYTES,
+                    Math.max(MIN_CHUNK_BYTES, size / ((long) threads * CHUNKS_PER_THREAD) + 1));
+
+            long start = 0;
+            while (start < size) {
+                long end = (size - start <= chunkSize) ? size : lineEnd(ch, start + chunkSize, size);
+                tasks.add(new ChunkTask(ch.map(FileChannel.MapMode.READ_ONLY, start, end - start), charset, engine));
+                start = end;
+            }
+        }
+
+        List<Order> loaded;
+        if (tasks.size() == 1) {
+            loaded = tasks.get(0).invoke();
+        } else {
+            for (ChunkTask task : tasks) {
+                ForkJoinPool.commonPool().execute(task);
+            }
+            loaded = new ArrayList<>();
+            for (ChunkTask task : tasks) {
+                loaded.addAll(task.join());
+            }
+        }
+
+        // Chunks are usually already in ID order, so this stable sort is close to linear.
+        loaded.sort(Comparator.comparingLong(Order::getOrderID));
+        return loaded;
+    }
+
+    /**
+     * Returns the position just after the first newline at or after {@code from}.
+     *
+     * @param ch   open file
+     * @param from position to search from
+     * @param size file size
+     * @return start of the next line, or {@code size} if there is none
+     * @throws IOException if the file cannot be read
+     */
+    static long lineEnd(FileChannel ch, long from, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        long pos = from;
+        while (pos < size) {
+            buf.clear();
+            int n = ch.read(buf, pos);
+            if (n <= 0) break;
+
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /**
+     * Parses the lines of one mapped chunk.
+     */
+    private static final class ChunkTask extends RecursiveTask<List<Order>> {
+
+        private final MappedByteBuffer data;
+        private final CsvOrderParser parser;
+
+        private ChunkTask(MappedByteBuffer data, Charset charset, StoreEngine engine) {
+            this.data = data;
+            this.parser = new CsvOrderParser(charset, engine);
+        }
+
+        /**
+         * Parses every line of the chunk.
+         *
+         * @return orders of the chunk in file order
+         */
+        @Override
+        protected List<Order> compute() {
+            List<Order> orders = new ArrayList<>();
+            parser.setData(data);
+            int limit = data.limit();
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int lineEnd = parser.lineEnd(lineStart);
+                Order order = parser.parseLine(lineStart, lineEnd, HistoryFilter.ALL);
+                if (order != null) {
+                    orders.add(order);
+                }
+                lineStart = lineEnd + 1;
+            }
+            return orders;
+        }
+    }
+}
@@ -5,23 +5,33 @@
  */
 package store.io;
 
+import store.core.Money;
 import store.products.*;
 
 import java.awt.Color;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Utility class for loading and saving the product catalog in CSV format.
  *
  * <p>
  * The CSV format uses the following columns:
- * {@code name,price,stock,description,category,imagePath}.
+ * {@code name,price,stock,description,category,imagePath,id}.
  * The first row may contain the header and will be ignored when loading.
  * </p>
  *
  * <p>
+ * The {@code id} column holds the stable product ID, so a reloaded product keeps the ID that
+ * saved orders reference. Files without it (or rows with a blank ID) still load; those products
+ * receive new IDs.
+ * </p>
+ *
+ * <p>
  * When loading, each CSV row is converted into a {@link Product} instance using
  * {@link ProductFactory} (no direct product constructors are used). Missing or invalid
  * values are handled defensively by skipping the row or applying defaults.
@@ -38,7 +48,7 @@ public final class ProductCatalogIO {
      * Expected CSV header line.
      */
     private static final String HEADER =
-            "name,price,stock,description,category,imagePath";
+            "name,price,stock,description,category,imagePath,id";
 
     /**
      * Default image path used when no image path is provided in the CSV row.
@@ -61,6 +71,7 @@ public final class ProductCatalogIO {
         List<Product> result = new ArrayList<>();
         if (file == null) return result;
 
+        Set<Integer> seenIds = new HashSet<>();
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
 
@@ -73,7 +84,7 @@ public final class ProductCatalogIO {
                     continue;
                 }
 
-                Product p = parseProductLine(line);
+                Product p = parseProductLine(line, seenIds);
                 if (p != null) {
                     result.add(p);
                 }
@@ -96,6 +107,24 @@ public final class ProductCatalogIO {
      */
     public static void saveProductsToFile(File file,
                                           List<Product> products) throws IOException {
+        saveProductsToFile(file, products, null);
+    }
+
+    /**
+     * Saves the given products into a CSV file, writing the given stock levels.
+     *
+     * <p>
+     * Used to save the stock on hand ({@link store.engine.StoreEngine#getStockOnHand()}), since a
+     * product's own stock excludes units held by open carts.
+     * </p>
+     *
+     * @param file     the destination CSV file
+     * @param products the products to write (may be {@code null})
+     * @param stock    stock to write per product (may be {@code null}; missing products use their own stock)
+     * @throws IOException if writing to the file fails
+     */
+    public static void saveProductsToFile(File file, List<Product> products,
+                                          Map<Product, Integer> stock) throws IOException {
         if (file == null) return;
 
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
@@ -106,7 +135,8 @@ public final class ProductCatalogIO {
 
             for (Product p : products) {
                 if (p == null) continue;
-                writer.write(productToCsvLine(p));
+                Integer s = (stock == null) ? null : stock.get(p);
+                writer.write(productToCsvLine(p, (s == null) ? p.getStock() : s));
                 writer.newLine();
             }
         }
@@ -117,15 +147,17 @@ public final class ProductCatalogIO {
      *
      * <p>
      * The expected order is:
-     * {@code name,price,stock,description,category[,imagePath]}.
+     * {@code name,price,stock,description,category[,imagePath[,id]]}.
      * If {@code category} cannot be parsed, a default category is used.
      * If {@code imagePath} is missing/blank, a default image path is used.
+     * If {@code id} is missing, invalid or already used earlier in the file, a new ID is assigned.
      * </p>
      *
-     * @param line the raw CSV line
+     * @param line    the raw CSV line
+     * @param seenIds IDs already used by earlier rows of the file (updated)
      * @return a constructed {@link Product}, or {@code null} if parsing fails
      */
-    private static Product parseProductLine(String line) {
+    private static Product parseProductLine(String line, Set<Integer> seenIds) {
         String[] parts = line.split(",", -1);
         if (parts.length < 5) return null;
 
@@ -134,7 +166,7 @@ public final class ProductCatalogIO {
         double price;
         int stock;
         try {
-            price = Double.parseDouble(parts[1].trim());
+            price = Money.toDouble(Money.parse(parts[1]));
             stock = Integer.parseInt(parts[2].trim());
         } catch (NumberFormatException e) {
             return null;
@@ -154,6 +186,18 @@ public final class ProductCatalogIO {
             imagePath = parts[5].trim();
         }
 
+        int id = 0;
+        if (parts.length >= 7 && !parts[6].trim().isEmpty()) {
+            try {
+                id = Integer.parseInt(parts[6].trim());
+            } catch (NumberFormatException e) {
+                id = 0;
+            }
+            if (id < 0 || !seenIds.add(id)) {
+                id = 0;
+            }
+        }
+
         Color color = (category == Category.BOOKS)
                 ? Color.WHITE
                 : (category == Category.CLOTHING ? Color.LIGHT_GRAY : Color.DARK_GRAY);
@@ -161,7 +205,7 @@ public final class ProductCatalogIO {
         ProductFactory.BasicFields basic = new ProductFactory.BasicFields(
                 name, price, stock, description, category, color, imagePath
         );
-        return ProductFactory.createProductWithDefaults(basic);
+        return ProductFactory.createProductWithDefaults(id, basic);
     }
 
     /**
@@ -171,10 +215,11 @@ public final class ProductCatalogIO {
      * Commas in the description are replaced with spaces to preserve the simple CSV layout.
      * </p>
      *
-     * @param p the product to serialize
+     * @param p     the product to serialize
+     * @param stock the stock level to write
      * @return a CSV line representing the product
      */
-    private static String productToCsvLine(Product p) {
+    private static String productToCsvLine(Product p, int stock) {
         String name = safe(p.getName());
         String description = safe(p.getDescription()).replace(",", " ");
         String category = (p.getCategory() == null)
@@ -182,15 +227,15 @@ public final class ProductCatalogIO {
                 : p.getCategory().name();
         String imagePath = safe(p.getImagePath());
 
-        return String.format(
-                "%s,%.2f,%d,%s,%s,%s",
-                name,
-                p.getPrice(),
-                p.getStock(),
-                description,
-                category,
-                imagePath
-        );
+        StringBuilder sb = new StringBuilder(64 + description.length());
+        sb.append(name).append(',');
+        Money.appendTo(sb, p.getPriceCents()).append(',');
+        sb.append(stock).append(',')
+                .append(description).append(',')
+                .append(category).append(',')
+                .append(imagePath).append(',')
+                .append(p.getId());
+        return sb.toString();
     }
 
     /**
@@ -0,0 +1,633 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.io;
+
+import store.cart.CartItem;
+import store.core.Money;
+import store.engine.StoreEngine;
+import store.order.Order;
+import store.products.*;
+
+import java.awt.Color;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Utility class that saves and restores binary snapshots of the store state, so that
+ * startup does not have to rebuild everything from the catalog CSV and the whole order history.
+ *
+ * <p>
+ * A snapshot holds the catalog (with stock levels and product IDs), the last order and product IDs,
+ * optionally all orders
+ * (as {@link BinaryOrderLog} records), and the position the order history file had when the
+ * snapshot was taken. On startup, {@link #restore(StoreEngine, boolean)} loads the snapshot and
+ * replays only the history written after that position, taking the stock of those orders
+ * again. The state is captured inside {@link StoreEngine#checkpoint(java.util.function.Supplier)},
+ * so every order before the recorded position is in the snapshot (with its stock taken) and
+ * every order after it is not. Stock changes that are not orders (e.g., restocking) are only
+ * kept once the next snapshot is written.
+ * </p>
+ *
+ * <h3>Format</h3>
+ * <p>
+ * Magic {@code "OSSN"}, a version byte, the state, and a CRC32C of all previous bytes.
+ * The file is written to a temporary file, forced and moved into place atomically, so a
+ * crash leaves either the old or the new snapshot. Held stock (cart reservations) is saved
+ * as available stock, since carts are not persisted.
+ * </p>
+ * <p>
+ * The snapshot is only used if it is intact and the history file still matches it (same
+ * format, at least as long, and the same bytes just before the recorded position);
+ * otherwise the whole history is read as before. The catalog CSV is not read when a
+ * snapshot is restored; delete the snapshot file to reload the catalog from CSV.
+ * </p>
+ */
+public final class StoreSnapshot {
+
+    /**
+     * Default snapshot file path, relative to the application's working directory.
+     * May be overridden with the {@code store.snapshotFile} system property.
+     */
+    public static final String SNAPSHOT_FILE =
+            System.getProperty("store.snapshotFile", "store_snapshot.bin");
+
+    /** Default interval between periodic snapshots, in milliseconds. */
+    public static final long DEFAULT_INTERVAL_MILLIS = 5 * 60 * 1000L;
+
+    /** File signature. */
+    private static final byte[] MAGIC = {'O', 'S', 'S', 'N'};
+
+    /** Format version. */
+    private static final byte VERSION = 2;
+
+    /** Number of history bytes before the recorded position whose checksum is kept. */
+    private static final int HISTORY_CHECK_BYTES = 4096;
+
+    /** Serializes snapshot writes. */
+    private static final ReentrantLock SAVE_LOCK = new ReentrantLock();
+
+    /**
+     * Prevents instantiation; this is a static utility class.
+     */
+    private StoreSnapshot() {}
+
+    /**
+     * State copied from the engine at a checkpoint.
+     */
+    private static final class State {
+        private final long lastOrderId;
+        private final long historySize;
+        private final List<Product> products;
+        private final int[] stock;
+        private final List<Order> orders;
+
+        private State(long lastOrderId, long historySize, List<Product> products, int[] stock, List<Order> orders) {
+            this.lastOrderId = lastOrderId;
+            this.historySize = historySize;
+            this.products = products;
+            this.stock = stock;
+            this.orders = orders;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the engine state, replacing the previous snapshot atomically.
+     *
+     * @param engine        engine to snapshot
+     * @param includeOrders whether the in-memory orders are saved (use {@code false} when the
+     *                      history is not preloaded, so the engine does not hold all orders)
+     * @throws IOException if the snapshot cannot be written (the previous snapshot is kept)
+     */
+    public static void save(StoreEngine engine, boolean includeOrders) throws IOException {
+        SAVE_LOCK.lock();
+        try {
+            State state;
+            try {
+                state = engine.checkpoint(() -> capture(engine, includeOrders));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+
+            Path path = Paths.get(SNAPSHOT_FILE).toAbsolutePath();
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            write(tmp, state, historyChecksum(OrderHistoryIO.historyFile(), state.historySize));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            SAVE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Restores the engine state from the snapshot file, if there is a usable one.
+     * <p>
+     * The catalog and stock are taken from the snapshot, the stock of orders written after the
+     * snapshot is taken again, and the order ID generator continues above the last ID. With
+     * {@code loadOrders}, the saved orders plus the orders written after the snapshot are loaded
+     * into the engine; otherwise only the orders written after the snapshot are read. If the
+     * snapshot holds no orders, the whole history is loaded and the stock of the orders written
+     * after the snapshot is still taken. If the history file no longer matches the snapshot,
+     * the whole history is read instead (and the saved stock is kept as is). Problems are reported on
+     * {@code System.err}.
+     * </p>
+     * <p>
+     * The snapshot is read and checked completely before the engine is changed, and the history
+     * is read completely before any stock is taken or orders are added. Once the catalog has been
+     * restored, this method returns true even if the orders could not be restored, so the caller
+     * never loads a second catalog into the same engine.
+     * </p>
+     *
+     * @param engine     engine to restore into (expected to be empty)
+     * @param loadOrders whether orders are loaded into the engine
+     * @return true if the snapshot was restored; false if there is no usable snapshot
+     *         (nothing was changed, and the caller should load the catalog and history itself)
+     */
+    public static boolean restore(StoreEngine engine, boolean loadOrders) {
+        Path path = Paths.get(SNAPSHOT_FILE);
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+
+        boolean changed = false;
+        try {
+            if (!isIntact(path)) {
+                System.err.println("Store snapshot " + path + " is damaged; ignoring it");
+                return false;
+            }
+
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                byte[] magic = new byte[MAGIC.length];
+                in.readFully(magic);
+                if (!Arrays.equals(magic, MAGIC) || in.readByte() != VERSION) {
+                    System.err.println("Store snapshot " + path + " has an unsupported format; ignoring it");
+                    return false;
+                }
+
+                long lastOrderId = in.readLong();
+                boolean binary = in.readBoolean();
+                long historySize = in.readLong();
+                int historyCheck = in.readInt();
+                int lastProductId = in.readInt();
+                List<Product> products = readProducts(in);
+                ProductIdRegistry.observe(lastProductId);
+
+                Path history = OrderHistoryIO.historyFile();
+                boolean historyMatches = binary == OrderHistoryIO.isBinary()
+                        && historySize <= OrderHistoryIO.historySize()
+                        && historyChecksum(history, historySize) == historyCheck;
+                List<byte[]> savedOrders = (loadOrders && historyMatches) ? readOrderRecords(in) : null;
+
+                engine.addProducts(products);
+                engine.observeOrderId(lastOrderId);
+                changed = true;
+
+                try {
+                    restoreOrders(engine, savedOrders, loadOrders, historyMatches ? historySize : -1L);
+                } catch (IOException | RuntimeException ex) {
+                    System.err.println("Could not restore the orders of store snapshot " + path + ": " + ex
+                            + "; reading the whole order history");
+                    restoreOrders(engine, null, loadOrders, -1L);
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            if (changed) {
+                System.err.println("Could not restore the orders of store snapshot " + path + ": " + ex
+                        + "; the catalog was restored, but orders may be missing");
+                return true;
+            }
+            System.err.println("Could not restore store snapshot " + path + ": " + ex);
+            return false;
+        }
+    }
+
+    /**
+     * Starts a daemon thread that saves a snapshot every interval while the state changes,
+     * and registers a shutdown hook that saves a final snapshot. Failures are reported on
+     * {@code System.err}.
+     *
+     * @param engine         engine to snapshot
+     * @param includeOrders  whether the in-memory orders are saved (see {@link #save(StoreEngine, boolean)})
+     * @param intervalMillis interval between snapshots (must be positive)
+     * @throws IllegalArgumentException if {@code intervalMillis} is not positive
+     */
+    public static void startPeriodicSnapshots(StoreEngine engine, boolean includeOrders, long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be > 0");
+        }
+
+        Thread saver = new Thread(() -> {
+            long[] saved = changeMarks(engine);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(intervalMillis);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+
+                long[] current = changeMarks(engine);
+                if (!Arrays.equals(current, saved) && saveReporting(engine, includeOrders)) {
+                    saved = current;
+                }
+            }
+        }, "store-snapshot");
+        saver.setDaemon(true);
+        saver.start();
+
+        Runtime.getRuntime().addShutdownHook(
+                new Thread(() -> saveReporting(engine, includeOrders), "store-snapshot-shutdown"));
+    }
+
+    /**
+     * Copies the state to save. Runs inside the engine checkpoint.
+     *
+     * @param engine        engine to snapshot
+     * @param includeOrders whether the in-memory orders are copied
+     * @return captured state
+     * @throws UncheckedIOException if the history size cannot be read
+     */
+    private static State capture(StoreEngine engine, boolean includeOrders) {
+        long historySize;
+        try {
+            historySize = OrderHistoryIO.historySize();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        List<Product> products = engine.getAllProducts();
+        Map<Product, Integer> held = engine.getHeldQuantities();
+        int[] stock = new int[products.size()];
+        for (int i = 0; i < stock.length; i++) {
+            Product p = products.get(i);
+            stock[i] = p.getStock() + held.getOrDefault(p, 0);
+        }
+
+        return new State(engine.getLastOrderId(), historySize, products, stock,
+                includeOrders ? engine.getAllOrders() : null);
+    }
+
+    /**
+     * Writes a snapshot file and forces it to the storage device.
+     *
+     * @param file         destination
+     * @param state        captured state
+     * @param historyCheck checksum of the history bytes before the recorded position
+     * @throws IOException if writing fails
+     */
+    private static void write(Path file, State state, int historyCheck) throws IOException {
+        try (FileOutputStream fos = new FileOutputStream(file.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(fos, new CRC32C());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 64 * 1024));
+
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(state.lastOrderId);
+            out.writeBoolean(OrderHistoryIO.isBinary());
+            out.writeLong(state.historySize);
+            out.writeInt(historyCheck);
+            out.writeInt(ProductIdRegistry.getLastId());
+
+            out.writeInt(state.products.size());
+            for (int i = 0; i < state.products.size(); i++) {
+                writeProduct(out, state.products.get(i), state.stock[i]);
+            }
+
+            out.writeBoolean(state.orders != null);
+            if (state.orders != null) {
+                out.writeInt(state.orders.size());
+                for (Order o : state.orders) {
+                    out.write(BinaryOrderLog.encode(o));
+                }
+            }
+            out.flush();
+
+            new DataOutputStream(fos).writeInt((int) checked.getChecksum().getValue());
+            fos.getFD().sync();
+        }
+    }
+
+    /**
+     * Writes one product with all its fields.
+     *
+     * @param out   destination
+     * @param p     product
+     * @param stock stock level to save
+     * @throws IOException if writing fails
+     */
+    private static void writeProduct(DataOutputStream out, Product p, int stock) throws IOException {
+        out.writeInt(p.getId());
+        writeString(out, p.getName());
+        out.writeLong(p.getPriceCents());
+        out.writeInt(stock);
+        writeString(out, p.getDescription());
+        writeString(out, p.getCategory().name());
+        out.writeBoolean(p.getColor() != null);
+        if (p.getColor() != null) {
+            out.writeInt(p.getColor().getRGB());
+        }
+        writeString(out, p.getImagePath());
+
+        if (p instanceof BookProduct) {
+            BookProduct book = (BookProduct) p;
+            writeString(out, book.getAuthor());
+            out.writeInt(book.getPages());
+        } else if (p instanceof ClothingProduct) {
+            writeString(out, ((ClothingProduct) p).getSize());
+        } else if (p instanceof ElectronicsProduct) {
+            ElectronicsProduct electronics = (ElectronicsProduct) p;
+            out.writeInt(electronics.getWarrantMonths());
+            writeString(out, electronics.getBrand());
+        }
+    }
+
+    /**
+     * Reads the saved products.
+     *
+     * @param in source positioned at the product count
+     * @return products in catalog order
+     * @throws IOException if reading fails or a product is invalid
+     */
+    private static List<Product> readProducts(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("invalid product count " + count);
+        }
+
+        List<Product> products = new ArrayList<>(Math.min(count, 1 << 16));
+        for (int i = 0; i < count; i++) {
+            int id = in.readInt();
+            String name = readString(in);
+            long priceCents = in.readLong();
+            int stock = in.readInt();
+            String description = readString(in);
+            Category category = Category.valueOf(readString(in));
+            Color color = in.readBoolean() ? new Color(in.readInt(), true) : null;
+            String imagePath = readString(in);
+
+            ProductFactory.ExtraFields extra = new ProductFactory.ExtraFields();
+            switch (category) {
+                case BOOKS:
+                    extra.author = readString(in);
+                    extra.pages = in.readInt();
+                    break;
+                case CLOTHING:
+                    extra.size = readString(in);
+                    break;
+                case ELECTRONICS:
+                    extra.warrantyMonths = in.readInt();
+                    extra.brand = readString(in);
+                    break;
+                default:
+                    break;
+            }
+
+            Product p = ProductFactory.createProduct(id, new ProductFactory.BasicFields(
+                    name, Money.toDouble(priceCents), stock, description, category, color, imagePath), extra);
+            p.setPriceCents(priceCents);
+            products.add(p);
+        }
+        return products;
+    }
+
+    /**
+     * Reads the saved order records and checks that each one decodes.
+     *
+     * @param in source positioned at the orders section
+     * @return the record payloads, or {@code null} if the snapshot was saved without orders
+     * @throws IOException if the section is invalid
+     */
+    private static List<byte[]> readOrderRecords(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("invalid order count " + count);
+        }
+        List<byte[]> records = new ArrayList<>(Math.min(count, 1 << 20));
+        for (int i = 0; i < count; i++) {
+            int length = in.readInt();
+            in.readInt(); // record checksum (the whole file is checked already)
+            if (length < 0) {
+                throw new IOException("invalid order record length " + length);
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            try {
+                BinaryOrderLog.decode(ByteBuffer.wrap(payload), null, HistoryFilter.ALL);
+            } catch (BufferUnderflowException | IllegalArgumentException ex) {
+                throw new IOException("invalid order record " + i, ex);
+            }
+            records.add(payload);
+        }
+        return records;
+    }
+
+    /**
+     * Loads the saved orders and the orders written after the snapshot, or scans them for IDs.
+     * <p>
+     * Everything is read before the engine is changed: if a read fails, no stock has been taken
+     * and no order added, so the caller can fall back to the whole history.
+     * </p>
+     *
+     * @param engine      engine to restore into
+     * @param saved       saved order records (see {@link #readOrderRecords(DataInputStream)}),
+     *                    or {@code null} if the snapshot holds none or they are not used
+     * @param loadOrders  whether orders are loaded into the engine
+     * @param historySize history position of the snapshot, or -1 if the history no longer matches
+     * @throws IOException if the history cannot be read
+     */
+    private static void restoreOrders(StoreEngine engine, List<byte[]> saved, boolean loadOrders, long historySize)
+            throws IOException {
+        if (historySize < 0) {
+            if (loadOrders) {
+                engine.addLoadedOrders(OrderHistoryIO.loadOrders(engine));
+            } else {
+                OrderHistoryIO.forEachOrder(null, o -> engine.observeOrderId(o.getOrderID()));
+            }
+            return;
+        }
+
+        List<Order> orders = null;
+        if (loadOrders && saved != null) {
+            orders = new ArrayList<>(saved.size());
+            for (byte[] payload : saved) {
+                orders.add(BinaryOrderLog.decode(ByteBuffer.wrap(payload), engine, HistoryFilter.ALL));
+            }
+        } else if (loadOrders) {
+            // Saved without orders: load the whole history (the tail included).
+            orders = OrderHistoryIO.loadOrders(engine);
+        }
+        List<Order> tail = new ArrayList<>();
+        OrderHistoryIO.forEachOrderFrom(historySize, engine, tail::add);
+
+        // The snapshot stock predates the tail orders, so take their stock as their checkouts did.
+        for (Order o : tail) {
+            engine.observeOrderId(o.getOrderID());
+            takeStock(engine, o);
+        }
+        if (orders != null) {
+            if (saved != null) {
+                orders.addAll(tail);
+            }
+            engine.addLoadedOrders(orders);
+        }
+    }
+
+    /**
+     * Takes the stock of an order written after the snapshot (as its checkout did),
+     * limited to the stock that is left.
+     *
+     * @param engine engine holding the restored catalog
+     * @param order  order from the history tail
+     */
+    private static void takeStock(StoreEngine engine, Order order) {
+        for (CartItem item : order.getItems()) {
+            Product p = item.getProduct();
+            int quantity = Math.min(item.getQuantity(), p.getStock());
+            if (quantity > 0) {
+                engine.decreaseStock(p, quantity);
+            }
+        }
+    }
+
+    /**
+     * Checks the trailing checksum of a snapshot file.
+     *
+     * @param path snapshot file
+     * @return true if the checksum matches the content
+     * @throws IOException if the file cannot be read
+     */
+    private static boolean isIntact(Path path) throws IOException {
+        long size = Files.size(path);
+        if (size < MAGIC.length + 1 + 4) {
+            return false;
+        }
+
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(path), 64 * 1024)) {
+            CheckedInputStream checked = new CheckedInputStream(raw, new CRC32C());
+            byte[] buf = new byte[64 * 1024];
+            long remaining = size - 4;
+            while (remaining > 0) {
+                int n = checked.read(buf, 0, (int) Math.min(buf.length, remaining));
+                if (n < 0) {
+                    return false;
+                }
+                remaining -= n;
+            }
+            int expected = new DataInputStream(raw).readInt();
+            return expected == (int) checked.getChecksum().getValue();
+        }
+    }
+
+    /**
+     * Computes the checksum of the history bytes just before a position, which identifies
+     * the file the position belongs to.
+     *
+     * @param history  history file
+     * @param position recorded history position
+     * @return CRC32C of up to {@value #HISTORY_CHECK_BYTES} bytes before {@code position}
+     * @throws IOException if the file cannot be read
+     */
+    private static int historyChecksum(Path history, long position) throws IOException {
+        CRC32C crc = new CRC32C();
+        if (position <= 0 || !Files.isRegularFile(history)) {
+            return (int) crc.getValue();
+        }
+
+        int length = (int) Math.min(HISTORY_CHECK_BYTES, position);
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        try (FileChannel ch = FileChannel.open(history, StandardOpenOption.READ)) {
+            long at = position - length;
+            while (buf.hasRemaining()) {
+                int n = ch.read(buf, at + buf.position());
+                if (n < 0) break;
+            }
+        }
+        buf.flip();
+        crc.update(buf);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns values that change whenever state included in a snapshot changes.
+     *
+     * @param engine engine to inspect
+     * @return last order ID, catalog version and stock version
+     */
+    private static long[] changeMarks(StoreEngine engine) {
+        return new long[] { engine.getLastOrderId(), engine.getCatalogVersion(), engine.getStockVersion() };
+    }
+
+    /**
+     * Saves a snapshot, reporting failures on {@code System.err}.
+     *
+     * @param engine        engine to snapshot
+     * @param includeOrders whether the in-memory orders are saved
+     * @return true if the snapshot was written
+     */
+    private static boolean saveReporting(StoreEngine engine, boolean includeOrders) {
+        try {
+            save(engine, includeOrders);
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Could not save store snapshot: " + ex);
+            return false;
+        }
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string ({@code -1} for {@code null}).
+     *
+     * @param out destination
+     * @param s   string (may be {@code null})
+     * @throws IOException if writing fails
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     *
+     * @param in source
+     * @return decoded string, or {@code null}
+     * @throws IOException if reading fails or the length is invalid
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            if (length == -1) return null;
+            throw new IOException("invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -7,8 +7,11 @@
 package store.order;
 
 import store.cart.CartItem;
+import store.core.Money;
 import store.core.Persistable;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -21,11 +24,14 @@ import java.util.Objects;
  *  - A unique order ID
  *  - The username of the customer who placed the order (for order-history separation)
  *  - A list of items (CartItems)
- *  - The total monetary amount
+ *  - The total monetary amount (in cents)
  *  - The current processing status (NEW → PAID → SHIPPED → DELIVERED)
  *
  * This class implements the Persistable interface and is intended
  * to allow saving order data to persistent storage in the future.
+ *
+ * Status transitions are atomic compare-and-set operations, so an order may be
+ * paid and shipped by a background shipping worker while other threads read it.
  */
 public class Order implements Persistable {
 
@@ -36,7 +42,7 @@ public class Order implements Persistable {
     private final LocalDateTime createdAt;
 
     /** Unique identifier of the order */
-    private final int orderID;
+    private final long orderID;
 
     /** Username of the customer who placed this order */
     private final String customerUsername;
@@ -44,11 +50,22 @@ public class Order implements Persistable {
     /** List of items included in this order (deep-copied from cart) */
     private final List<CartItem> items;
 
-    /** Total monetary value of the order */
-    private final double totalAmount;
+    /** Total monetary value of the order, in cents */
+    private final long totalCents;
+
+    /** Current status of the order; updated via {@link #STATUS} */
+    private volatile OrderStatus status;
+
+    /** Handle used for atomic status transitions. */
+    private static final VarHandle STATUS;
 
-    /** Current status of the order */
-    private OrderStatus status;
+    static {
+        try {
+            STATUS = MethodHandles.lookup().findVarHandle(Order.class, "status", OrderStatus.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
 
     // ------------------------------------------------------------------------
     // Constructors (Backward compatible)
@@ -58,35 +75,35 @@ public class Order implements Persistable {
      * Backward-compatible constructor (existing code can keep using it).
      * Customer username will be set to {@link #UNKNOWN_CUSTOMER}.
      */
-    public Order(int orderID, List<CartItem> items, double totalAmount) {
-        this(UNKNOWN_CUSTOMER, orderID, items, totalAmount, LocalDateTime.now());
+    public Order(long orderID, List<CartItem> items, long totalCents) {
+        this(UNKNOWN_CUSTOMER, orderID, items, totalCents, LocalDateTime.now());
     }
 
     /**
      * Backward-compatible constructor (existing code can keep using it).
      * Customer username will be set to {@link #UNKNOWN_CUSTOMER}.
      */
-    public Order(int orderID, List<CartItem> items, double totalAmount, LocalDateTime createdAt) {
-        this(UNKNOWN_CUSTOMER, orderID, items, totalAmount, createdAt);
+    public Order(long orderID, List<CartItem> items, long totalCents, LocalDateTime createdAt) {
+        this(UNKNOWN_CUSTOMER, orderID, items, totalCents, createdAt);
     }
 
     /**
      * New recommended constructor: includes the customer username.
      */
-    public Order(String customerUsername, int orderID, List<CartItem> items, double totalAmount) {
-        this(customerUsername, orderID, items, totalAmount, LocalDateTime.now());
+    public Order(String customerUsername, long orderID, List<CartItem> items, long totalCents) {
+        this(customerUsername, orderID, items, totalCents, LocalDateTime.now());
     }
 
     /**
      * Full constructor: includes the customer username + createdAt (useful for loading history from file).
      */
-    public Order(String customerUsername, int orderID, List<CartItem> items, double totalAmount, LocalDateTime createdAt) {
+    public Order(String customerUsername, long orderID, List<CartItem> items, long totalCents, LocalDateTime createdAt) {
         if (items == null) {
             throw new IllegalArgumentException("items list cannot be null");
         }
         this.orderID = orderID;
         this.items = new ArrayList<>(items);
-        this.totalAmount = totalAmount;
+        this.totalCents = totalCents;
         this.status = OrderStatus.NEW;
 
         LocalDateTime t = (createdAt == null) ? LocalDateTime.now() : createdAt;
@@ -117,13 +134,13 @@ public class Order implements Persistable {
     // ------------------------------------------------------------------------
 
     /**
-     * Marks the order as paid.
+     * Marks the order as paid, if it is new (or already paid).
      *
-     * @return true (status always set to PAID)
+     * @return true if the order is now PAID, false if it had already moved past PAID
      */
     public boolean pay() {
-        this.status = OrderStatus.PAID;
-        return true;
+        return STATUS.compareAndSet(this, OrderStatus.NEW, OrderStatus.PAID)
+                || status == OrderStatus.PAID;
     }
 
     /**
@@ -132,11 +149,7 @@ public class Order implements Persistable {
      * @return true if status changed to SHIPPED, false otherwise
      */
     public boolean ship() {
-        if (this.status == OrderStatus.PAID) {
-            this.status = OrderStatus.SHIPPED;
-            return true;
-        }
-        return false;
+        return STATUS.compareAndSet(this, OrderStatus.PAID, OrderStatus.SHIPPED);
     }
 
     /**
@@ -145,11 +158,7 @@ public class Order implements Persistable {
      * @return true if status changed to DELIVERED, false otherwise
      */
     public boolean deliver() {
-        if (this.status == OrderStatus.SHIPPED) {
-            this.status = OrderStatus.DELIVERED;
-            return true;
-        }
-        return false;
+        return STATUS.compareAndSet(this, OrderStatus.SHIPPED, OrderStatus.DELIVERED);
     }
 
     // ------------------------------------------------------------------------
@@ -171,7 +180,7 @@ public class Order implements Persistable {
         sb.append("Customer: ").append(customerUsername).append("\n");
 
         sb.append("Status: ").append(status).append("\n");
-        sb.append("Total Amount: ").append(String.format("%.2f", totalAmount)).append("\n");
+        Money.appendTo(sb.append("Total Amount: "), totalCents).append("\n");
         sb.append("Items:\n");
 
         for (CartItem item : items) {
@@ -202,7 +211,7 @@ public class Order implements Persistable {
 
     @Override
     public int hashCode() {
-        return Integer.hashCode(orderID);
+        return Long.hashCode(orderID);
     }
 
     // ------------------------------------------------------------------------
@@ -213,7 +222,7 @@ public class Order implements Persistable {
         return createdAt;
     }
 
-    public int getOrderID() {
+    public long getOrderID() {
         return orderID;
     }
 
@@ -229,8 +238,18 @@ public class Order implements Persistable {
         return new ArrayList<>(items);
     }
 
+    /**
+     * Total of the order in cents.
+     */
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    /**
+     * Total of the order in currency units (for display and external APIs).
+     */
     public double getTotalAmount() {
-        return totalAmount;
+        return Money.toDouble(totalCents);
     }
 
     public OrderStatus getStatus() {
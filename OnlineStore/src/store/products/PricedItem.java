@@ -5,26 +5,55 @@
  */
 package store.products;
 
+import store.core.Money;
+
 /**
  * Represents an item that has a price.
  * Classes implementing this interface must provide access to the item's price
  * and allow updating it according to their validation rules.
+ * <p>
+ * Prices are held in whole cents (see {@link Money}); the {@code double} accessors are
+ * conveniences for input and display.
+ * </p>
  */
 public interface PricedItem {
 
     /**
      * Returns the current price of the item.
      *
-     * @return the item's price as a double value
+     * @return the item's price in cents
      */
-    double getPrice();
+    long getPriceCents();
 
     /**
      * Sets a new price for the item.
      * Implementing classes may include validation (e.g., rejecting negative values).
      *
+     * @param priceCents the new price in cents
+     * @return true if the price was successfully updated, false otherwise
+     */
+    boolean setPriceCents(long priceCents);
+
+    /**
+     * Returns the current price of the item in currency units.
+     *
+     * @return the item's price as a double value
+     */
+    default double getPrice() {
+        return Money.toDouble(getPriceCents());
+    }
+
+    /**
+     * Sets a new price given in currency units (rounded to the nearest cent).
+     *
      * @param price the new price to assign
      * @return true if the price was successfully updated, false otherwise
      */
-    boolean setPrice(double price);
+    default boolean setPrice(double price) {
+        try {
+            return setPriceCents(Money.toCents(price));
+        } catch (IllegalArgumentException ex) {
+            return false; // not finite or out of range
+        }
+    }
 }
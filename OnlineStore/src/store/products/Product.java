@@ -5,10 +5,13 @@
  */
 package store.products;
 
+import store.core.Money;
 import store.core.Persistable;
 import store.core.StoreEntity;
 
 import java.awt.Color;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
 
 /**
@@ -24,18 +27,42 @@ import java.util.Objects;
  * Products are intended to be created via {@link ProductFactory} and the
  * corresponding {@link ProductBuilder} implementations.
  * </p>
+ *
+ * <p>
+ * Stock is updated with compare-and-set operations, so stock reads and changes
+ * are safe from any thread without an external lock.
+ * </p>
+ *
+ * <p>
+ * Each product created through {@link ProductFactory} carries a stable numeric ID from
+ * {@link ProductIdRegistry}. Orders and the persistence formats reference products by this ID.
+ * </p>
  */
 public abstract class Product
         implements StoreEntity, PricedItem, StockManageable, Persistable {
 
+    /** Stable product ID (0 until assigned by {@link ProductFactory}). */
+    private int id;
+
     /** Product name. */
     private String name;
 
-    /** Product price (must be positive). */
-    private double price;
+    /** Product price in cents (must be positive). */
+    private long priceCents;
+
+    /** Available stock quantity (non-negative); updated via {@link #STOCK}. */
+    private volatile int stock;
 
-    /** Available stock quantity (non-negative). */
-    private int stock;
+    /** Handle used for atomic compare-and-set updates of {@link #stock}. */
+    private static final VarHandle STOCK;
+
+    static {
+        try {
+            STOCK = MethodHandles.lookup().findVarHandle(Product.class, "stock", int.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
 
     /** Product description (never {@code null}). */
     private String description;
@@ -70,7 +97,7 @@ public abstract class Product
             Category category, Color color, String imagePath) {
 
         this.name = "Unknown product";
-        this.price = 0.1;
+        this.priceCents = Money.toCents(0.1);
         this.stock = 0;
         this.description = "";
         this.category = Category.BOOKS;
@@ -95,6 +122,46 @@ public abstract class Product
         setDescription(description);
     }
 
+    /**
+     * Returns the stable product ID.
+     *
+     * @return the product ID (&gt; 0 for products created through {@link ProductFactory})
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the product ID. Called once by {@link ProductFactory} after the product is built.
+     *
+     * @param id the ID (must be positive)
+     * @throws IllegalArgumentException if {@code id} is not positive
+     * @throws IllegalStateException    if the product already has an ID
+     */
+    void assignId(int id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("product id must be > 0");
+        }
+        if (this.id != 0) {
+            throw new IllegalStateException("product id already assigned");
+        }
+        this.id = id;
+    }
+
+    /**
+     * Replaces the product ID with a new one. Only used by {@link ProductFactory#assignNewId(Product)}
+     * for a product that is not in the catalog yet, since the ID defines equality and the hash code.
+     *
+     * @param id the new ID (must be positive)
+     * @throws IllegalArgumentException if {@code id} is not positive
+     */
+    void replaceId(int id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("product id must be > 0");
+        }
+        this.id = id;
+    }
+
     /**
      * Returns the product name.
      *
@@ -191,7 +258,7 @@ public abstract class Product
     @Override
     public String getDisplayDetails() {
         return "Name: " + getName() + "\n" +
-                "Price: " + getPrice() + "\n" +
+                "Price: " + Money.format(priceCents) + "\n" +
                 "Category: " + getCategory() + "\n" +
                 "Description: " + getDescription() + "\n" +
                 "Color: " + getColor() + "\n" +
@@ -199,27 +266,27 @@ public abstract class Product
     }
 
     /**
-     * Returns the product price.
+     * Returns the product price in cents.
      *
-     * @return the price value
+     * @return the product price in cents
      */
     @Override
-    public double getPrice() {
-        return price;
+    public long getPriceCents() {
+        return priceCents;
     }
 
     /**
-     * Sets the product price.
+     * Sets the product price in cents.
      *
-     * @param price new price (must be positive)
+     * @param priceCents new price in cents (must be positive)
      * @return {@code true} if the price was updated; {@code false} otherwise
      */
     @Override
-    public boolean setPrice(double price) {
-        if (price <= 0) {
+    public boolean setPriceCents(long priceCents) {
+        if (priceCents <= 0) {
             return false;
         }
-        this.price = price;
+        this.priceCents = priceCents;
         return true;
     }
 
@@ -238,32 +305,81 @@ public abstract class Product
      *
      * @param amount amount to add (must be positive)
      * @return {@code true} if the stock was increased; {@code false} otherwise
+     *         (including when the result would overflow)
      */
     @Override
     public boolean increaseStock(int amount) {
+        return getAndIncreaseStock(amount) >= 0;
+    }
+
+    /**
+     * Increases the product stock by the given amount and returns the stock it replaced.
+     * The returned value is the one the compare-and-set succeeded on, so the change is
+     * exactly {@code previous -> previous + amount} even under concurrent updates.
+     *
+     * @param amount amount to add (must be positive)
+     * @return the stock before the change, or -1 if the stock was not changed
+     *         (invalid amount, or the result would overflow)
+     */
+    public int getAndIncreaseStock(int amount) {
         if (amount <= 0) {
-            return false;
+            return -1;
+        }
+        while (true) {
+            int current = stock;
+            if (current > Integer.MAX_VALUE - amount) {
+                return -1;
+            }
+            if (STOCK.compareAndSet(this, current, current + amount)) {
+                return current;
+            }
         }
-        stock += amount;
-        return true;
     }
 
     /**
      * Decreases the product stock by the given amount.
+     * Equivalent to {@link #tryReserve(int)}.
      *
      * @param amount amount to subtract (must be positive)
      * @return {@code true} if the stock was decreased; {@code false} otherwise
      */
     @Override
     public boolean decreaseStock(int amount) {
+        return tryReserve(amount);
+    }
+
+    /**
+     * Atomically takes the given amount from the stock if enough units are available.
+     * The stock never becomes negative, regardless of how many threads call this concurrently.
+     *
+     * @param amount amount to reserve (must be positive)
+     * @return {@code true} if the stock was decreased; {@code false} otherwise
+     */
+    @Override
+    public boolean tryReserve(int amount) {
+        return getAndReserve(amount) >= 0;
+    }
+
+    /**
+     * Atomically takes the given amount from the stock if enough units are available, and
+     * returns the stock it replaced (the value the compare-and-set succeeded on).
+     *
+     * @param amount amount to reserve (must be positive)
+     * @return the stock before the change, or -1 if the stock was not changed
+     */
+    public int getAndReserve(int amount) {
         if (amount <= 0) {
-            return false;
+            return -1;
         }
-        if (stock - amount < 0) {
-            return false;
+        while (true) {
+            int current = stock;
+            if (current < amount) {
+                return -1;
+            }
+            if (STOCK.compareAndSet(this, current, current - amount)) {
+                return current;
+            }
         }
-        stock -= amount;
-        return true;
     }
 
     /**
@@ -274,7 +390,7 @@ public abstract class Product
     @Override
     public String toString() {
         return "Name: " + getName() + "\n" +
-                "Price: " + getPrice() + "\n" +
+                "Price: " + Money.format(priceCents) + "\n" +
                 "Category: " + getCategory() + "\n" +
                 "Stock: " + getStock();
     }
@@ -283,7 +399,9 @@ public abstract class Product
      * Compares this product to another object for equality.
      *
      * <p>
-     * Two products are considered equal if they share the same name and category.
+     * Two products with IDs are equal if their IDs are equal. Products without an ID
+     * (not created through {@link ProductFactory}) are equal if they share the same name
+     * and category.
      * </p>
      *
      * @param o the object to compare with
@@ -294,10 +412,25 @@ public abstract class Product
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Product other = (Product) o;
+        if (this.id != 0 || other.id != 0) {
+            return this.id == other.id;
+        }
         return Objects.equals(this.name, other.name) &&
                 this.category == other.category;
     }
 
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)} (the ID, or name and
+     * category for a product without an ID), so products can be used as hash keys
+     * (e.g., by {@link store.cart.Cart}).
+     *
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        return (id != 0) ? Integer.hashCode(id) : Objects.hash(name, category);
+    }
+
     /**
      * Returns the image path associated with this product.
      *
@@ -22,6 +22,11 @@ import java.util.Map;
  * Creation is centralized through {@link #createProduct(BasicFields, ExtraFields)},
  * while convenient helper methods are provided for creating specific product types.
  * </p>
+ *
+ * <p>
+ * Every created product receives a stable ID from {@link ProductIdRegistry}: a new one, or
+ * the stored one when a saved product is recreated with {@link #createProduct(int, BasicFields, ExtraFields)}.
+ * </p>
  */
 public final class ProductFactory {
 
@@ -173,6 +178,23 @@ public final class ProductFactory {
      * @throws IllegalArgumentException if the category is missing or unsupported
      */
     public static Product createProduct(BasicFields basic, ExtraFields extra) {
+        return createProduct(0, basic, extra);
+    }
+
+    /**
+     * Creates a product instance with the given ID.
+     *
+     * <p>
+     * Used to recreate a saved product under its stored ID; pass 0 to assign a new ID.
+     * </p>
+     *
+     * @param id    stored product ID (&gt; 0), or 0 to assign a new one
+     * @param basic common product fields (must not be {@code null} and must include a non-null category)
+     * @param extra category-specific fields (may be {@code null})
+     * @return a concrete {@link Product} instance
+     * @throws IllegalArgumentException if the ID is negative, or the category is missing or unsupported
+     */
+    public static Product createProduct(int id, BasicFields basic, ExtraFields extra) {
         if (basic == null || basic.category == null) {
             throw new IllegalArgumentException("category cannot be null");
         }
@@ -182,7 +204,31 @@ public final class ProductFactory {
             throw new IllegalArgumentException("Unsupported category: " + basic.category);
         }
 
-        return creator.create(basic, extra == null ? new ExtraFields() : extra);
+        Product product = creator.create(basic, extra == null ? new ExtraFields() : extra);
+        product.assignId(ProductIdRegistry.assign(id));
+        return product;
+    }
+
+    /**
+     * Gives a product a new ID from {@link ProductIdRegistry}.
+     *
+     * <p>
+     * Used when a loaded product's stored ID is already taken by another catalog product
+     * (e.g., a saved catalog imported into a running store). Must be called before the
+     * product is added to the catalog or put in a cart, since the ID defines its equality.
+     * </p>
+     *
+     * @param product product to renumber (must not be {@code null})
+     * @return the new ID
+     * @throws IllegalArgumentException if {@code product} is {@code null}
+     */
+    public static int assignNewId(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("product cannot be null");
+        }
+        int id = ProductIdRegistry.assign(0);
+        product.replaceId(id);
+        return id;
     }
 
     /**
@@ -198,6 +244,18 @@ public final class ProductFactory {
      * @throws IllegalArgumentException if category is missing or unsupported
      */
     public static Product createProductWithDefaults(BasicFields basic) {
+        return createProductWithDefaults(0, basic);
+    }
+
+    /**
+     * Creates a product with the given ID, using default values for missing category-specific fields.
+     *
+     * @param id    stored product ID (&gt; 0), or 0 to assign a new one
+     * @param basic common product fields (must include a non-null category)
+     * @return a concrete {@link Product} instance with default extra fields applied
+     * @throws IllegalArgumentException if the ID is negative, or the category is missing or unsupported
+     */
+    public static Product createProductWithDefaults(int id, BasicFields basic) {
         ExtraFields extra = new ExtraFields();
         if (basic != null && basic.category != null) {
             switch (basic.category) {
@@ -215,7 +273,7 @@ public final class ProductFactory {
                     break;
             }
         }
-        return createProduct(basic, extra);
+        return createProduct(id, basic, extra);
     }
 
     /**
@@ -0,0 +1,70 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.products;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns stable numeric IDs to products.
+ *
+ * <p>
+ * Every product created through {@link ProductFactory} receives an ID from this registry.
+ * New IDs are small, dense and increasing (starting at 1), so they can index an array.
+ * Products loaded from a file keep their stored ID; the registry observes it, so IDs handed
+ * out afterwards never collide with a loaded one. The order history readers observe the IDs
+ * of ordered items as well, so the ID of a deleted product is not reused while old orders
+ * still refer to it.
+ * </p>
+ */
+public final class ProductIdRegistry {
+
+    /** The highest ID assigned or observed so far. */
+    private static final AtomicInteger LAST_ID = new AtomicInteger();
+
+    /**
+     * Prevents instantiation; this is a static utility class.
+     */
+    private ProductIdRegistry() {}
+
+    /**
+     * Returns the ID for a product being created.
+     *
+     * @param requested stored ID to keep (&gt; 0), or 0 to assign a new one
+     * @return the requested ID, or a new unique ID
+     * @throws IllegalArgumentException if {@code requested} is negative
+     */
+    static int assign(int requested) {
+        if (requested < 0) {
+            throw new IllegalArgumentException("product id must be >= 0");
+        }
+        if (requested == 0) {
+            return LAST_ID.incrementAndGet();
+        }
+        observe(requested);
+        return requested;
+    }
+
+    /**
+     * Records an ID that is already in use, so new IDs are assigned above it.
+     *
+     * @param id an ID in use (ignored if not positive)
+     */
+    public static void observe(int id) {
+        if (id <= LAST_ID.get()) {
+            return; // common case while reading history: no write to the shared counter
+        }
+        LAST_ID.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Returns the highest ID assigned or observed so far.
+     *
+     * @return the last ID (0 if none)
+     */
+    public static int getLastId() {
+        return LAST_ID.get();
+    }
+}
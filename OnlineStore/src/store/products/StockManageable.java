@@ -38,4 +38,15 @@ public interface StockManageable {
      * @return true if the stock was successfully decreased, false otherwise
      */
     boolean decreaseStock(int amount);
+
+    /**
+     * Atomically takes the specified amount from the stock if enough units are available.
+     * Implementations must guarantee that concurrent callers never oversell,
+     * without requiring any external lock.
+     *
+     * @param amount the number of units to reserve (must be positive)
+     * @return true if the units were taken from the stock, false if the amount is invalid
+     *         or exceeds the current stock (in which case the stock is unchanged)
+     */
+    boolean tryReserve(int amount);
 }
@@ -6,7 +6,6 @@
 package store.reports;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -37,7 +36,7 @@ public class ConsoleWriter implements ReportWriter {
      * @throws NullPointerException if any argument is {@code null}
      */
     @Override
-    public void write(String reportTitle, String[] headers, List<String[]> rows) throws IOException {
+    public void write(String reportTitle, String[] headers, Iterable<String[]> rows) throws IOException {
         Objects.requireNonNull(reportTitle, "reportTitle cannot be null");
         Objects.requireNonNull(headers, "headers cannot be null");
         Objects.requireNonNull(rows, "rows cannot be null");
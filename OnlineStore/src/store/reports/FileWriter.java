@@ -10,7 +10,6 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -53,7 +52,7 @@ public class FileWriter implements ReportWriter {
      * @throws NullPointerException if any argument is {@code null}
      */
     @Override
-    public void write(String reportTitle, String[] headers, List<String[]> rows) throws IOException {
+    public void write(String reportTitle, String[] headers, Iterable<String[]> rows) throws IOException {
         Objects.requireNonNull(reportTitle, "reportTitle cannot be null");
         Objects.requireNonNull(headers, "headers cannot be null");
         Objects.requireNonNull(rows, "rows cannot be null");
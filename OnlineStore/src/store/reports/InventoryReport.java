@@ -5,11 +5,13 @@
  */
 package store.reports;
 
+import store.core.Money;
 import store.engine.StoreEngine;
 import store.products.Product;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -62,7 +64,7 @@ public class InventoryReport extends Report {
      *
      * <p>
      * Each row represents a single product and contains the product name,
-     * category, price, and current stock quantity.
+     * category, price, and stock on hand (including units held by open carts).
      * </p>
      *
      * @param engine the store engine providing access to product data
@@ -74,14 +76,14 @@ public class InventoryReport extends Report {
         Objects.requireNonNull(engine, "engine cannot be null");
 
         List<String[]> rows = new ArrayList<>();
-        for (Product p : engine.getAllProducts()) {
-            if (p == null) continue;
+        for (Map.Entry<Product, Integer> e : engine.getStockOnHand().entrySet()) {
+            Product p = e.getKey();
 
             rows.add(new String[] {
                     safe(p.getName()),
                     safe(String.valueOf(p.getCategory())),
-                    String.format("%.2f", p.getPrice()),
-                    String.valueOf(p.getStock())
+                    Money.format(p.getPriceCents()),
+                    String.valueOf(e.getValue())
             });
         }
         return rows;
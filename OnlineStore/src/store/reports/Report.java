@@ -8,8 +8,10 @@ package store.reports;
 import store.engine.StoreEngine;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * Abstract base class for all reports.
@@ -45,9 +47,14 @@ public abstract class Report {
      * <ol>
      *   <li>Retrieve the report title</li>
      *   <li>Retrieve the report headers</li>
-     *   <li>Build the report rows from the engine data</li>
+     *   <li>Stream the report rows from the engine data</li>
      *   <li>Delegate output to the configured {@link ReportWriter}</li>
      * </ol>
+     * <p>
+     * The rows are handed to the writer as they are produced, so a report over
+     * data read from disk (see {@link #streamRows(StoreEngine)}) never has to be
+     * held in memory.
+     * </p>
      *
      * @param engine the store engine providing report data
      * @throws IOException if writing the report fails
@@ -55,7 +62,11 @@ public abstract class Report {
      */
     public final void generate(StoreEngine engine) throws IOException {
         Objects.requireNonNull(engine, "engine cannot be null");
-        writer.write(getTitle(), getHeaders(), buildRows(engine));
+        try (Stream<String[]> rows = streamRows(engine)) {
+            writer.write(getTitle(), getHeaders(), rows::iterator);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
     }
 
     /**
@@ -84,4 +95,21 @@ public abstract class Report {
      * @return a list of rows, where each row is a {@code String[]} of column values
      */
     protected abstract List<String[]> buildRows(StoreEngine engine);
+
+    /**
+     * Produces the report rows lazily.
+     *
+     * <p>
+     * The default implementation streams the list returned by {@link #buildRows(StoreEngine)}.
+     * Reports over large data sets override it to produce rows on demand; the stream is
+     * closed after the report is written.
+     * </p>
+     *
+     * @param engine the store engine providing access to data
+     * @return the report rows, in output order
+     * @throws UncheckedIOException if reading the data fails
+     */
+    protected Stream<String[]> streamRows(StoreEngine engine) {
+        return buildRows(engine).stream();
+    }
 }
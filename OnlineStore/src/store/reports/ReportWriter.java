@@ -6,7 +6,6 @@
 package store.reports;
 
 import java.io.IOException;
-import java.util.List;
 
 /**
  * Defines the output mechanism for reports.
@@ -19,8 +18,8 @@ public interface ReportWriter {
      *
      * @param reportTitle report title (e.g., "Inventory Report")
      * @param headers     CSV headers (non-null)
-     * @param rows        report rows (non-null). Each row length should match headers length.
+     * @param rows        report rows (non-null), iterated once. Each row length should match headers length.
      * @throws IOException if writing fails
      */
-    void write(String reportTitle, String[] headers, List<String[]> rows) throws IOException;
+    void write(String reportTitle, String[] headers, Iterable<String[]> rows) throws IOException;
 }
@@ -5,18 +5,22 @@
  */
 package store.reports;
 
+import store.core.Money;
 import store.engine.StoreEngine;
+import store.io.OrderHistoryIO;
 import store.order.Order;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Sales report implementation.
  *
  * <p>
- * Generates a report listing all orders in the system, including basic sales
+ * Generates a report listing all orders in the order history, including basic sales
  * information such as order ID, customer, creation time, order status, and
  * total amount.
  * </p>
@@ -72,21 +76,41 @@ public class SalesReport extends Report {
      */
     @Override
     protected List<String[]> buildRows(StoreEngine engine) {
+        try (Stream<String[]> rows = streamRows(engine)) {
+            return rows.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Streams the rows from the order history on disk, so the report also covers
+     * histories that are not (or not fully) loaded into memory.
+     *
+     * <p>
+     * The status is not stored in the history; it is taken from the in-memory order
+     * when the engine has one, and is otherwise the status of a newly placed order.
+     * </p>
+     *
+     * @param engine the store engine providing access to order data
+     * @return the rows in history order
+     * @throws NullPointerException if {@code engine} is {@code null}
+     * @throws java.io.UncheckedIOException if the history cannot be read
+     */
+    @Override
+    protected Stream<String[]> streamRows(StoreEngine engine) {
         Objects.requireNonNull(engine, "engine cannot be null");
 
-        List<String[]> rows = new ArrayList<>();
-        for (Order o : engine.getAllOrders()) {
-            if (o == null) continue;
+        return OrderHistoryIO.streamOrders(null).map(o -> {
+            Order current = engine.findOrder(o.getOrderID());
+            Order source = (current != null) ? current : o;
 
-            rows.add(new String[] {
+            return new String[] {
                     String.valueOf(o.getOrderID()),
                     safe(o.getCustomerUsername()),
                     String.valueOf(o.getCreatedAt()),
-                    String.valueOf(o.getStatus()),
-                    String.format("%.2f", o.getTotalAmount())
-            });
-        }
-        return rows;
+                    String.valueOf(source.getStatus()),
+                    Money.format(o.getTotalCents())
+            };
+        });
     }
 
     /**
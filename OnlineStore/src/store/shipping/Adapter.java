@@ -44,7 +44,7 @@ public class Adapter implements ShippingProvider {
      *
      * <p>
      * The order data is translated to the parameters required by
-     * {@link FastShipAPI#executeDelivery(int, String, double)}.
+     * {@link FastShipAPI#executeDelivery(long, String, double)}.
      * </p>
      *
      * @param order the order to be shipped
@@ -56,7 +56,7 @@ public class Adapter implements ShippingProvider {
             throw new IllegalArgumentException("order cannot be null");
         }
 
-        int orderId = order.getOrderID();
+        long orderId = order.getOrderID();
         String recipient = Objects.toString(order.getCustomerUsername(), "UNKNOWN");
         double amount = order.getTotalAmount();
 
@@ -10,7 +10,7 @@ package store.shipping;
  *
  * <p>
  * This represents a 3rd-party API that does NOT match our system interface.
- * It exposes {@link #executeDelivery(int, String, double)} instead of shipOrder(Order).
+ * It exposes {@link #executeDelivery(long, String, double)} instead of shipOrder(Order).
  * </p>
  */
 public class FastShipAPI {
@@ -23,7 +23,7 @@ public class FastShipAPI {
      * @param amount     total order amount
      * @return tracking code (simulated)
      */
-    public String executeDelivery(int orderId, String recipient, double amount) {
+    public String executeDelivery(long orderId, String recipient, double amount) {
         if (recipient == null) {
             recipient = "UNKNOWN";
         }
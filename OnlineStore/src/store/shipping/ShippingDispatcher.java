@@ -0,0 +1,257 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.shipping;
+
+import store.order.Order;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shipping provider that ships orders asynchronously through another provider.
+ *
+ * <p>
+ * This class is a Decorator around a {@link ShippingProvider} (typically the FastShip
+ * {@link Adapter}). {@link #shipOrder(Order)} only queues the order and returns; a pool of
+ * worker threads drains the bounded queue and calls the wrapped provider, which moves the
+ * order from NEW to PAID to SHIPPED. Failed attempts are retried with exponential backoff.
+ * An order that still fails after the last attempt is reported and keeps its current status.
+ * </p>
+ * <p>
+ * Carrier calls and retries only ever run on worker threads, so checkout latency does not
+ * depend on the carrier. The queue stays bounded: when it is full, the calling thread waits at
+ * most {@value #OFFER_TIMEOUT_MILLIS} ms for space, and if there is still none the order is not
+ * queued. Such an order is reported and counted as unshipped (see {@link #getUnshippedCount()})
+ * and keeps its NEW status. After {@link #shutdown(long)}, new orders are rejected with an
+ * exception instead of being dropped.
+ * </p>
+ */
+public class ShippingDispatcher implements ShippingProvider {
+
+    /** Default number of worker threads. */
+    public static final int DEFAULT_WORKERS = 4;
+
+    /** Default capacity of the shipping queue. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /** Default number of attempts per order (first try included). */
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    /** Default delay before the first retry, in milliseconds (doubled for every further retry). */
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100L;
+
+    /** Upper bound for the delay between two attempts, in milliseconds. */
+    private static final long MAX_BACKOFF_MILLIS = 10_000L;
+
+    /** How long a caller waits for queue space before the order is left unshipped, in milliseconds. */
+    private static final long OFFER_TIMEOUT_MILLIS = 20L;
+
+    /** Wrapped provider that performs the actual shipping. */
+    private final ShippingProvider delegate;
+
+    /** Worker pool with a bounded queue. */
+    private final ThreadPoolExecutor workers;
+
+    /** Number of attempts per order. */
+    private final int maxAttempts;
+
+    /** Delay before the first retry, in milliseconds. */
+    private final long initialBackoffMillis;
+
+    /** Number of orders that were not queued because the queue stayed full. */
+    private final AtomicInteger unshipped;
+
+    /** Set by {@link #shutdown(long)}; no new orders are accepted afterwards. */
+    private volatile boolean closed;
+
+    /**
+     * Creates a dispatcher with the default pool size, queue capacity and retry policy.
+     *
+     * @param delegate provider that performs the actual shipping
+     * @throws NullPointerException if {@code delegate} is {@code null}
+     */
+    public ShippingDispatcher(ShippingProvider delegate) {
+        this(delegate, DEFAULT_WORKERS, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_ATTEMPTS,
+                DEFAULT_INITIAL_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Creates a dispatcher.
+     *
+     * @param delegate             provider that performs the actual shipping
+     * @param workerCount          number of worker threads (must be positive)
+     * @param queueCapacity        maximum number of queued orders (must be positive)
+     * @param maxAttempts          attempts per order, first try included (must be positive)
+     * @param initialBackoffMillis delay before the first retry in milliseconds (must not be negative)
+     * @throws NullPointerException     if {@code delegate} is {@code null}
+     * @throws IllegalArgumentException if any numeric argument is out of range
+     */
+    public ShippingDispatcher(ShippingProvider delegate, int workerCount, int queueCapacity,
+                              int maxAttempts, long initialBackoffMillis) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be > 0");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be > 0");
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be > 0");
+        }
+        if (initialBackoffMillis < 0) {
+            throw new IllegalArgumentException("initialBackoffMillis must be >= 0");
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.workers = new ThreadPoolExecutor(
+                workerCount, workerCount,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new WorkerThreadFactory(),
+                (task, executor) -> waitForSpace(task));
+        this.unshipped = new AtomicInteger();
+    }
+
+    /**
+     * Queues the order for shipping and returns. The carrier is never called on the calling
+     * thread; if the queue is full, the call waits at most {@value #OFFER_TIMEOUT_MILLIS} ms and then
+     * leaves the order unshipped (reported on {@code System.err}, status unchanged).
+     *
+     * @param order the order to ship
+     * @throws IllegalArgumentException if {@code order} is {@code null}
+     * @throws IllegalStateException    if the dispatcher has been shut down
+     */
+    @Override
+    public void shipOrder(Order order) {
+        if (order == null) {
+            throw new IllegalArgumentException("order cannot be null");
+        }
+        if (closed) {
+            throw new IllegalStateException("shipping dispatcher is shut down; order " + order.getOrderID()
+                    + " was not queued");
+        }
+        try {
+            workers.execute(() -> shipWithRetries(order));
+        } catch (RejectedExecutionException ex) {
+            if (workers.isShutdown()) {
+                throw new IllegalStateException("shipping dispatcher is shut down; order " + order.getOrderID()
+                        + " was not queued", ex);
+            }
+            unshipped.incrementAndGet();
+            System.err.println("Shipping queue is full; order " + order.getOrderID()
+                    + " was not queued and stays " + order.getStatus());
+        }
+    }
+
+    /**
+     * Returns the number of orders waiting to be shipped.
+     *
+     * @return queued order count
+     */
+    public int getQueuedCount() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * Returns the number of orders that were left unshipped because the queue stayed full.
+     *
+     * @return unshipped order count
+     */
+    public int getUnshippedCount() {
+        return unshipped.get();
+    }
+
+    /**
+     * Stops accepting new orders and waits for queued orders to be shipped.
+     *
+     * @param timeoutMillis maximum time to wait, in milliseconds
+     * @return true if all orders were processed in time; false otherwise
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeoutMillis) throws InterruptedException {
+        closed = true;
+        workers.shutdown();
+        return workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Handles an order rejected by the pool: the queue was full, or the pool has been shut down.
+     * Runs on the calling thread, so it never ships the order itself; it only waits a bounded
+     * time for queue space.
+     *
+     * @param task shipping task
+     * @throws RejectedExecutionException if the pool has been shut down or the queue stayed full
+     */
+    private void waitForSpace(Runnable task) {
+        if (workers.isShutdown()) {
+            throw new RejectedExecutionException("shipping dispatcher is shut down");
+        }
+        boolean queued = false;
+        try {
+            queued = workers.getQueue().offer(task, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queued) {
+            throw new RejectedExecutionException("shipping queue is full");
+        }
+        if (workers.isShutdown() && workers.getQueue().remove(task)) {
+            throw new RejectedExecutionException("shipping dispatcher is shut down");
+        }
+    }
+
+    /**
+     * Ships an order through the wrapped provider, retrying with exponential backoff.
+     *
+     * @param order the order to ship
+     */
+    private void shipWithRetries(Order order) {
+        long backoff = initialBackoffMillis;
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                delegate.shipOrder(order);
+                return;
+            } catch (RuntimeException ex) {
+                if (attempt == maxAttempts) {
+                    System.err.println("Shipping failed for order " + order.getOrderID()
+                            + " after " + attempt + " attempts: " + ex.getMessage());
+                    return;
+                }
+                System.err.println("Shipping attempt " + attempt + " failed for order "
+                        + order.getOrderID() + ", retrying in " + backoff + " ms: " + ex.getMessage());
+            }
+
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    /**
+     * Creates named daemon worker threads, so pending shipments never keep the JVM alive.
+     */
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "shipping-worker-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
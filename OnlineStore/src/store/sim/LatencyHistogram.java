@@ -0,0 +1,155 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.sim;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe latency histogram with logarithmic buckets.
+ *
+ * <p>
+ * Every power of two is split into 16 linear sub-buckets, so a reported percentile is
+ * within 1/16 (6.25%) of the true value. Values below 16 are recorded exactly. Recording
+ * is lock-free and constant-time, and the memory use is fixed (960 counters) no matter
+ * how many values are recorded.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    /** Number of bits used for the linear sub-buckets of each power of two. */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /** Number of sub-buckets per power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Total number of buckets (covers every non-negative {@code long}). */
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /** Per-bucket counts. */
+    private final AtomicLongArray counts;
+
+    /** Number of recorded values. */
+    private final LongAdder count;
+
+    /** Sum of recorded values. */
+    private final LongAdder sum;
+
+    /** Largest recorded value. */
+    private final AtomicLong max;
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a value (negative values are recorded as 0).
+     *
+     * @param value value to record, e.g. a latency in nanoseconds
+     */
+    public void record(long value) {
+        long v = Math.max(0L, value);
+        counts.incrementAndGet(indexOf(v));
+        count.increment();
+        sum.add(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return value count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return maximum (0 if empty)
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return mean (0 if empty)
+     */
+    public double getMean() {
+        long n = count.sum();
+        return (n == 0) ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the value at the given percentile.
+     *
+     * @param percentile percentile between 0 and 100 (e.g., 99.9)
+     * @return upper bound of the bucket containing the percentile (0 if empty)
+     * @throws IllegalArgumentException if {@code percentile} is outside [0, 100]
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("percentile must be in [0, 100]");
+        }
+
+        long n = count.sum();
+        if (n == 0) {
+            return 0L;
+        }
+
+        long target = Math.max(1L, (long) Math.ceil(n * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Maps a value to its bucket.
+     *
+     * @param v non-negative value
+     * @return bucket index
+     */
+    private static int indexOf(long v) {
+        if (v < SUB_BUCKETS) {
+            return (int) v;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(v)) - SUB_BUCKET_BITS;
+        int sub = (int) ((v >>> shift) & (SUB_BUCKETS - 1));
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the largest value that maps to the given bucket.
+     *
+     * @param index bucket index
+     * @return inclusive upper bound
+     */
+    private static long upperBoundOf(int index) {
+        int group = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        if (group == 0) {
+            return sub;
+        }
+        int shift = group - 1;
+        long lower = (long) (SUB_BUCKETS + sub) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,466 @@
+/**
+ * Submitted by:
+ * Tamar Nahum, ID 021983812
+ * Shira Asaraf, ID 322218439
+ */
+package store.sim;
+
+import store.core.Customer;
+import store.core.Manager;
+import store.engine.LockWaitStats;
+import store.engine.StoreEngine;
+import store.gui.controller.StoreController;
+import store.products.Category;
+import store.products.Product;
+import store.products.ProductFactory;
+import store.shipping.ShippingProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless load generator for capacity planning.
+ *
+ * <p>
+ * Creates a number of customer sessions ({@link StoreController} instances sharing one
+ * {@link StoreEngine}), each running on its own virtual thread, plus one shared manager
+ * session. Every session repeatedly picks an operation from a weighted mix:
+ * </p>
+ * <ul>
+ *   <li><b>browse</b>: lists available products or one category and prices a few of them.</li>
+ *   <li><b>add</b>: adds a random product to the cart (placing a stock hold).</li>
+ *   <li><b>checkout</b>: checks out the cart (counted as failed if the cart is empty).</li>
+ *   <li><b>stock</b>: the manager session increases or decreases a product's stock.</li>
+ * </ul>
+ * <p>
+ * After a warm-up phase the simulator measures for a fixed time and prints throughput,
+ * failures and p50/p99/p99.9/max latency for each operation, plus the time threads spent
+ * waiting for the engine's state lock and stock lock stripes. No GUI is created; order
+ * history and order IDs go to temporary files (unless {@code store.ordersFile} /
+ * {@code store.orderIdFile} are set) and shipping is replaced by an in-memory provider.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code java store.sim.LoadSimulator [key=value ...]}, with keys
+ * {@code customers} (default 1000), {@code seconds} (10), {@code warmup} (2),
+ * {@code products} (500), {@code stock} (initial stock per product, 10000000),
+ * {@code think} (pause between operations in milliseconds, 0) and
+ * {@code mix} (weights, default {@code browse:60,add:25,checkout:10,stock:5}).
+ * </p>
+ */
+public final class LoadSimulator {
+
+    /** Shipping provider that completes orders without calling the external API. */
+    private static final ShippingProvider NO_OP_SHIPPING = order -> {
+        order.pay();
+        order.ship();
+    };
+
+    /** Number of products priced by one browse operation. */
+    private static final int PRICES_PER_BROWSE = 10;
+
+    /**
+     * Operations of the simulated workload.
+     */
+    enum Operation {
+        BROWSE("browse"),
+        ADD_TO_CART("add"),
+        CHECKOUT("checkout"),
+        MANAGE_STOCK("stock");
+
+        private final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Finds an operation by its key in the {@code mix} argument.
+         *
+         * @param key operation key (case-insensitive)
+         * @return the operation
+         * @throws IllegalArgumentException if no operation has this key
+         */
+        static Operation fromKey(String key) {
+            for (Operation op : values()) {
+                if (op.key.equalsIgnoreCase(key)) {
+                    return op;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation in mix: " + key);
+        }
+    }
+
+    /** Simulation parameters. */
+    private final Config config;
+
+    /** Shared engine. */
+    private final StoreEngine engine;
+
+    /** Products created for this run. */
+    private final List<Product> products;
+
+    /** Manager session shared by all stock operations. */
+    private final StoreController managerSession;
+
+    /** Latency histogram per operation. */
+    private final Map<Operation, LatencyHistogram> latencies;
+
+    /** Failed operations per operation. */
+    private final Map<Operation, LongAdder> failures;
+
+    /** Whether operations are currently being recorded (false during warm-up). */
+    private volatile boolean measuring;
+
+    /** Whether sessions should keep running. */
+    private volatile boolean running;
+
+    /** Measured duration in nanoseconds (set by {@link #run()}). */
+    private long measuredNanos;
+
+    /**
+     * Creates a simulator and loads its products into the engine.
+     *
+     * @param engine shared engine
+     * @param config simulation parameters
+     */
+    private LoadSimulator(StoreEngine engine, Config config) {
+        this.config = config;
+        this.engine = engine;
+        this.products = new ArrayList<>(config.products);
+
+        Category[] categories = Category.values();
+        for (int i = 0; i < config.products; i++) {
+            products.add(ProductFactory.createProductWithDefaults(new ProductFactory.BasicFields(
+                    "sim-product-" + i, 1.0 + (i % 100), config.stock, "simulated product",
+                    categories[i % categories.length], null, null)));
+        }
+        engine.addProducts(products);
+
+        this.managerSession = new StoreController(
+                engine, null, new Manager("sim-manager", ""), NO_OP_SHIPPING);
+
+        this.latencies = new EnumMap<>(Operation.class);
+        this.failures = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new LatencyHistogram());
+            failures.put(op, new LongAdder());
+        }
+    }
+
+    /**
+     * Runs the simulator.
+     *
+     * @param args {@code key=value} parameters (see class description)
+     * @throws Exception if the temporary files cannot be created or the run is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        useTemporaryFiles();
+
+        LoadSimulator sim = new LoadSimulator(StoreEngine.getInstance(), config);
+        sim.run();
+        sim.printReport(System.out);
+    }
+
+    /**
+     * Points order history and order IDs at temporary files, unless already configured.
+     * Must run before the engine is first used.
+     *
+     * @throws IOException if a temporary file cannot be created
+     */
+    private static void useTemporaryFiles() throws IOException {
+        if (System.getProperty("store.ordersFile") == null) {
+            File history = File.createTempFile("sim-orders", ".csv");
+            history.deleteOnExit();
+            System.setProperty("store.ordersFile", history.getPath());
+        }
+        if (System.getProperty("store.orderIdFile") == null) {
+            File orderIds = File.createTempFile("sim-orders", ".hwm");
+            orderIds.deleteOnExit();
+            System.setProperty("store.orderIdFile", orderIds.getPath());
+        }
+    }
+
+    /**
+     * Starts all sessions, runs the warm-up and measurement phases and stops the sessions.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void run() throws InterruptedException {
+        Operation[] table = config.weightTable();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> sessions = new ArrayList<>(config.customers);
+        List<StoreController> controllers = new ArrayList<>(config.customers);
+
+        running = true;
+        for (int i = 0; i < config.customers; i++) {
+            StoreController session = new StoreController(
+                    engine, new Customer("sim-customer-" + i, ""), null, NO_OP_SHIPPING);
+            controllers.add(session);
+
+            sessions.add(Thread.ofVirtual().name("sim-session-" + i).start(() -> {
+                try {
+                    start.await();
+                    runSession(session, table);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+
+        start.countDown();
+        Thread.sleep(config.warmupMillis);
+
+        engine.getStateLockWaits().reset();
+        engine.getStockLockWaits().reset();
+        measuring = true;
+        long begin = System.nanoTime();
+
+        Thread.sleep(config.runMillis);
+
+        measuring = false;
+        measuredNanos = System.nanoTime() - begin;
+        running = false;
+
+        for (Thread t : sessions) {
+            t.join();
+        }
+        for (StoreController session : controllers) {
+            session.releaseHolds();
+        }
+    }
+
+    /**
+     * Body of one customer session.
+     *
+     * @param session customer session
+     * @param table   weighted operation table
+     * @throws InterruptedException if interrupted during think time
+     */
+    private void runSession(StoreController session, Operation[] table) throws InterruptedException {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+
+        while (running) {
+            Operation op = table[rnd.nextInt(table.length)];
+
+            long t0 = System.nanoTime();
+            boolean ok = perform(session, op, rnd);
+            long elapsed = System.nanoTime() - t0;
+
+            if (measuring) {
+                latencies.get(op).record(elapsed);
+                if (!ok) {
+                    failures.get(op).increment();
+                }
+            }
+
+            if (config.thinkMillis > 0) {
+                Thread.sleep(config.thinkMillis);
+            }
+        }
+    }
+
+    /**
+     * Executes one operation.
+     *
+     * @param session customer session
+     * @param op      operation to run
+     * @param rnd     random source of the calling thread
+     * @return true if the operation succeeded
+     */
+    private boolean perform(StoreController session, Operation op, ThreadLocalRandom rnd) {
+        switch (op) {
+            case BROWSE: {
+                List<Product> shown = rnd.nextBoolean()
+                        ? session.getAvailableProducts()
+                        : session.getProductsByCategory(Category.values()[rnd.nextInt(Category.values().length)]);
+                if (shown.isEmpty()) return false;
+
+                long sum = 0L;
+                for (int i = 0; i < PRICES_PER_BROWSE; i++) {
+                    sum += session.getPriceAfterDiscountCents(shown.get(rnd.nextInt(shown.size())));
+                }
+                return sum >= 0L;
+            }
+            case ADD_TO_CART:
+                return session.addToCart(randomProduct(rnd), 1 + rnd.nextInt(3));
+            case CHECKOUT:
+                return session.checkout();
+            case MANAGE_STOCK: {
+                Product product = randomProduct(rnd);
+                int amount = 1 + rnd.nextInt(10);
+                return rnd.nextBoolean()
+                        ? managerSession.increaseStock(product, amount)
+                        : managerSession.decreaseStock(product, amount);
+            }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Picks a random simulated product.
+     *
+     * @param rnd random source
+     * @return product
+     */
+    private Product randomProduct(ThreadLocalRandom rnd) {
+        return products.get(rnd.nextInt(products.size()));
+    }
+
+    /**
+     * Prints the per-operation results and lock-wait totals.
+     *
+     * @param out destination stream
+     */
+    private void printReport(PrintStream out) {
+        double seconds = measuredNanos / 1_000_000_000.0;
+
+        out.printf(Locale.ROOT, "Load simulation: %d customers, %d products, %.1f s measured (+%.1f s warm-up), mix %s%n",
+                config.customers, config.products, seconds, config.warmupMillis / 1000.0, config.mixText);
+        out.printf(Locale.ROOT, "%-10s %12s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "ops/s", "failed", "p50 us", "p99 us", "p99.9 us", "max us");
+
+        long total = 0;
+        for (Operation op : Operation.values()) {
+            LatencyHistogram h = latencies.get(op);
+            total += h.getCount();
+            out.printf(Locale.ROOT, "%-10s %12d %10.0f %10d %10.1f %10.1f %10.1f %10.1f%n",
+                    op.key, h.getCount(), h.getCount() / seconds, failures.get(op).sum(),
+                    micros(h.getPercentile(50)), micros(h.getPercentile(99)),
+                    micros(h.getPercentile(99.9)), micros(h.getMax()));
+        }
+        out.printf(Locale.ROOT, "%-10s %12d %10.0f%n", "total", total, total / seconds);
+
+        out.println();
+        out.println("Lock waits:");
+        printLockWaits(out, engine.getStateLockWaits(), seconds);
+        printLockWaits(out, engine.getStockLockWaits(), seconds);
+    }
+
+    /**
+     * Prints one lock group's wait statistics.
+     *
+     * @param out     destination stream
+     * @param stats   lock statistics
+     * @param seconds measured duration in seconds
+     */
+    private static void printLockWaits(PrintStream out, LockWaitStats stats, double seconds) {
+        long contended = stats.getContendedAcquisitions();
+        long waitNanos = stats.getWaitNanos();
+        out.printf(Locale.ROOT, "  %-14s %10d contended (%8.0f/s), %10.1f ms waited, %8.1f us avg%n",
+                stats.getName(), contended, contended / seconds, waitNanos / 1_000_000.0,
+                contended == 0 ? 0.0 : micros(waitNanos / contended));
+    }
+
+    /**
+     * Converts nanoseconds to microseconds.
+     *
+     * @param nanos duration in nanoseconds
+     * @return duration in microseconds
+     */
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    /**
+     * Parsed simulation parameters.
+     */
+    static final class Config {
+        private int customers = 1000;
+        private long runMillis = 10_000L;
+        private long warmupMillis = 2_000L;
+        private int products = 500;
+        private int stock = 10_000_000;
+        private long thinkMillis = 0L;
+        private String mixText = "browse:60,add:25,checkout:10,stock:5";
+        private final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+
+        private Config() {}
+
+        /**
+         * Parses {@code key=value} arguments.
+         *
+         * @param args command-line arguments
+         * @return parsed configuration
+         * @throws IllegalArgumentException if an argument is malformed or out of range
+         */
+        static Config parse(String[] args) {
+            Config c = new Config();
+            for (String arg : args) {
+                String[] kv = arg.split("=", 2);
+                if (kv.length != 2) {
+                    throw new IllegalArgumentException("Expected key=value but got: " + arg);
+                }
+                String value = kv[1].trim();
+                switch (kv[0].trim().toLowerCase(Locale.ROOT)) {
+                    case "customers": c.customers = Integer.parseInt(value); break;
+                    case "seconds": c.runMillis = Math.round(Double.parseDouble(value) * 1000); break;
+                    case "warmup": c.warmupMillis = Math.round(Double.parseDouble(value) * 1000); break;
+                    case "products": c.products = Integer.parseInt(value); break;
+                    case "stock": c.stock = Integer.parseInt(value); break;
+                    case "think": c.thinkMillis = Long.parseLong(value); break;
+                    case "mix": c.mixText = value; break;
+                    default: throw new IllegalArgumentException("Unknown parameter: " + kv[0]);
+                }
+            }
+
+            if (c.customers <= 0 || c.products <= 0 || c.runMillis <= 0) {
+                throw new IllegalArgumentException("customers, products and seconds must be > 0");
+            }
+            if (c.warmupMillis < 0 || c.stock < 0 || c.thinkMillis < 0) {
+                throw new IllegalArgumentException("warmup, stock and think must be >= 0");
+            }
+            c.parseMix();
+            return c;
+        }
+
+        /**
+         * Parses the {@code mix} value ({@code name:weight} pairs separated by commas).
+         *
+         * @throws IllegalArgumentException if the mix is malformed or all weights are zero
+         */
+        private void parseMix() {
+            for (String part : mixText.split(",")) {
+                String[] nw = part.split(":", 2);
+                if (nw.length != 2) {
+                    throw new IllegalArgumentException("Expected name:weight in mix but got: " + part);
+                }
+                int weight = Integer.parseInt(nw[1].trim());
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Mix weights must be >= 0");
+                }
+                weights.put(Operation.fromKey(nw[0].trim()), weight);
+            }
+            if (weightTable().length == 0) {
+                throw new IllegalArgumentException("At least one mix weight must be > 0");
+            }
+        }
+
+        /**
+         * Expands the weights into a table where each operation appears {@code weight} times,
+         * so a uniform random index picks operations in proportion to their weights.
+         *
+         * @return weighted operation table
+         */
+        Operation[] weightTable() {
+            List<Operation> table = new ArrayList<>();
+            for (Map.Entry<Operation, Integer> e : weights.entrySet()) {
+                for (int i = 0; i < e.getValue(); i++) {
+                    table.add(e.getKey());
+                }
+            }
+            return table.toArray(new Operation[0]);
+        }
+    }
+}